@@ -0,0 +1,144 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Seeded generators for catalog-shaped data: the same seed gives the same books and orders on
+// every run, so results from different commits are measured on identical input
+final class CatalogFixtures {
+
+    static final long SEED = 20240801L;
+
+    private static final String[] WORDS = {
+            "garden", "river", "shadow", "empire", "island", "history", "journey", "silent", "ocean", "forest",
+            "mountain", "letters", "secret", "kingdom", "children", "night", "monsoon", "village", "science",
+            "mathematics", "poems", "stories", "colombo", "kandy", "lanka", "tea", "elephant", "temple", "moon",
+            "stars", "war", "peace", "love", "family", "city", "train", "harbour", "king", "queen", "lost",
+            "found", "golden", "broken", "ancient", "modern", "guide", "practical", "complete", "introduction"
+    };
+    private static final String[] CATEGORIES = {
+            "Fiction", "Children", "Education", "History", "Science", "Poetry", "Biography", "Travel",
+            "Religion", "Cookery", "Business", "Comics"
+    };
+    private static final String[] LANGUAGES = {"English", "Sinhala", "Tamil", "English", "Sinhala"};
+    private static final String[] SURNAMES = {
+            "Perera", "Fernando", "de Silva", "Jayasuriya", "Wickramasinghe", "Bandara", "Rajapaksa",
+            "Gunawardena", "Kumara", "Senanayake", "Dissanayake", "Herath", "Mendis", "Ratnayake"
+    };
+    private static final String[] GIVEN_NAMES = {
+            "Nimal", "Kamala", "Sunil", "Anoma", "Ruwan", "Dilani", "Kasun", "Ishara", "Tharindu", "Nadeesha"
+    };
+
+    private CatalogFixtures() {
+    }
+
+    // Books with ObjectId-style ids, 2-6 word titles, 40-120 word descriptions and content-addressed images
+    static List<Book> books(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> publishers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            publishers.add(capitalize(pick(random, WORDS)) + " " + (i % 3 == 0 ? "Press" : "Publishers"));
+        }
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setId(new ObjectId(new Date(1_700_000_000_000L + i * 1000L), i).toHexString());
+            book.setTitle(capitalize(words(random, 2 + random.nextInt(5))));
+            book.setAuthor(person(random));
+            book.setDescription(capitalize(words(random, 40 + random.nextInt(81))) + ".");
+            book.setPrice(Math.round((300 + random.nextInt(5700)) / 10.0) * 10.0);
+            book.setCategory(pick(random, CATEGORIES));
+            book.setLanguage(pick(random, LANGUAGES));
+            book.setPublisher(publishers.get(random.nextInt(publishers.size())));
+            book.setImage(hex(random, 32) + ".jpg");
+            book.setVersion((long) random.nextInt(5));
+            book.setStock(random.nextInt(4) == 0 ? null : random.nextInt(200));
+            books.add(book);
+        }
+        return books;
+    }
+
+    // An order as CheckoutService saves it: priced lines from the catalog plus the customer's details
+    static Checkout checkout(List<Book> catalog, int lines, long seed) {
+        Random random = new Random(seed);
+        List<OrderLine> cartItems = new ArrayList<>(lines);
+        Map<String, Integer> stockTaken = new LinkedHashMap<>();
+        double total = 0;
+        for (int i = 0; i < lines; i++) {
+            Book book = catalog.get(random.nextInt(catalog.size()));
+            int quantity = 1 + random.nextInt(3);
+            cartItems.add(new OrderLine(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                    book.getPrice(), quantity));
+            if (book.getStock() != null) {
+                stockTaken.merge(book.getId(), quantity, Integer::sum);
+            }
+            total += book.getPrice() * quantity;
+        }
+        String name = person(random);
+        Checkout checkout = new Checkout();
+        checkout.setId(new ObjectId().toHexString());
+        checkout.setCartItems(cartItems);
+        checkout.setName(name);
+        checkout.setAddress((1 + random.nextInt(300)) + ", " + capitalize(pick(random, WORDS)) + " Road, "
+                + capitalize(pick(random, WORDS)));
+        checkout.setPhone("07" + (10_000_000 + random.nextInt(90_000_000)));
+        checkout.setEmail(name.toLowerCase().replace(' ', '.') + "@example.lk");
+        checkout.setShippingMethod(random.nextBoolean() ? "standard" : "express");
+        checkout.setPaymentMethod("card");
+        checkout.setCardNumber("4111111111111111");
+        checkout.setExpiryDate("12/29");
+        checkout.setCvv("123");
+        checkout.setCardHolderName(name);
+        checkout.setTotalPrice(total);
+        checkout.setCreatedAt(Instant.ofEpochMilli(1_720_000_000_000L + random.nextInt(1_000_000_000)));
+        checkout.setStockTaken(stockTaken);
+        return checkout;
+    }
+
+    // Pseudo-random bytes standing in for a cover image of the given size
+    static byte[] imageBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(pick(random, WORDS));
+        }
+        return text.toString();
+    }
+
+    private static String person(Random random) {
+        return pick(random, GIVEN_NAMES) + " " + pick(random, SURNAMES);
+    }
+
+    private static String hex(Random random, int bytes) {
+        byte[] value = new byte[bytes];
+        random.nextBytes(value);
+        return HexFormat.of().formatHex(value);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.dto.BookFacetCounts;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookSearchResult;
+import com.bookshop.pahana.dto.BookSuggestion;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.service.BookCache;
+import com.bookshop.pahana.service.BookFacetIndex;
+import com.bookshop.pahana.service.BookSearchIndex;
+import com.bookshop.pahana.service.BookSuggester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// The catalog's in-memory read paths: BM25 search, facet counts (the cached unfiltered response and
+// a filtered pass), prefix suggestions, and BookCache hits for a single book and the full list.
+// Books are added the way catalog events add them, one upsert at a time.
+@State(Scope.Benchmark)
+public class CatalogIndexBenchmark {
+
+    @Param({"1000", "20000"})
+    public int books;
+
+    private BookSearchIndex searchIndex;
+    private BookFacetIndex facetIndex;
+    private BookSuggester suggester;
+    private BookCache bookCache;
+    private List<Book> catalog;
+    private BookFilter categoryFilter;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        catalog = CatalogFixtures.books(books, CatalogFixtures.SEED);
+        searchIndex = new BookSearchIndex();
+        facetIndex = new BookFacetIndex(new double[]{500, 1000, 2000, 5000});
+        // Popularity comes from orders only on a rebuild, which is not used here
+        suggester = new BookSuggester(null);
+        bookCache = new BookCache(true, DataSize.ofMegabytes(64), Duration.ZERO, new SimpleMeterRegistry());
+        for (Book book : catalog) {
+            searchIndex.upsert(book);
+            facetIndex.upsert(book);
+            suggester.upsert(book);
+            bookCache.getBook(book.getId(), id -> Optional.of(book));
+        }
+        bookCache.getAllBooks(() -> catalog);
+        categoryFilter = new BookFilter("Fiction", null, null, null, 2000.0);
+    }
+
+    @Benchmark
+    public BookSearchResult search() {
+        return searchIndex.search("golden river kingdom", 0, 20);
+    }
+
+    @Benchmark
+    public BookFacetCounts facetCountsUnfiltered() {
+        return facetIndex.counts(BookFilter.NONE);
+    }
+
+    @Benchmark
+    public BookFacetCounts facetCountsFiltered() {
+        return facetIndex.counts(categoryFilter);
+    }
+
+    @Benchmark
+    public List<BookSuggestion> suggest() {
+        return suggester.suggest("gol", BookSuggester.MAX_SUGGESTIONS);
+    }
+
+    @Benchmark
+    public Optional<Book> cachedBookById() {
+        String id = catalog.get(next++ % catalog.size()).getId();
+        return bookCache.getBook(id, missing -> {
+            throw new IllegalStateException("Cache miss for " + missing);
+        });
+    }
+
+    @Benchmark
+    public List<Book> cachedAllBooks() {
+        return bookCache.getAllBooks(() -> {
+            throw new IllegalStateException("Cache miss for the full list");
+        });
+    }
+}
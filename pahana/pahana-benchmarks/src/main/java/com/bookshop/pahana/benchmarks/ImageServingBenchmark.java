@@ -0,0 +1,128 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.controller.ImageResponseWriter;
+import com.bookshop.pahana.service.LocalImageStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// GET /api/books/uploads/{imageName} after the controller has found the file: ImageResponseWriter
+// with its ETag cache warm, for a full response copied through FileChannel, a response handed to
+// Tomcat's sendfile (headers only), a revalidation answered with 304, and a single byte range
+@State(Scope.Benchmark)
+public class ImageServingBenchmark {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    @Param({"61440", "1048576"})
+    public int imageSize;
+
+    private Path uploadDir;
+    private LocalImageStore imageStore;
+    private ImageResponseWriter writer;
+    private String imageName;
+    private String etag;
+
+    @Setup
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("pahana-bench-images");
+        imageStore = new LocalImageStore(uploadDir.toString(), new ImageStoreBenchmark.OfflineMongoTemplate());
+        imageName = imageStore.put(
+                new ByteArrayInputStream(CatalogFixtures.imageBytes(imageSize, CatalogFixtures.SEED)), "cover.jpg");
+        writer = new ImageResponseWriter(10_000, Duration.ofHours(1), new SimpleMeterRegistry());
+        etag = serve(request()).getHeader(HttpHeaders.ETAG);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fullImage() throws IOException {
+        return serve(request());
+    }
+
+    @Benchmark
+    public MockHttpServletResponse sendfileImage() throws IOException {
+        MockHttpServletRequest request = request();
+        request.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+        return serve(request);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse notModified() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return serve(request);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse byteRange() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-16383");
+        return serve(request);
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/books/uploads/" + imageName);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new DiscardingResponse();
+        Path file = imageStore.resolve(imageName);
+        writer.write(file, ImageResponseWriter.contentType(file), ImageResponseWriter.isImmutableName(imageName),
+                request, response);
+        return response;
+    }
+
+    // The mock response buffers the body in memory; the socket is stood in for by a sink instead,
+    // so only the writer's own work is measured
+    private static final class DiscardingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream body = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.service.LocalImageStore;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.UpdateResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Cover image uploads through LocalImageStore.put (what BookService stores an uploaded image with):
+// hashing while streaming to a temporary file, then either moving it into place (a new image) or
+// dropping it (the same image uploaded again). The reference-count upsert is stubbed out, so the
+// MongoDB round trip is not part of the figures.
+@State(Scope.Benchmark)
+public class ImageStoreBenchmark {
+
+    // 60 KB thumbnail-sized cover, 1 MB photo-quality cover
+    @Param({"61440", "1048576"})
+    public int imageSize;
+
+    private Path uploadDir;
+    private LocalImageStore imageStore;
+    private byte[] image;
+    private long counter;
+    private String stored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("pahana-bench-uploads");
+        imageStore = new LocalImageStore(uploadDir.toString(), new OfflineMongoTemplate());
+        image = CatalogFixtures.imageBytes(imageSize, CatalogFixtures.SEED);
+        imageStore.put(new ByteArrayInputStream(image), "cover.jpg");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // The stored file is removed after each call so the upload directory does not grow
+    @TearDown(Level.Invocation)
+    public void removeStored() throws IOException {
+        if (stored != null) {
+            Files.deleteIfExists(imageStore.resolve(stored));
+            stored = null;
+        }
+    }
+
+    @Benchmark
+    public String putNewImage() throws IOException {
+        // Changing the first bytes gives a different hash, so every call stores a new blob
+        long value = ++counter;
+        for (int i = 0; i < Long.BYTES; i++) {
+            image[i] = (byte) (value >>> (8 * i));
+        }
+        stored = imageStore.put(new ByteArrayInputStream(image), "cover.jpg");
+        return stored;
+    }
+
+    @Benchmark
+    public String putDuplicateImage() throws IOException {
+        image[0] = 0;
+        return imageStore.put(new ByteArrayInputStream(image), "cover.jpg");
+    }
+
+    // A MongoTemplate that never connects: the only call LocalImageStore.put makes is answered locally
+    static final class OfflineMongoTemplate extends MongoTemplate {
+
+        OfflineMongoTemplate() {
+            super(new OfflineDatabaseFactory());
+        }
+
+        @Override
+        public UpdateResult upsert(Query query, UpdateDefinition update, Class<?> entityClass) {
+            return UpdateResult.acknowledged(1, 1L, null);
+        }
+    }
+
+    private static final class OfflineDatabaseFactory implements MongoDatabaseFactory {
+
+        private final PersistenceExceptionTranslator exceptionTranslator = new MongoExceptionTranslator();
+
+        @Override
+        public MongoDatabase getMongoDatabase() {
+            throw new UnsupportedOperationException("No database in benchmarks");
+        }
+
+        @Override
+        public MongoDatabase getMongoDatabase(String dbName) {
+            throw new UnsupportedOperationException("No database in benchmarks");
+        }
+
+        @Override
+        public PersistenceExceptionTranslator getExceptionTranslator() {
+            return exceptionTranslator;
+        }
+
+        @Override
+        public ClientSession getSession(ClientSessionOptions options) {
+            throw new UnsupportedOperationException("No database in benchmarks");
+        }
+
+        @Override
+        public MongoDatabaseFactory withSession(ClientSession session) {
+            throw new UnsupportedOperationException("No database in benchmarks");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+// Jackson as the REST layer uses it: book listings (a page of 20, the 100 maximum, the whole
+// catalog from GET /api/books) and orders of typical and large basket sizes
+public class JsonSerializationBenchmark {
+
+    private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {
+    };
+
+    // Same settings Spring Boot applies to the application's ObjectMapper
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @State(Scope.Benchmark)
+    public static class BookList {
+
+        @Param({"20", "100", "2000"})
+        public int books;
+
+        List<Book> value;
+        byte[] json;
+
+        @Setup
+        public void setUp() throws Exception {
+            value = CatalogFixtures.books(books, CatalogFixtures.SEED);
+            json = OBJECT_MAPPER.writeValueAsBytes(value);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Order {
+
+        @Param({"3", "30"})
+        public int orderLines;
+
+        Checkout value;
+        byte[] json;
+
+        @Setup
+        public void setUp() throws Exception {
+            value = CatalogFixtures.checkout(CatalogFixtures.books(500, CatalogFixtures.SEED), orderLines,
+                    CatalogFixtures.SEED);
+            json = OBJECT_MAPPER.writeValueAsBytes(value);
+        }
+    }
+
+    @Benchmark
+    public byte[] writeBookList(BookList bookList) throws Exception {
+        return OBJECT_MAPPER.writeValueAsBytes(bookList.value);
+    }
+
+    @Benchmark
+    public List<Book> readBookList(BookList bookList) throws Exception {
+        return OBJECT_MAPPER.readValue(bookList.json, BOOK_LIST);
+    }
+
+    @Benchmark
+    public byte[] writeCheckout(Order order) throws Exception {
+        return OBJECT_MAPPER.writeValueAsBytes(order.value);
+    }
+
+    @Benchmark
+    public Checkout readCheckout(Order order) throws Exception {
+        return OBJECT_MAPPER.readValue(order.json, Checkout.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.bookshop.pahana.benchmarks;
+
+import com.bookshop.pahana.config.MongoConversionsConfig;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+// Entity <-> BSON document mapping through Spring Data's MappingMongoConverter, configured with the
+// application's custom conversions (the OrderLine reader). No database: only the mapping is measured.
+@State(Scope.Benchmark)
+public class MongoMappingBenchmark {
+
+    private MappingMongoConverter converter;
+    private List<Book> catalog;
+    private Book book;
+    private Document bookDocument;
+
+    @State(Scope.Benchmark)
+    public static class Order {
+
+        @Param({"3", "30"})
+        public int orderLines;
+
+        Checkout value;
+        Document document;
+
+        @Setup
+        public void setUp(MongoMappingBenchmark benchmark) {
+            value = CatalogFixtures.checkout(benchmark.catalog, orderLines, CatalogFixtures.SEED);
+            document = new Document();
+            benchmark.converter.write(value, document);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoConversionsConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        catalog = CatalogFixtures.books(500, CatalogFixtures.SEED);
+        book = catalog.get(0);
+        bookDocument = new Document();
+        converter.write(book, bookDocument);
+    }
+
+    @Benchmark
+    public Document writeBook() {
+        Document document = new Document();
+        converter.write(book, document);
+        return document;
+    }
+
+    @Benchmark
+    public Book readBook() {
+        return converter.read(Book.class, bookDocument);
+    }
+
+    @Benchmark
+    public Document writeCheckout(Order order) {
+        Document document = new Document();
+        converter.write(order.value, document);
+        return document;
+    }
+
+    @Benchmark
+    public Checkout readCheckout(Order order) {
+        return converter.read(Checkout.class, order.document);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bookshop.pahana.loadtest;
+
+import com.mongodb.ConnectionString;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.net.InetSocketAddress;
+
+// Profile in-memory-mongo: the application talks to an in-process MongoDB stand-in (mongo-java-server
+// with its in-memory backend) on a free loopback port instead of a real server. Nothing is persisted,
+// and no network or MongoDB installation is needed. The reactive driver uses it too when
+// catalog.reactive.enabled=true.
+@Configuration
+@Profile("in-memory-mongo")
+public class InMemoryMongoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryMongoConfig.class);
+
+    @Bean(destroyMethod = "shutdownNow")
+    public MongoServer inMemoryMongoServer() {
+        MongoServer server = new MongoServer(new MemoryBackend());
+        server.bind("127.0.0.1", 0);
+        log.info("In-memory MongoDB stand-in listening on {}", server.getLocalAddress());
+        return server;
+    }
+
+    @Bean
+    public MongoConnectionDetails mongoConnectionDetails(MongoServer inMemoryMongoServer,
+                                                        @Value("${spring.data.mongodb.database:bookshop}") String database) {
+        InetSocketAddress address = inMemoryMongoServer.getLocalAddress();
+        ConnectionString connectionString = new ConnectionString(
+                "mongodb://" + address.getHostString() + ":" + address.getPort() + "/" + database);
+        return () -> connectionString;
+    }
+}
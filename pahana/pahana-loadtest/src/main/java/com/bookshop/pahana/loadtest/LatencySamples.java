@@ -0,0 +1,52 @@
+package com.bookshop.pahana.loadtest;
+
+import java.util.Arrays;
+
+// Request latencies in nanoseconds, failures included, as recorded by one client or merged from many.
+// Shared by every runner in this module so they all compute percentiles the same way.
+final class LatencySamples {
+
+    private long[] latencies = new long[256];
+    private int size;
+    private int errors;
+
+    void add(long latency, boolean failed) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latency;
+        if (failed) {
+            errors++;
+        }
+    }
+
+    void addAll(LatencySamples other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.latencies[i], false);
+        }
+        errors += other.errors;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    long[] sorted() {
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // Nearest-rank percentile of sorted latencies, in milliseconds; 0 when there are none
+    static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
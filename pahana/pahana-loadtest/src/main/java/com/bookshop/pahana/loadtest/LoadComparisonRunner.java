@@ -0,0 +1,210 @@
+package com.bookshop.pahana.loadtest;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Customers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Compares platform and virtual request threads on the same data. For each mode it starts the
+// application from this jar as a separate server process against this process's database, drives
+// its REST endpoints with many concurrent clients from this JVM, logs throughput and latency
+// percentiles per path, and stops it. Then exits (code 1 if any request failed). Offline run:
+//   java -jar pahana-loadtest.jar --spring.profiles.active=in-memory-mongo --server.port=0 --load-comparison
+// Options: --clients=400 --seconds=20 --warmup-seconds=5 --paths=/api/checkout?limit=20,/api/books?limit=20
+//          --books=5000 --customers=2000 --orders=20000 --seed=42 --server-jvm-args=-Xmx1g
+// The database is seeded if it has no books. With the in-memory-mongo profile the stand-in runs in
+// this JVM, so the clients and the database share its CPU; that is the same for both modes.
+// Each server's output goes to load-comparison-<mode>.log in the working directory.
+@Component
+public class LoadComparisonRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadComparisonRunner.class);
+
+    static final String OPTION = "load-comparison";
+    private static final String DEFAULT_PATHS = "/api/checkout?limit=20,/api/books?limit=20";
+    private static final Duration SERVER_STARTUP = Duration.ofMinutes(2);
+
+    private final ApplicationArguments args;
+    private final MongoTemplate mongoTemplate;
+    private final MongoConnectionDetails mongoConnectionDetails;
+    private final ConfigurableApplicationContext context;
+
+    public LoadComparisonRunner(ApplicationArguments args, MongoTemplate mongoTemplate,
+                                MongoConnectionDetails mongoConnectionDetails, ConfigurableApplicationContext context) {
+        this.args = args;
+        this.mongoTemplate = mongoTemplate;
+        this.mongoConnectionDetails = mongoConnectionDetails;
+        this.context = context;
+    }
+
+    // Same lifecycle as LoadTestRunner: after startup, on its own thread
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        Thread.ofPlatform().name("load-comparison").start(() -> {
+            int exitCode;
+            try {
+                exitCode = compare() ? 0 : 1;
+            } catch (Exception e) {
+                log.error("Load comparison failed", e);
+                exitCode = 1;
+            }
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        });
+    }
+
+    private boolean compare() throws Exception {
+        RunnerOptions options = new RunnerOptions(args);
+        int clients = options.integer("clients", 400);
+        int seconds = options.integer("seconds", 20);
+        int warmupSeconds = options.integer("warmup-seconds", 5);
+        List<String> paths = Arrays.stream(options.string("paths", DEFAULT_PATHS).split(","))
+                .map(String::trim).filter(path -> !path.isEmpty()).toList();
+
+        if (mongoTemplate.count(new Query(), Book.class) == 0) {
+            LoadDataGenerator generator = new LoadDataGenerator(mongoTemplate, options.longValue("seed", 42));
+            List<Book> books = generator.books(options.integer("books", 5000));
+            List<Customers> customers = generator.customers(options.integer("customers", 2000));
+            int orders = generator.orders(options.integer("orders", 20000), books, customers);
+            log.info("Seeded {} books, {} customers and {} orders", books.size(), customers.size(), orders);
+        }
+
+        boolean clean = true;
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            String mode = virtualThreads ? "virtual" : "platform";
+            int port = freePort();
+            Process server = startServer(options, mode, virtualThreads, port);
+            try {
+                List<URI> targets = paths.stream().map(path -> URI.create("http://localhost:" + port + path)).toList();
+                clean &= measure(mode + " threads", clients, seconds, warmupSeconds, paths, targets);
+            } finally {
+                server.destroy();
+                if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                    server.destroyForcibly();
+                }
+            }
+        }
+        return clean;
+    }
+
+    private Process startServer(RunnerOptions options, String mode, boolean virtualThreads, int port) throws Exception {
+        File jar = new ApplicationHome(LoadComparisonRunner.class).getSource();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = options.string("server-jvm-args", null);
+        if (jvmArgs != null) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(List.of("-jar", jar.getAbsolutePath(),
+                "--server.port=" + port,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.data.mongodb.uri=" + mongoConnectionDetails.getConnectionString()));
+        File output = new File("load-comparison-" + mode + ".log");
+        log.info("Starting a {} threads server on port {}, output in {}", mode, port, output);
+        Process server = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output).start();
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?limit=1"))
+                .timeout(Duration.ofSeconds(10)).build();
+        long deadline = System.nanoTime() + SERVER_STARTUP.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("The " + mode + " threads server exited with code "
+                        + server.exitValue() + "; see " + output);
+            }
+            try {
+                if (http.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return server;
+                }
+            } catch (Exception e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        server.destroyForcibly();
+        throw new IllegalStateException("The " + mode + " threads server did not start within " + SERVER_STARTUP);
+    }
+
+    private boolean measure(String mode, int clients, int seconds, int warmupSeconds, List<String> paths,
+                            List<URI> targets) throws Exception {
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clientThreads)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            drive(http, clientThreads, clients, warmupSeconds, targets);
+            long began = System.nanoTime();
+            LatencySamples[] results = drive(http, clientThreads, clients, seconds, targets);
+            double elapsed = (System.nanoTime() - began) / 1e9;
+
+            LatencySamples total = new LatencySamples();
+            for (int target = 0; target < targets.size(); target++) {
+                total.addAll(results[target]);
+                log.info("Load comparison, {}, {} clients: {}", mode, clients,
+                        summary(results[target], paths.get(target), elapsed));
+            }
+            log.info("Load comparison, {}, {} clients: {}", mode, clients, summary(total, "all paths", elapsed));
+            return total.errors() == 0;
+        }
+    }
+
+    // Client i starts at path i and cycles through them, so every path sees the same share of load
+    private static LatencySamples[] drive(HttpClient http, ExecutorService clientThreads, int clients, int seconds,
+                                          List<URI> targets) throws Exception {
+        return LoadDriver.drive(http, clientThreads, clients, targets.size(), seconds, client -> new LoadDriver.Client() {
+            private int request = client;
+
+            @Override
+            public int nextEndpoint() {
+                return request++ % targets.size();
+            }
+
+            @Override
+            public HttpRequest request(int endpoint) {
+                return HttpRequest.newBuilder(targets.get(endpoint)).timeout(Duration.ofSeconds(30)).build();
+            }
+        });
+    }
+
+    private static String summary(LatencySamples samples, String label, double seconds) {
+        long[] sorted = samples.sorted();
+        return String.format("%s: %d requests, %.0f req/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms, %d errors",
+                label, samples.size(), samples.size() / seconds, LatencySamples.millis(sorted, 0.50),
+                LatencySamples.millis(sorted, 0.99), LatencySamples.millis(sorted, 1.0), samples.errors());
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.bookshop.pahana.loadtest;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.entity.OrderLine;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Seeded catalog, customer and order-history generator. The same seed and sizes always produce the
+// same data, so load test runs on different commits see identical databases. Documents are inserted
+// in bulk straight through MongoTemplate: no events are published, so callers rebuild the catalog
+// projections afterwards.
+public class LoadDataGenerator {
+
+    static final String PASSWORD = "loadtest";
+
+    static final String[] WORDS = {
+            "garden", "river", "shadow", "empire", "island", "history", "journey", "silent", "ocean", "forest",
+            "mountain", "letters", "secret", "kingdom", "children", "night", "monsoon", "village", "science",
+            "mathematics", "poems", "stories", "colombo", "kandy", "lanka", "tea", "elephant", "temple", "moon",
+            "stars", "war", "peace", "love", "family", "city", "train", "harbour", "king", "queen", "lost",
+            "found", "golden", "broken", "ancient", "modern", "guide", "practical", "complete", "introduction"
+    };
+    static final String[] CATEGORIES = {
+            "Fiction", "Children", "Education", "History", "Science", "Poetry", "Biography", "Travel",
+            "Religion", "Cookery", "Business", "Comics"
+    };
+    private static final String[] LANGUAGES = {"English", "Sinhala", "Tamil", "English", "Sinhala"};
+    private static final String[] SURNAMES = {
+            "Perera", "Fernando", "de Silva", "Jayasuriya", "Wickramasinghe", "Bandara", "Rajapaksa",
+            "Gunawardena", "Kumara", "Senanayake", "Dissanayake", "Herath", "Mendis", "Ratnayake"
+    };
+    private static final String[] GIVEN_NAMES = {
+            "Nimal", "Kamala", "Sunil", "Anoma", "Ruwan", "Dilani", "Kasun", "Ishara", "Tharindu", "Nadeesha"
+    };
+    private static final int BATCH_SIZE = 1000;
+    // Orders are spread over the year before the generator's fixed "now"
+    private static final Instant HISTORY_END = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Duration HISTORY_LENGTH = Duration.ofDays(365);
+
+    private final MongoTemplate mongoTemplate;
+    private final long seed;
+
+    public LoadDataGenerator(MongoTemplate mongoTemplate, long seed) {
+        this.mongoTemplate = mongoTemplate;
+        this.seed = seed;
+    }
+
+    // Books with 2-6 word titles and 40-120 word descriptions. One in ten tracks stock, with more
+    // copies than any run can sell, so checkouts exercise the conditional decrement without selling out.
+    public List<Book> books(int count) {
+        Random random = new Random(seed);
+        List<String> publishers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            publishers.add(capitalize(pick(random, WORDS)) + (i % 3 == 0 ? " Press" : " Publishers"));
+        }
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setTitle(capitalize(words(random, 2 + random.nextInt(5))));
+            book.setAuthor(person(random));
+            book.setDescription(capitalize(words(random, 40 + random.nextInt(81))) + ".");
+            book.setPrice(Math.round((300 + random.nextInt(5700)) / 10.0) * 10.0);
+            book.setCategory(pick(random, CATEGORIES));
+            book.setLanguage(pick(random, LANGUAGES));
+            book.setPublisher(publishers.get(random.nextInt(publishers.size())));
+            book.setVersion(0L);
+            book.setStock(random.nextInt(10) == 0 ? 10_000_000 : null);
+            books.add(book);
+        }
+        return insert(books, Book.class);
+    }
+
+    public List<Customers> customers(int count) {
+        Random random = new Random(seed + 1);
+        List<Customers> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Customers customer = new Customers();
+            customer.setName(person(random));
+            customer.setEmail("customer" + i + "@loadtest.lk");
+            customer.setPassword(PASSWORD);
+            customer.setContactNumber("07" + (10_000_000 + random.nextInt(90_000_000)));
+            customer.setVersion(0L);
+            customers.add(customer);
+        }
+        return insert(customers, Customers.class);
+    }
+
+    // Orders of 1-5 lines over the last year, ids in time order like real ones. Sales are skewed
+    // towards the start of the catalog, so some books sell far more than others.
+    public int orders(int count, List<Book> books, List<Customers> customers) {
+        Random random = new Random(seed + 2);
+        long spanMillis = HISTORY_LENGTH.toMillis();
+        long startMillis = HISTORY_END.toEpochMilli() - spanMillis;
+        List<Checkout> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Instant placedAt = Instant.ofEpochMilli(startMillis + spanMillis * i / Math.max(1, count)
+                    + random.nextInt(1000));
+            Customers customer = customers.get(random.nextInt(customers.size()));
+            int lines = 1 + random.nextInt(5);
+            List<OrderLine> cartItems = new ArrayList<>(lines);
+            double total = 0;
+            for (int line = 0; line < lines; line++) {
+                Book book = popular(random, books);
+                int quantity = 1 + random.nextInt(3);
+                cartItems.add(new OrderLine(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                        book.getPrice(), quantity));
+                total += book.getPrice() * quantity;
+            }
+            Checkout order = new Checkout();
+            order.setId(new ObjectId(Date.from(placedAt), i & 0xFFFFFF).toHexString());
+            order.setCartItems(cartItems);
+            order.setName(customer.getName());
+            order.setEmail(customer.getEmail());
+            order.setAddress((1 + random.nextInt(300)) + ", " + capitalize(pick(random, WORDS)) + " Road, "
+                    + capitalize(pick(random, WORDS)));
+            order.setPhone(customer.getContactNumber());
+            order.setShippingMethod(random.nextInt(4) == 0 ? "express" : "standard");
+            order.setPaymentMethod(random.nextBoolean() ? "card" : "cash");
+            order.setTotalPrice(Math.round(total * 100) / 100.0);
+            order.setCreatedAt(placedAt);
+            batch.add(order);
+            if (batch.size() == BATCH_SIZE) {
+                mongoTemplate.insert(batch, Checkout.class);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, Checkout.class);
+        }
+        return count;
+    }
+
+    // Squaring a uniform draw favours low indexes: the first 10% of books get about 30% of the picks
+    static Book popular(Random random, List<Book> books) {
+        double draw = random.nextDouble();
+        return books.get((int) (draw * draw * books.size()));
+    }
+
+    static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private <T> List<T> insert(List<T> documents, Class<T> type) {
+        List<T> inserted = new ArrayList<>(documents.size());
+        for (int from = 0; from < documents.size(); from += BATCH_SIZE) {
+            Collection<T> saved = mongoTemplate.insert(
+                    documents.subList(from, Math.min(documents.size(), from + BATCH_SIZE)), type);
+            inserted.addAll(saved);
+        }
+        return inserted;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(pick(random, WORDS));
+        }
+        return text.toString();
+    }
+
+    private static String person(Random random) {
+        return pick(random, GIVEN_NAMES) + " " + pick(random, SURNAMES);
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.bookshop.pahana.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+// Closed-loop load: each client sends its next request as soon as the previous one is answered,
+// until the time is up. Latencies are recorded per client and endpoint, then merged per endpoint.
+final class LoadDriver {
+
+    // What one client sends: which endpoint comes next, and the request for it
+    interface Client {
+        int nextEndpoint();
+
+        HttpRequest request(int endpoint);
+    }
+
+    private LoadDriver() {
+    }
+
+    static LatencySamples[] drive(HttpClient http, ExecutorService clientThreads, int clients, int endpoints,
+                                  int seconds, IntFunction<Client> newClient) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<LatencySamples[]>> running = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = newClient.apply(i);
+            running.add(clientThreads.submit(() -> {
+                LatencySamples[] samples = newSamples(endpoints);
+                while (System.nanoTime() < deadline) {
+                    int endpoint = client.nextEndpoint();
+                    HttpRequest request = client.request(endpoint);
+                    long began = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        samples[endpoint].add(System.nanoTime() - began, response.statusCode() >= 400);
+                    } catch (Exception e) {
+                        samples[endpoint].add(System.nanoTime() - began, true);
+                    }
+                }
+                return samples;
+            }));
+        }
+        LatencySamples[] merged = newSamples(endpoints);
+        for (Future<LatencySamples[]> client : running) {
+            LatencySamples[] samples = client.get();
+            for (int endpoint = 0; endpoint < endpoints; endpoint++) {
+                merged[endpoint].addAll(samples[endpoint]);
+            }
+        }
+        return merged;
+    }
+
+    private static LatencySamples[] newSamples(int endpoints) {
+        LatencySamples[] samples = new LatencySamples[endpoints];
+        Arrays.setAll(samples, index -> new LatencySamples());
+        return samples;
+    }
+}
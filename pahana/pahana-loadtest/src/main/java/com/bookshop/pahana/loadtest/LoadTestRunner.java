@@ -0,0 +1,228 @@
+package com.bookshop.pahana.loadtest;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.service.BookCache;
+import com.bookshop.pahana.service.CatalogProjectionManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// End-to-end load test: seeds the database if it has no books, drives the application's own REST
+// endpoints with a traffic mix from many concurrent clients, logs throughput, latency percentiles
+// and a latency histogram per endpoint, then exits (code 1 if any request failed). Offline run:
+//   java -jar pahana-loadtest.jar --spring.profiles.active=in-memory-mongo --load-test --mix=browse
+// Options: --mix=browse|checkout-burst|admin-export --clients=50 --seconds=30 --warmup-seconds=5
+//          --books=5000 --customers=2000 --orders=20000 --seed=42 --report=load-test.json
+// Without the in-memory-mongo profile it runs against the configured MongoDB, seeding it only if
+// its books collection is empty; use a scratch database.
+@Component
+public class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    static final String OPTION = "load-test";
+
+    // Upper bounds of the report's latency histogram buckets, in milliseconds
+    private static final double[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    record EndpointReport(String endpoint, int requests, double requestsPerSecond, int errors,
+                          double p50Ms, double p90Ms, double p99Ms, double maxMs, List<Bucket> histogram) {
+    }
+
+    // Requests that took at most leMs and longer than the previous bucket's bound; leMs null is the overflow
+    record Bucket(Double leMs, int count) {
+    }
+
+    record Report(String mix, int clients, int seconds, long seed, int books, int customers, long orders,
+                  List<EndpointReport> endpoints) {
+    }
+
+    private final ApplicationArguments args;
+    private final MongoTemplate mongoTemplate;
+    private final CatalogProjectionManager catalogProjectionManager;
+    private final BookCache bookCache;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final ConfigurableApplicationContext context;
+
+    public LoadTestRunner(ApplicationArguments args, MongoTemplate mongoTemplate,
+                          CatalogProjectionManager catalogProjectionManager, BookCache bookCache,
+                          ObjectMapper objectMapper, Environment environment, ConfigurableApplicationContext context) {
+        this.args = args;
+        this.mongoTemplate = mongoTemplate;
+        this.catalogProjectionManager = catalogProjectionManager;
+        this.bookCache = bookCache;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        this.context = context;
+    }
+
+    // Not an ApplicationRunner: runners finish before ApplicationReadyEvent, and index provisioning
+    // and the catalog projections start on that event. Runs on its own thread so they are not held up.
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        Thread.ofPlatform().name("load-test").start(() -> {
+            int exitCode;
+            try {
+                exitCode = loadTest() ? 0 : 1;
+            } catch (Exception e) {
+                log.error("Load test failed", e);
+                exitCode = 1;
+            }
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        });
+    }
+
+    private boolean loadTest() throws Exception {
+        RunnerOptions options = new RunnerOptions(args);
+        TrafficMix mix = TrafficMix.fromOption(options.string("mix", TrafficMix.BROWSE.option()));
+        int clients = options.integer("clients", 50);
+        int seconds = options.integer("seconds", 30);
+        int warmupSeconds = options.integer("warmup-seconds", 5);
+        long seed = options.longValue("seed", 42);
+
+        List<Book> books;
+        List<Customers> customers;
+        if (mongoTemplate.count(new Query(), Book.class) == 0) {
+            long started = System.nanoTime();
+            LoadDataGenerator generator = new LoadDataGenerator(mongoTemplate, seed);
+            books = generator.books(options.integer("books", 5000));
+            customers = generator.customers(options.integer("customers", 2000));
+            int orders = generator.orders(options.integer("orders", 20000), books, customers);
+            log.info("Seeded {} books, {} customers and {} orders (seed {}) in {} ms", books.size(), customers.size(),
+                    orders, seed, Duration.ofNanos(System.nanoTime() - started).toMillis());
+            // Inserted without events, so the in-memory catalog state is rebuilt from the database
+            bookCache.invalidateAll();
+            catalogProjectionManager.rebuild();
+        } else {
+            books = mongoTemplate.findAll(Book.class);
+            customers = mongoTemplate.findAll(Customers.class);
+            log.info("Database already has {} books; using the existing data", books.size());
+        }
+        if (books.isEmpty() || customers.isEmpty()) {
+            log.warn("Load test needs at least one book and one customer");
+            return false;
+        }
+        long orders = mongoTemplate.count(new Query(), "checkouts");
+
+        int port = environment.getProperty("local.server.port", Integer.class, 8080);
+        TrafficMix.Target target = new TrafficMix.Target("http://localhost:" + port, books, customers);
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clientThreads)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            log.info("Load test {}: {} clients, {} s warm-up, {} s measured", mix.option(), clients, warmupSeconds, seconds);
+            drive(http, clientThreads, mix, target, clients, warmupSeconds, seed);
+            long began = System.nanoTime();
+            LatencySamples[] results = drive(http, clientThreads, mix, target, clients, seconds, seed + 1);
+            double elapsed = (System.nanoTime() - began) / 1e9;
+
+            List<EndpointReport> endpoints = new ArrayList<>();
+            LatencySamples total = new LatencySamples();
+            for (int endpoint = 0; endpoint < results.length; endpoint++) {
+                total.addAll(results[endpoint]);
+                endpoints.add(report(results[endpoint], mix.endpoints().get(endpoint).label(), elapsed));
+            }
+            endpoints.add(report(total, "all endpoints", elapsed));
+            for (EndpointReport report : endpoints) {
+                log.info("Load test {}, {} clients: {}", mix.option(), clients, summary(report));
+                log.info("  latency histogram: {}", histogram(report));
+            }
+
+            String reportFile = options.string("report", null);
+            if (reportFile != null) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(reportFile), new Report(
+                        mix.option(), clients, seconds, seed, books.size(), customers.size(), orders, endpoints));
+                log.info("Load test report written to {}", reportFile);
+            }
+            return total.errors() == 0;
+        }
+    }
+
+    // Every client draws its requests from the mix with its own seeded Random, so runs are repeatable
+    private static LatencySamples[] drive(HttpClient http, ExecutorService clientThreads, TrafficMix mix,
+                                          TrafficMix.Target target, int clients, int seconds, long seed) throws Exception {
+        return LoadDriver.drive(http, clientThreads, clients, mix.endpoints().size(), seconds, client -> {
+            Random random = new Random(seed * 31 + client);
+            return new LoadDriver.Client() {
+                @Override
+                public int nextEndpoint() {
+                    return mix.pick(random);
+                }
+
+                @Override
+                public HttpRequest request(int endpoint) {
+                    return mix.endpoints().get(endpoint).factory().create(random, target)
+                            .timeout(Duration.ofSeconds(60)).build();
+                }
+            };
+        });
+    }
+
+    private static EndpointReport report(LatencySamples samples, String endpoint, double seconds) {
+        long[] sorted = samples.sorted();
+        int[] counts = new int[BUCKETS_MS.length + 1];
+        int bucket = 0;
+        for (long latency : sorted) {
+            while (bucket < BUCKETS_MS.length && latency / 1e6 > BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+        List<Bucket> histogram = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            histogram.add(new Bucket(i < BUCKETS_MS.length ? BUCKETS_MS[i] : null, counts[i]));
+        }
+        return new EndpointReport(endpoint, samples.size(), samples.size() / seconds, samples.errors(),
+                LatencySamples.millis(sorted, 0.50), LatencySamples.millis(sorted, 0.90),
+                LatencySamples.millis(sorted, 0.99), LatencySamples.millis(sorted, 1.0), histogram);
+    }
+
+    private static String summary(EndpointReport report) {
+        return String.format("%s: %d requests, %.0f req/s, %d errors, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                report.endpoint(), report.requests(), report.requestsPerSecond(), report.errors(),
+                report.p50Ms(), report.p90Ms(), report.p99Ms(), report.maxMs());
+    }
+
+    private static String histogram(EndpointReport report) {
+        StringBuilder text = new StringBuilder();
+        for (Bucket bucket : report.histogram()) {
+            if (!text.isEmpty()) {
+                text.append(" | ");
+            }
+            text.append(bucket.leMs() == null ? ">" + format(BUCKETS_MS[BUCKETS_MS.length - 1]) : "<=" + format(bucket.leMs()))
+                    .append("ms ").append(bucket.count());
+        }
+        return text.toString();
+    }
+
+    private static String format(double millis) {
+        return millis == Math.rint(millis) ? String.valueOf((long) millis) : String.valueOf(millis);
+    }
+}
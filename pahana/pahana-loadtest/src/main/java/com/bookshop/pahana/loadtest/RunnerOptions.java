@@ -0,0 +1,30 @@
+package com.bookshop.pahana.loadtest;
+
+import org.springframework.boot.ApplicationArguments;
+
+import java.util.List;
+
+// --name=value command-line options of the runners in this module; the first value wins
+final class RunnerOptions {
+
+    private final ApplicationArguments args;
+
+    RunnerOptions(ApplicationArguments args) {
+        this.args = args;
+    }
+
+    String string(String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    int integer(String name, int defaultValue) {
+        String value = string(name, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    long longValue(String name, long defaultValue) {
+        String value = string(name, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+}
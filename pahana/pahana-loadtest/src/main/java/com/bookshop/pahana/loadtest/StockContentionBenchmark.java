@@ -0,0 +1,110 @@
+package com.bookshop.pahana.loadtest;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Sells one hot book to many concurrent buyers through the checkout's conditional decrement, then exits:
+//   java -jar pahana-loadtest.jar --spring.profiles.active=in-memory-mongo --benchmark-stock-contention \
+//       [--threads=64] [--units=20000]
+// Every buyer takes one copy at a time until the book is sold out. Reports sales per second and
+// latency percentiles, and fails (exit code 1) if more or fewer copies were sold than were in stock.
+// Uses a temporary book that is removed afterwards; run it against a test database.
+@Component
+public class StockContentionBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StockContentionBenchmark.class);
+
+    static final String OPTION = "benchmark-stock-contention";
+
+    private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ConfigurableApplicationContext context;
+
+    public StockContentionBenchmark(BookRepository bookRepository, MongoTemplate mongoTemplate,
+                                    ConfigurableApplicationContext context) {
+        this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        RunnerOptions options = new RunnerOptions(args);
+        int threads = options.integer("threads", 64);
+        int units = options.integer("units", 20000);
+        int exitCode = benchmark(threads, units) ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private boolean benchmark(int threads, int units) {
+        Book book = new Book();
+        book.setTitle("Stock contention benchmark");
+        book.setPrice(1.0);
+        book.setStock(units);
+        // Inserted directly: no BookChangedEvent, so caches and indexes never see it
+        book = mongoTemplate.insert(book);
+        String bookId = book.getId();
+        ExecutorService buyers = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<LatencySamples>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(buyers.submit(() -> {
+                    LatencySamples sales = new LatencySamples();
+                    start.await();
+                    while (true) {
+                        long began = System.nanoTime();
+                        boolean taken = bookRepository.takeStock(bookId, 1);
+                        if (!taken) {
+                            return sales;
+                        }
+                        sales.add(System.nanoTime() - began, false);
+                    }
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            LatencySamples all = new LatencySamples();
+            for (Future<LatencySamples> result : results) {
+                all.addAll(result.get());
+            }
+            double seconds = (System.nanoTime() - began) / 1e9;
+            long[] sorted = all.sorted();
+            Integer left = mongoTemplate.findById(bookId, Book.class).getStock();
+            log.info(String.format("Stock contention: %d buyers sold %d of %d copies in %.2f s (%d sales/s); "
+                            + "latency p50 %.2f ms, p99 %.2f ms, max %.2f ms; %s left",
+                    threads, all.size(), units, seconds, Math.round(all.size() / seconds),
+                    LatencySamples.millis(sorted, 0.50), LatencySamples.millis(sorted, 0.99),
+                    LatencySamples.millis(sorted, 1.0), left));
+            boolean exact = all.size() == units && left != null && left == 0;
+            if (!exact) {
+                log.error("Stock contention: sold {} copies of {}, {} left", all.size(), units, left);
+            }
+            return exact;
+        } catch (Exception e) {
+            log.warn("Stock contention benchmark failed: {}", e.getMessage());
+            return false;
+        } finally {
+            buyers.shutdownNow();
+            bookRepository.deleteById(bookId);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.bookshop.pahana.loadtest;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Customers;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// Weighted request mixes modelled on the shop's traffic patterns. Every request goes through the
+// real REST endpoints; the label groups requests by endpoint in the report.
+public enum TrafficMix {
+
+    // Storefront browsing: listings, book pages, search-as-you-type, facets, profile reads
+    BROWSE("browse", List.of(
+            new Endpoint("GET /api/books?limit", 35, TrafficMix::listBooks),
+            new Endpoint("GET /api/books/{id}", 25, TrafficMix::getBook),
+            new Endpoint("GET /api/books/search", 15, TrafficMix::searchBooks),
+            new Endpoint("GET /api/books/suggest", 10, TrafficMix::suggestBooks),
+            new Endpoint("GET /api/books/facets", 10, TrafficMix::facets),
+            new Endpoint("GET /api/customers/{id}", 5, TrafficMix::getCustomer))),
+
+    // A sale: most requests place orders, with the book pages and logins that lead to them
+    CHECKOUT_BURST("checkout-burst", List.of(
+            new Endpoint("POST /api/checkout", 60, TrafficMix::placeOrder),
+            new Endpoint("GET /api/books/{id}", 25, TrafficMix::getBook),
+            new Endpoint("POST /api/customers/login", 15, TrafficMix::login))),
+
+    // Back office: order exports for a month, order pages, full customer and book lists
+    ADMIN_EXPORT("admin-export", List.of(
+            new Endpoint("GET /api/checkout/export", 20, TrafficMix::exportOrders),
+            new Endpoint("GET /api/checkout?limit", 40, TrafficMix::listOrders),
+            new Endpoint("GET /api/customers", 20, TrafficMix::listCustomers),
+            new Endpoint("GET /api/books", 20, TrafficMix::listAllBooks)));
+
+    // Builds one request against the running application from the seeded data
+    @FunctionalInterface
+    interface RequestFactory {
+        HttpRequest.Builder create(Random random, Target target);
+    }
+
+    record Endpoint(String label, int weight, RequestFactory factory) {
+    }
+
+    record Target(String baseUrl, List<Book> books, List<Customers> customers) {
+
+        HttpRequest.Builder get(String pathAndQuery) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).GET();
+        }
+    }
+
+    private final String option;
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+
+    TrafficMix(String option, List<Endpoint> endpoints) {
+        this.option = option;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+    }
+
+    public static TrafficMix fromOption(String value) {
+        for (TrafficMix mix : values()) {
+            if (mix.option.equals(value)) {
+                return mix;
+            }
+        }
+        throw new IllegalArgumentException("Unknown traffic mix: " + value + " (browse, checkout-burst, admin-export)");
+    }
+
+    public String option() {
+        return option;
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    // Index into endpoints(), drawn by weight
+    int pick(Random random) {
+        int draw = random.nextInt(totalWeight);
+        for (int i = 0; i < endpoints.size(); i++) {
+            draw -= endpoints.get(i).weight();
+            if (draw < 0) {
+                return i;
+            }
+        }
+        return endpoints.size() - 1;
+    }
+
+    private static HttpRequest.Builder listBooks(Random random, Target target) {
+        StringBuilder query = new StringBuilder("/api/books?limit=20");
+        if (random.nextBoolean()) {
+            query.append("&category=").append(encode(LoadDataGenerator.pick(random, LoadDataGenerator.CATEGORIES)));
+        }
+        if (random.nextInt(4) == 0) {
+            query.append("&sort=price");
+        }
+        return target.get(query.toString());
+    }
+
+    private static HttpRequest.Builder getBook(Random random, Target target) {
+        return target.get("/api/books/" + LoadDataGenerator.popular(random, target.books()).getId());
+    }
+
+    private static HttpRequest.Builder searchBooks(Random random, Target target) {
+        String q = LoadDataGenerator.pick(random, LoadDataGenerator.WORDS) + " "
+                + LoadDataGenerator.pick(random, LoadDataGenerator.WORDS);
+        return target.get("/api/books/search?q=" + encode(q));
+    }
+
+    private static HttpRequest.Builder suggestBooks(Random random, Target target) {
+        String word = LoadDataGenerator.pick(random, LoadDataGenerator.WORDS);
+        return target.get("/api/books/suggest?prefix=" + encode(word.substring(0, Math.min(3, word.length()))));
+    }
+
+    private static HttpRequest.Builder facets(Random random, Target target) {
+        return target.get(random.nextBoolean()
+                ? "/api/books/facets"
+                : "/api/books/facets?category=" + encode(LoadDataGenerator.pick(random, LoadDataGenerator.CATEGORIES)));
+    }
+
+    private static HttpRequest.Builder getCustomer(Random random, Target target) {
+        return target.get("/api/customers/" + target.customers().get(random.nextInt(target.customers().size())).getId());
+    }
+
+    // 1-4 popular books; prices are left to the server, which re-prices every order from the catalog
+    private static HttpRequest.Builder placeOrder(Random random, Target target) {
+        Customers customer = target.customers().get(random.nextInt(target.customers().size()));
+        int lines = 1 + random.nextInt(4);
+        StringBuilder body = new StringBuilder("{\"cartItems\":[");
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"bookId\":\"").append(LoadDataGenerator.popular(random, target.books()).getId())
+                    .append("\",\"quantity\":").append(1 + random.nextInt(2)).append('}');
+        }
+        body.append("],\"name\":\"").append(customer.getName())
+                .append("\",\"email\":\"").append(customer.getEmail())
+                .append("\",\"phone\":\"").append(customer.getContactNumber())
+                .append("\",\"address\":\"1, Galle Road, Colombo\",\"shippingMethod\":\"standard\"")
+                .append(",\"paymentMethod\":\"cash\"}");
+        return HttpRequest.newBuilder(URI.create(target.baseUrl() + "/api/checkout"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private static HttpRequest.Builder login(Random random, Target target) {
+        Customers customer = target.customers().get(random.nextInt(target.customers().size()));
+        return HttpRequest.newBuilder(URI.create(target.baseUrl() + "/api/customers/login?email="
+                        + encode(customer.getEmail()) + "&password=" + encode(customer.getPassword())))
+                .POST(HttpRequest.BodyPublishers.noBody());
+    }
+
+    // A calendar month of the generated order history
+    private static HttpRequest.Builder exportOrders(Random random, Target target) {
+        LocalDate from = LocalDate.of(2025, 1 + random.nextInt(12), 1);
+        return target.get("/api/checkout/export?format=" + (random.nextBoolean() ? "ndjson" : "csv")
+                + "&from=" + from + "&to=" + from.plusMonths(1).minusDays(1));
+    }
+
+    private static HttpRequest.Builder listOrders(Random random, Target target) {
+        return target.get("/api/checkout?limit=100");
+    }
+
+    private static HttpRequest.Builder listCustomers(Random random, Target target) {
+        return target.get("/api/customers");
+    }
+
+    private static HttpRequest.Builder listAllBooks(Random random, Target target) {
+        return target.get("/api/books");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
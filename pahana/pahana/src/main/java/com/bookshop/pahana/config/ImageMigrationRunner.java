@@ -0,0 +1,121 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.service.BookCache;
+import com.bookshop.pahana.service.ImageDerivativeService;
+import com.bookshop.pahana.service.ImageStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// One-off migration of flat, timestamp-named uploads into the content-addressed image store:
+//   java -jar pahana.jar --migrate-images
+// Copies each referenced file into the store, rewrites Book.image, removes the old file once no
+// book points at it, then exits. Safe to run again; already migrated books are skipped.
+@Component
+public class ImageMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMigrationRunner.class);
+
+    static final String OPTION = "migrate-images";
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageStore imageStore;
+    private final ImageDerivativeService imageDerivativeService;
+    private final BookCache bookCache;
+    private final ConfigurableApplicationContext context;
+
+    public ImageMigrationRunner(MongoTemplate mongoTemplate, ImageStore imageStore,
+                                ImageDerivativeService imageDerivativeService, BookCache bookCache,
+                                ConfigurableApplicationContext context) {
+        this.mongoTemplate = mongoTemplate;
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.bookCache = bookCache;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        int exitCode = migrate() ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private boolean migrate() {
+        int migrated = 0;
+        int missing = 0;
+        int failed = 0;
+        Set<String> oldNames = new LinkedHashSet<>();
+
+        Query legacy = Query.query(Criteria.where("image").ne(null).not().regex(ImageStore.CONTENT_ADDRESSED_NAME));
+        legacy.fields().include("image");
+        try (Stream<Book> books = mongoTemplate.stream(legacy, Book.class)) {
+            for (Book book : (Iterable<Book>) books::iterator) {
+                String oldName = book.getImage();
+                Path oldFile = imageStore.resolve(oldName);
+                if (!Files.isRegularFile(oldFile)) {
+                    log.warn("Book {} refers to missing image {}", book.getId(), oldName);
+                    missing++;
+                    continue;
+                }
+                try {
+                    String newName;
+                    try (InputStream content = Files.newInputStream(oldFile)) {
+                        newName = imageStore.put(content, oldName);
+                    }
+                    // Only rewrite if the book still points at the old file (it may have been edited meanwhile)
+                    long updated = mongoTemplate.updateFirst(
+                            Query.query(Criteria.where("_id").is(book.getId()).and("image").is(oldName)),
+                            Update.update("image", newName), Book.class).getModifiedCount();
+                    if (updated == 0) {
+                        imageStore.release(newName);
+                        continue;
+                    }
+                    // Variants are generated on first request; the process exits right after this
+                    oldNames.add(oldName);
+                    migrated++;
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not migrate image {} of book {}: {}", oldName, book.getId(), e.getMessage());
+                    failed++;
+                }
+            }
+        }
+
+        int removed = 0;
+        for (String oldName : oldNames) {
+            if (mongoTemplate.exists(Query.query(Criteria.where("image").is(oldName)), Book.class)) {
+                continue;
+            }
+            try {
+                imageStore.release(oldName);
+                imageDerivativeService.deleteVariants(oldName);
+                removed++;
+            } catch (IOException e) {
+                log.warn("Could not remove migrated image {}: {}", oldName, e.getMessage());
+            }
+        }
+        bookCache.invalidateAll();
+        log.info("Image migration: {} books migrated, {} old files removed, {} missing, {} failed",
+                migrated, removed, missing, failed);
+        return failed == 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.bookshop.pahana.config;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Metrics on top of what Spring Boot records by itself (http.server.requests per URI template,
+// spring.data.repository.invocations per repository method, mongodb.driver.commands per command):
+// the controller method on every request, and how many documents repository methods and MongoDB
+// commands return or change. Histograms and buckets are configured in application.properties;
+// everything is scraped from /actuator/prometheus.
+@Configuration
+public class MetricsConfig {
+
+    // Adds handler=<Controller>.<method> to http.server.requests; "none" for requests no controller handled
+    @Bean
+    public ServerRequestObservationConvention handlerTaggingObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context).and("handler", handler(context.getCarrier()));
+            }
+        };
+    }
+
+    // Blocking and reactive clients both take the listener
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoDocumentCountCustomizer(MeterRegistry meterRegistry) {
+        MongoCommandDocumentCounter counter = new MongoCommandDocumentCounter(meterRegistry);
+        return settings -> settings.addCommandListener(counter);
+    }
+
+    // Static and lazy, like Boot's own repository metrics post-processor, so the registry is only
+    // created once the first repository is
+    @Bean
+    public static BeanPostProcessor repositoryDocumentCountPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(new RepositoryDocumentCounter(
+                                    meterRegistry.getObject(), information.getRepositoryInterface(),
+                                    information.getDomainType()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static String handler(HttpServletRequest request) {
+        if (request != null
+                && request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return "none";
+    }
+}
@@ -0,0 +1,102 @@
+package com.bookshop.pahana.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// mongodb.driver.documents{command, collection}: documents each MongoDB command returned (find,
+// aggregate, getMore batches, findAndModify) or wrote (insert, update, delete: the server's "n").
+// Timing per command comes from Boot's mongodb.driver.commands; this adds the volume behind it.
+class MongoCommandDocumentCounter implements CommandListener {
+
+    private static final Set<String> COUNTED = Set.of(
+            "find", "aggregate", "getMore", "findAndModify", "insert", "update", "delete");
+
+    private record Key(String command, String collection) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    // Collection of each counted command in flight, by request id; the reply does not name it
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+    private final Map<Key, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    MongoCommandDocumentCounter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String command = event.getCommandName();
+        if (!COUNTED.contains(command)) {
+            return;
+        }
+        // getMore names the collection in a field of its own; the others as the command's value
+        BsonValue collection = event.getCommand().get("getMore".equals(command) ? "collection" : command);
+        collections.put(event.getRequestId(), collection != null && collection.isString()
+                ? collection.asString().getValue()
+                : "unknown");
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        if (collection == null) {
+            return;
+        }
+        int documents = documents(event.getCommandName(), event.getResponse());
+        if (documents >= 0) {
+            summaries.computeIfAbsent(new Key(event.getCommandName(), collection), this::summary).record(documents);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        collections.remove(event.getRequestId());
+    }
+
+    private static int documents(String command, BsonDocument response) {
+        switch (command) {
+            case "find", "aggregate" -> {
+                return batchSize(response, "firstBatch");
+            }
+            case "getMore" -> {
+                return batchSize(response, "nextBatch");
+            }
+            case "findAndModify" -> {
+                BsonValue value = response.get("value");
+                return value == null || value.isNull() ? 0 : 1;
+            }
+            default -> {
+                BsonValue n = response.get("n");
+                return n != null && n.isNumber() ? n.asNumber().intValue() : -1;
+            }
+        }
+    }
+
+    private static int batchSize(BsonDocument response, String batch) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor == null || !cursor.isDocument()) {
+            return -1;
+        }
+        BsonValue documents = cursor.asDocument().get(batch);
+        return documents instanceof BsonArray array ? array.size() : -1;
+    }
+
+    private DistributionSummary summary(Key key) {
+        return DistributionSummary.builder("mongodb.driver.documents")
+                .description("Documents returned or written by a MongoDB command")
+                .tag("command", key.command())
+                .tag("collection", key.collection())
+                .register(meterRegistry);
+    }
+}
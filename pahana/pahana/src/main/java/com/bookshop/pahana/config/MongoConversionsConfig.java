@@ -0,0 +1,40 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.entity.OrderLine;
+import org.bson.Document;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+@Configuration
+public class MongoConversionsConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new OrderLineReader()));
+    }
+
+    // Reads both order line shapes: the compact one, and the full Book documents older orders
+    // embedded (_id and price, no quantity) until they are rewritten with --migrate-orders
+    @ReadingConverter
+    static class OrderLineReader implements Converter<Document, OrderLine> {
+
+        @Override
+        public OrderLine convert(Document source) {
+            Object bookId = source.containsKey("bookId") ? source.get("bookId") : source.get("_id");
+            Object unitPrice = source.containsKey("unitPrice") ? source.get("unitPrice") : source.get("price");
+            Object quantity = source.get("quantity");
+            return new OrderLine(
+                    bookId == null ? null : bookId.toString(),
+                    source.getString("title"),
+                    source.getString("author"),
+                    source.getString("category"),
+                    unitPrice instanceof Number number ? number.doubleValue() : null,
+                    quantity instanceof Number number ? number.intValue() : null);
+        }
+    }
+}
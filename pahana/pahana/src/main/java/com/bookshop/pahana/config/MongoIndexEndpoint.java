@@ -0,0 +1,25 @@
+package com.bookshop.pahana.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// /actuator/indexes: every managed index with its status and how often queries have used it.
+// An index with few accesses next to a hot query points at a query the indexes do not cover.
+@Component
+@Endpoint(id = "indexes")
+public class MongoIndexEndpoint {
+
+    private final MongoIndexManager indexManager;
+
+    public MongoIndexEndpoint(MongoIndexManager indexManager) {
+        this.indexManager = indexManager;
+    }
+
+    @ReadOperation
+    public List<MongoIndexManager.IndexState> indexes() {
+        return indexManager.report();
+    }
+}
@@ -0,0 +1,267 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.entity.Admin;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.entity.IdempotencyRecord;
+import com.bookshop.pahana.entity.SalesRollup;
+import com.bookshop.pahana.entity.StockReservation;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Owns the MongoDB indexes. The required ones are declared with @Indexed/@CompoundIndex on the
+// documents below; at startup (off the startup thread, so the application still comes up without
+// MongoDB) missing ones are created and existing ones are compared with their declaration.
+// An index whose keys or options differ, or that cannot be built (e.g. duplicate emails under a
+// unique index), is drift: logged, or with mongo.indexes.on-drift=fail the application stops.
+// report() adds $indexStats usage counts and is exposed as /actuator/indexes.
+@Component
+public class MongoIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    private static final List<Class<?>> MANAGED_DOCUMENTS =
+            List.of(Admin.class, Book.class, Checkout.class, Customers.class, SalesRollup.class,
+                    StockReservation.class, IdempotencyRecord.class);
+    private static final String ID_INDEX = "_id_";
+    // Indexes an earlier release created under a name a different declaration now uses; dropped
+    // once everything declared on the collection has been built, so nothing is left unindexed
+    private static final Map<Class<?>, List<String>> SUPERSEDED = Map.of(Customers.class, List.of("email"));
+    // Options that change what an index does; anything else (v, ns, background) is ignored
+    private static final List<String> COMPARED_OPTIONS = List.of("unique", "sparse", "partialFilterExpression");
+
+    public enum Status { OK, CREATED, MISSING, DRIFT, UNDECLARED, DROPPED }
+
+    public record IndexState(String collection, String name, Document keys, Status status, String detail,
+                             Long accesses, Instant accessesSince) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+    private final TaskExecutor taskExecutor;
+    private final ConfigurableApplicationContext context;
+    private final boolean failOnDrift;
+    private final boolean replaceConflicting;
+
+    public MongoIndexManager(MongoTemplate mongoTemplate, MongoMappingContext mappingContext,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor,
+                             ConfigurableApplicationContext context,
+                             @Value("${mongo.indexes.on-drift:warn}") String onDrift,
+                             @Value("${mongo.indexes.replace-conflicting:false}") boolean replaceConflicting) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+        this.taskExecutor = taskExecutor;
+        this.context = context;
+        this.failOnDrift = "fail".equalsIgnoreCase(onDrift);
+        this.replaceConflicting = replaceConflicting;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void provisionOnStartup() {
+        taskExecutor.execute(() -> {
+            List<IndexState> states;
+            try {
+                states = provision();
+            } catch (RuntimeException e) {
+                log.warn("Could not provision MongoDB indexes: {}", e.getMessage());
+                return;
+            }
+            int created = 0;
+            int drift = 0;
+            for (IndexState state : states) {
+                switch (state.status()) {
+                    case CREATED -> created++;
+                    case DRIFT -> {
+                        drift++;
+                        log.warn("Index drift on {}.{}: {}", state.collection(), state.name(), state.detail());
+                    }
+                    case DROPPED -> log.info("Dropped superseded index {}.{}", state.collection(), state.name());
+                    case UNDECLARED -> log.info("Index {}.{} {} is not declared by the application",
+                            state.collection(), state.name(), state.keys().toJson());
+                    default -> {
+                    }
+                }
+            }
+            log.info("MongoDB indexes: {} declared, {} created, {} drifted", states.stream()
+                    .filter(state -> state.status() != Status.UNDECLARED).count(), created, drift);
+            if (drift > 0 && failOnDrift) {
+                log.error("Stopping: {} MongoDB indexes do not match their declaration (mongo.indexes.on-drift=fail)", drift);
+                // Not on this executor thread: closing the context waits for the executor's running tasks
+                new Thread(() -> System.exit(SpringApplication.exit(context, () -> 1)), "index-drift-exit").start();
+            }
+        });
+    }
+
+    // Creates what is missing and reports every declared and undeclared index
+    public List<IndexState> provision() {
+        return inspect(true);
+    }
+
+    // Read-only view with usage counts since each index was last (re)built or the server restarted
+    public List<IndexState> report() {
+        List<IndexState> states = inspect(false);
+        Map<String, Map<String, Document>> usage = new HashMap<>();
+        List<IndexState> withUsage = new ArrayList<>(states.size());
+        for (IndexState state : states) {
+            Document accesses = usage.computeIfAbsent(state.collection(), this::indexStats).get(state.name());
+            Long ops = null;
+            Instant since = null;
+            if (accesses != null) {
+                ops = accesses.get("ops") instanceof Number number ? number.longValue() : null;
+                since = accesses.get("since") instanceof Date date ? date.toInstant() : null;
+            }
+            withUsage.add(new IndexState(state.collection(), state.name(), state.keys(), state.status(),
+                    state.detail(), ops, since));
+        }
+        return withUsage;
+    }
+
+    private List<IndexState> inspect(boolean create) {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        List<IndexState> states = new ArrayList<>();
+        for (Class<?> type : MANAGED_DOCUMENTS) {
+            String collection = mongoTemplate.getCollectionName(type);
+            Map<String, Document> existing = existingIndexes(collection);
+            boolean built = true;
+            for (IndexDefinition declared : resolver.resolveIndexFor(type)) {
+                IndexState state = reconcile(type, collection, declared, existing, create);
+                built &= state.status() == Status.OK || state.status() == Status.CREATED;
+                states.add(state);
+            }
+            List<String> superseded = create && built ? SUPERSEDED.getOrDefault(type, List.of()) : List.of();
+            existing.forEach((name, index) -> {
+                if (!ID_INDEX.equals(name)) {
+                    states.add(superseded.contains(name)
+                            ? drop(type, collection, name, index.get("key", Document.class))
+                            : new IndexState(collection, name, index.get("key", Document.class),
+                                    Status.UNDECLARED, null, null, null));
+                }
+            });
+        }
+        return states;
+    }
+
+    // Removes the matched index from "existing" so that what is left over is undeclared
+    private IndexState reconcile(Class<?> type, String collection, IndexDefinition declared,
+                                 Map<String, Document> existing, boolean create) {
+        Document keys = declared.getIndexKeys();
+        String name = declared.getIndexOptions().getString("name");
+        if (name == null) {
+            // MongoDB's default name, e.g. email_1
+            name = String.join("_", keyList(keys)).replace(':', '_');
+        }
+        Document current = existing.remove(name);
+        String difference = current == null ? null : difference(declared, current);
+        if (current != null && difference == null) {
+            return new IndexState(collection, name, keys, Status.OK, null, null, null);
+        }
+        if (!create) {
+            return new IndexState(collection, name, keys, current == null ? Status.MISSING : Status.DRIFT,
+                    difference, null, null);
+        }
+        try {
+            if (current != null) {
+                if (!replaceConflicting) {
+                    return new IndexState(collection, name, keys, Status.DRIFT,
+                            difference + " (set mongo.indexes.replace-conflicting=true to rebuild it)", null, null);
+                }
+                mongoTemplate.indexOps(type).dropIndex(name);
+            }
+            mongoTemplate.indexOps(type).createIndex(declared);
+            return new IndexState(collection, name, keys, Status.CREATED, difference, null, null);
+        } catch (RuntimeException e) {
+            return new IndexState(collection, name, keys, Status.DRIFT, "could not be built: " + e.getMessage(), null, null);
+        }
+    }
+
+    private IndexState drop(Class<?> type, String collection, String name, Document keys) {
+        try {
+            mongoTemplate.indexOps(type).dropIndex(name);
+            return new IndexState(collection, name, keys, Status.DROPPED, "superseded", null, null);
+        } catch (RuntimeException e) {
+            return new IndexState(collection, name, keys, Status.UNDECLARED,
+                    "superseded but could not be dropped: " + e.getMessage(), null, null);
+        }
+    }
+
+    private Map<String, Document> existingIndexes(String collection) {
+        Map<String, Document> indexes = new LinkedHashMap<>();
+        if (!mongoTemplate.collectionExists(collection)) {
+            return indexes;
+        }
+        for (Document index : mongoTemplate.getCollection(collection).listIndexes()) {
+            indexes.put(index.getString("name"), index);
+        }
+        return indexes;
+    }
+
+    // Null when the live index does what the declaration asks for
+    private static String difference(IndexDefinition declared, Document current) {
+        List<String> wantedKeys = keyList(declared.getIndexKeys());
+        List<String> actualKeys = keyList(current.get("key", Document.class));
+        if (!wantedKeys.equals(actualKeys)) {
+            return "keys are " + actualKeys + ", declared " + wantedKeys;
+        }
+        Document options = declared.getIndexOptions();
+        for (String option : COMPARED_OPTIONS) {
+            Object wanted = normalise(options.get(option));
+            Object actual = normalise(current.get(option));
+            if (!Objects.equals(wanted, actual)) {
+                return option + " is " + actual + ", declared " + wanted;
+            }
+        }
+        return null;
+    }
+
+    // Key order matters for a compound index, and 1 may come back as 1.0
+    private static List<String> keyList(Document keys) {
+        List<String> list = new ArrayList<>();
+        if (keys != null) {
+            keys.forEach((field, direction) -> list.add(field + ":"
+                    + (direction instanceof Number number ? Integer.toString(number.intValue()) : direction)));
+        }
+        return list;
+    }
+
+    // An absent flag means false
+    private static Object normalise(Object option) {
+        return Boolean.FALSE.equals(option) ? null : option;
+    }
+
+    private Map<String, Document> indexStats(String collection) {
+        Map<String, Document> stats = new HashMap<>();
+        try {
+            for (Document row : mongoTemplate.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                stats.put(row.getString("name"), row.get("accesses", Document.class));
+            }
+        } catch (RuntimeException e) {
+            log.debug("$indexStats not available for {}: {}", collection, e.getMessage());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,106 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.entity.Checkout;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+// One-off rewrite of orders that embed whole Book documents into compact order lines:
+//   java -jar pahana.jar --migrate-orders
+// Streams the affected orders (they are read through the OrderLine converter), writes the compact
+// lines back in unordered bulk batches and fills in createdAt from the ObjectId, then exits.
+// Safe to run again; migrated orders no longer match.
+@Component
+public class OrderMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderMigrationRunner.class);
+
+    static final String OPTION = "migrate-orders";
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ConfigurableApplicationContext context;
+
+    public OrderMigrationRunner(MongoTemplate mongoTemplate, ConfigurableApplicationContext context) {
+        this.mongoTemplate = mongoTemplate;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        int exitCode = migrate() ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private boolean migrate() {
+        Double sizeBefore = averageOrderSize();
+        Query legacy = Query.query(new Criteria().orOperator(
+                Criteria.where("cartItems").elemMatch(Criteria.where("bookId").exists(false)),
+                Criteria.where("createdAt").exists(false)));
+        legacy.cursorBatchSize(BATCH_SIZE);
+
+        long migrated = 0;
+        boolean ok = true;
+        BulkOperations batch = null;
+        int batchCount = 0;
+        try (Stream<Checkout> orders = mongoTemplate.stream(legacy, Checkout.class)) {
+            for (Checkout order : (Iterable<Checkout>) orders::iterator) {
+                if (batch == null) {
+                    batch = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Checkout.class);
+                }
+                Update update = new Update().set("cartItems", order.getCartItems());
+                if (order.getCreatedAt() == null) {
+                    update.set("createdAt", createdAt(order.getId()));
+                }
+                batch.updateOne(Query.query(Criteria.where("_id").is(order.getId())), update);
+                if (++batchCount == BATCH_SIZE) {
+                    migrated += batch.execute().getModifiedCount();
+                    batch = null;
+                    batchCount = 0;
+                }
+            }
+            if (batch != null) {
+                migrated += batch.execute().getModifiedCount();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order migration stopped after {} orders: {}", migrated, e.getMessage());
+            ok = false;
+        }
+        log.info("Order migration: {} orders rewritten; average order size {} -> {} bytes",
+                migrated, sizeBefore, averageOrderSize());
+        return ok;
+    }
+
+    // Orders saved before createdAt existed get the time their ObjectId was generated
+    private static Instant createdAt(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id).getDate().toInstant() : Instant.now();
+    }
+
+    private Double averageOrderSize() {
+        try {
+            Document stats = mongoTemplate.executeCommand(
+                    new Document("collStats", mongoTemplate.getCollectionName(Checkout.class)));
+            Object size = stats.get("avgObjSize");
+            return size instanceof Number number ? number.doubleValue() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
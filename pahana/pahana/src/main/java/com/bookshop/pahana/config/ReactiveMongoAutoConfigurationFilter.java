@@ -0,0 +1,37 @@
+package com.bookshop.pahana.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+// Leaves the reactive MongoDB client, template and repositories out of auto-configuration unless
+// catalog.reactive.enabled=true, so by default the application opens a single (blocking) connection
+// pool. Registered in META-INF/spring.factories; the reactive catalog beans carry the same condition.
+public class ReactiveMongoAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final Set<String> REACTIVE_MONGO = Set.of(
+            "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration");
+
+    private boolean enabled;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        enabled = environment.getProperty("catalog.reactive.enabled", Boolean.class, false);
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            // Entries already filtered out by an earlier filter are null
+            String candidate = autoConfigurationClasses[i];
+            matches[i] = enabled || candidate == null || !REACTIVE_MONGO.contains(candidate);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,65 @@
+package com.bookshop.pahana.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// spring.data.repository.documents{repository, method}: entities returned per repository call, next
+// to Boot's spring.data.repository.invocations timer with the same tags. Only results whose size is
+// known without consuming them are counted; streams, Flux/Mono, counts and flags are not.
+class RepositoryDocumentCounter implements MethodInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final String repository;
+    private final Class<?> domainType;
+    private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    RepositoryDocumentCounter(MeterRegistry meterRegistry, Class<?> repositoryInterface, Class<?> domainType) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repositoryInterface.getSimpleName();
+        this.domainType = domainType;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        int documents = documents(result);
+        if (documents >= 0) {
+            summaries.computeIfAbsent(invocation.getMethod(), this::summary).record(documents);
+        }
+        return result;
+    }
+
+    // -1 when the result is not a set of documents or cannot be sized without reading it
+    private int documents(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        return domainType.isInstance(result) ? 1 : -1;
+    }
+
+    private DistributionSummary summary(Method method) {
+        return DistributionSummary.builder("spring.data.repository.documents")
+                .description("Documents returned by a repository method call")
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .register(meterRegistry);
+    }
+}
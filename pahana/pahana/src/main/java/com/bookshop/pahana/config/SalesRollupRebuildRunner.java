@@ -0,0 +1,48 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.service.SalesAnalytics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+// Backfills or repairs the sales rollups from the checkouts collection, then exits:
+//   java -jar pahana.jar --rebuild-sales-rollups
+// Run it once after upgrading, and whenever analytics.rollup.failures has counted missed updates.
+@Component
+public class SalesRollupRebuildRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupRebuildRunner.class);
+
+    static final String OPTION = "rebuild-sales-rollups";
+
+    private final SalesAnalytics salesAnalytics;
+    private final ConfigurableApplicationContext context;
+
+    public SalesRollupRebuildRunner(SalesAnalytics salesAnalytics, ConfigurableApplicationContext context) {
+        this.salesAnalytics = salesAnalytics;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        int exitCode = rebuild() ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private boolean rebuild() {
+        try {
+            salesAnalytics.rebuild();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Sales rollup rebuild failed: {}", e.getMessage());
+            return false;
+        }
+    }
+}
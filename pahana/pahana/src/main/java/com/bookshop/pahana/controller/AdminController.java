@@ -3,9 +3,11 @@ package com.bookshop.pahana.controller;
 import com.bookshop.pahana.entity.Admin;
 import com.bookshop.pahana.service.AdminService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Optional;
@@ -28,8 +30,13 @@ public class AdminController {
         admin.setEmail(email);
         admin.setPassword(password);
 
-        Admin savedAdmin = adminService.addAdmin(admin);
-        return new ResponseEntity<>(savedAdmin, HttpStatus.CREATED);
+        try {
+            Admin savedAdmin = adminService.addAdmin(admin);
+            return new ResponseEntity<>(savedAdmin, HttpStatus.CREATED);
+        } catch (DuplicateKeyException e) {
+            // Emails are unique (see the index on Admin.email)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An admin with this email already exists", e);
+        }
     }
 
     // POST: Login admin with email and password
@@ -0,0 +1,22 @@
+package com.bookshop.pahana.controller;
+
+import com.bookshop.pahana.dto.AdminSummary;
+import com.bookshop.pahana.service.AdminSummaryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "http://localhost:5173")
+public class AdminSummaryController {
+
+    @Autowired
+    private AdminSummaryService adminSummaryService;
+
+    // Counts, revenue, latest orders and customers for the dashboard in one call
+    @GetMapping("/summary")
+    public ResponseEntity<AdminSummary> getSummary() {
+        return ResponseEntity.ok(adminSummaryService.getSummary());
+    }
+}
@@ -0,0 +1,71 @@
+package com.bookshop.pahana.controller;
+
+import com.bookshop.pahana.dto.SalesFigures;
+import com.bookshop.pahana.service.SalesAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Dashboard figures read from the sales rollups; none of these read the orders themselves
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:5173")
+public class AnalyticsController {
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    @GetMapping("/totals")
+    public ResponseEntity<SalesFigures> getTotals() {
+        return ResponseEntity.ok(salesAnalytics.getTotals());
+    }
+
+    // Revenue and units per day; defaults to the last 30 days
+    @GetMapping("/daily")
+    public ResponseEntity<List<SalesFigures>> getDaily(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : salesAnalytics.today();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            return ResponseEntity.ok(salesAnalytics.getDaily(start, end));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/books")
+    public ResponseEntity<List<SalesFigures>> getTopBooks(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return top(SalesAnalytics.BOOK, limit);
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<List<SalesFigures>> getCategories(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return top(SalesAnalytics.CATEGORY, limit);
+    }
+
+    @GetMapping("/shipping-methods")
+    public ResponseEntity<List<SalesFigures>> getShippingMethods() {
+        return top(SalesAnalytics.SHIPPING, MAX_LIMIT);
+    }
+
+    @GetMapping("/payment-methods")
+    public ResponseEntity<List<SalesFigures>> getPaymentMethods() {
+        return top(SalesAnalytics.PAYMENT, MAX_LIMIT);
+    }
+
+    private ResponseEntity<List<SalesFigures>> top(String dimension, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        return ResponseEntity.ok(salesAnalytics.getTop(dimension, limit));
+    }
+}
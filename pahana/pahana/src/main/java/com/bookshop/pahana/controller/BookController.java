@@ -1,7 +1,16 @@
 package com.bookshop.pahana.controller;
 
+import com.bookshop.pahana.dto.BookFacetCounts;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookPage;
+import com.bookshop.pahana.dto.BookSearchResult;
+import com.bookshop.pahana.dto.BookSort;
+import com.bookshop.pahana.dto.BookSuggestion;
 import com.bookshop.pahana.entity.Book;
 import com.bookshop.pahana.service.BookService;
+import com.bookshop.pahana.service.ImageVariant;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -18,6 +27,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/books")
@@ -25,10 +36,12 @@ import java.util.List;
 public class BookController {
 
     private final BookService bookService;
+    private final ImageResponseWriter imageResponseWriter;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, ImageResponseWriter imageResponseWriter) {
         this.bookService = bookService;
+        this.imageResponseWriter = imageResponseWriter;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -40,8 +53,12 @@ public class BookController {
             @RequestParam(value = "image", required = false) MultipartFile imageFile,
             @RequestParam("language") String language,
             @RequestParam("category") String category,
-            @RequestParam("publisher") String publisher) {
+            @RequestParam("publisher") String publisher,
+            @RequestParam(value = "stock", required = false) Integer stock) {
 
+        if (stock != null && stock < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stock must be >= 0");
+        }
         try {
             Book book = new Book();
             book.setAuthor(author);
@@ -51,6 +68,8 @@ public class BookController {
             book.setLanguage(language);
             book.setCategory(category);
             book.setPublisher(publisher);
+            // Without a stock count the book is not tracked and never sells out
+            book.setStock(stock);
 
             Book savedBook = bookService.addBook(book, imageFile);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
@@ -62,15 +81,35 @@ public class BookController {
             );
         }
     }
-    // Endpoint to serve images
+    // Endpoint to serve images; size=thumb|card|detail serves a resized variant.
+    // Supports conditional requests (ETag/Last-Modified) and single byte ranges.
     @GetMapping("/uploads/{imageName}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String imageName) {
+    public void getImage(@PathVariable String imageName,
+                         @RequestParam(value = "size", required = false) String size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        ImageVariant variant;
+        try {
+            variant = size == null ? null : ImageVariant.from(size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        Path file;
         try {
-            FileSystemResource resource = bookService.getImage(imageName);
-            return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(resource);  // Change to MediaType based on your image format
+            Optional<FileSystemResource> resized = variant == null
+                    ? Optional.empty()
+                    : bookService.getImageVariant(imageName, variant);
+            file = resized.orElseGet(() -> bookService.getImage(imageName)).getFile().toPath();
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found", e);
         }
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found");
+        }
+        imageResponseWriter.write(file, ImageResponseWriter.contentType(file),
+                ImageResponseWriter.isImmutableName(imageName), request, response);
     }
 
 
@@ -81,6 +120,77 @@ public class BookController {
         return ResponseEntity.ok(books);
     }
 
+    // Paginated listing, selected whenever "limit" is present; without it the full list above is returned
+    @GetMapping(params = "limit")
+    public ResponseEntity<BookPage> getBooksPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "language", required = false) String language,
+            @RequestParam(value = "publisher", required = false) String publisher,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "sort", defaultValue = "title") String sort,
+            @RequestParam(value = "order", defaultValue = "asc") String order) {
+
+        try {
+            BookFilter filter = new BookFilter(category, language, publisher, minPrice, maxPrice);
+            boolean descending = parseDescending(order);
+            BookPage page = bookService.getBooksPage(filter, BookSort.from(sort), descending, after, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<BookSearchResult> searchBooks(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(bookService.searchBooks(query, page, size));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestion>> suggestBooks(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "8") int limit) {
+        try {
+            return ResponseEntity.ok(bookService.suggestBooks(prefix, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetCounts> getFacetCounts(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "language", required = false) String language,
+            @RequestParam(value = "publisher", required = false) String publisher,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice) {
+        try {
+            BookFilter filter = new BookFilter(category, language, publisher, minPrice, maxPrice);
+            return ResponseEntity.ok(bookService.getFacetCounts(filter));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static boolean parseDescending(String order) {
+        if ("asc".equalsIgnoreCase(order)) {
+            return false;
+        }
+        if ("desc".equalsIgnoreCase(order)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported order: " + order);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Book> getBookById(@PathVariable("id") String id) {
         return bookService.getBookById(id)
@@ -141,7 +251,8 @@ public class BookController {
             @RequestParam(value = "image", required = false) MultipartFile imageFile,
             @RequestParam("language") String language,
             @RequestParam("category") String category,
-            @RequestParam("publisher") String publisher) {
+            @RequestParam("publisher") String publisher,
+            @RequestParam(value = "version", required = false) Long version) {
 
         try {
             Book updatedBook = new Book();
@@ -153,7 +264,7 @@ public class BookController {
             updatedBook.setCategory(category);
             updatedBook.setPublisher(publisher);
 
-            Book savedBook = bookService.updateBook(id, updatedBook, imageFile);
+            Book savedBook = bookService.updateBook(id, updatedBook, imageFile, version);
             if (savedBook == null) {
                 throw new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
@@ -170,6 +281,16 @@ public class BookController {
         }
     }
 
+    // Partial update: only the fields in the body are written; include "version" to get 409
+    // instead of overwriting someone else's change
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<Book> patchBook(@PathVariable("id") String id, @RequestBody Map<String, Object> changes) {
+        try {
+            return ResponseEntity.ok(bookService.patchBook(id, changes));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBook(@PathVariable("id") String id) {
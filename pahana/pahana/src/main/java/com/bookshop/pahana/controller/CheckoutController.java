@@ -1,34 +1,122 @@
 package com.bookshop.pahana.controller;
 
+import com.bookshop.pahana.dto.OrderPage;
+import com.bookshop.pahana.dto.PlacedOrder;
+import com.bookshop.pahana.dto.SessionPrincipal;
 import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.service.CheckoutIdempotency;
 import com.bookshop.pahana.service.CheckoutService;
+import com.bookshop.pahana.service.CustomerSessionService;
+import com.bookshop.pahana.service.OrderExporter;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
+import java.io.IOException;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/checkout")
 @CrossOrigin(origins = "http://localhost:5173")  // Allow requests from your frontend
 public class CheckoutController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private CheckoutService checkoutService;
 
-    // Handle checkout and save data to the database
+    @Autowired
+    private CheckoutIdempotency checkoutIdempotency;
+
+    @Autowired
+    private OrderExporter orderExporter;
+
+    @Autowired
+    private CustomerSessionService customerSessionService;
+
+    // Handle checkout and save data to the database. With an Idempotency-Key header, a retry of the
+    // same request gets the first response back (marked Idempotent-Replayed) instead of a second order.
+    // An order that uses a stock reservation must come from the customer who made it (Bearer token).
     @PostMapping
-    public ResponseEntity<Checkout> placeOrder(@RequestBody Checkout checkout) {
-        Checkout savedCheckout = checkoutService.saveCheckout(checkout);
-        return new ResponseEntity<>(savedCheckout, HttpStatus.CREATED);
+    public ResponseEntity<Checkout> placeOrder(
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody Checkout checkout) {
+        String customerId = checkout.getReservationId() == null || checkout.getReservationId().isBlank()
+                ? null
+                : customerSessionService.authenticate(authorization).map(SessionPrincipal::customerId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not logged in"));
+        try {
+            PlacedOrder placed = idempotencyKey == null
+                    ? place(checkout, customerId)
+                    : checkoutIdempotency.placeOnce(idempotencyKey, checkout, () -> place(checkout, customerId));
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(placed.status());
+            if (placed.replayed()) {
+                response.header("Idempotent-Replayed", "true");
+            }
+            return response.body(placed.order());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
-    // Fetch all checkouts from the database
+    private PlacedOrder place(Checkout checkout, String customerId) {
+        Checkout savedCheckout = checkoutService.saveCheckout(checkout, customerId);
+        // 202 when the order has been journaled but not yet written to the database
+        HttpStatus status = checkoutService.isWriteBehind() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        return new PlacedOrder(savedCheckout, status.value(), false);
+    }
+
+    // Paginated listing for the admin UI, card details left out; without "limit" the first 20 orders
     @GetMapping
-    public ResponseEntity<List<Checkout>> getAllCheckouts() {
-        List<Checkout> checkouts = checkoutService.getAllCheckouts();
-        return new ResponseEntity<>(checkouts, HttpStatus.OK);
+    public ResponseEntity<OrderPage> getCheckoutsPage(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "after", required = false) String after) {
+        try {
+            return ResponseEntity.ok(checkoutService.getCheckoutsPage(after, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Streams every order placed in [from, to) as NDJSON (one order per line) or CSV (one row per
+    // order line). Written synchronously to the response, so it is not subject to the async timeout.
+    @GetMapping("/export")
+    public void exportCheckouts(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                @RequestParam(value = "from", required = false) String from,
+                                @RequestParam(value = "to", required = false) String to,
+                                HttpServletResponse response) throws IOException {
+        Instant fromInstant;
+        Instant toInstant;
+        try {
+            fromInstant = OrderExporter.parseBound(from, false);
+            toInstant = OrderExporter.parseBound(to, true);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        switch (format) {
+            case "ndjson" -> {
+                startDownload(response, "application/x-ndjson", "orders.ndjson");
+                orderExporter.writeNdjson(fromInstant, toInstant, response.getOutputStream());
+            }
+            case "csv" -> {
+                startDownload(response, "text/csv;charset=UTF-8", "orders.csv");
+                orderExporter.writeCsv(fromInstant, toInstant, response.getOutputStream());
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+    }
+
+    private static void startDownload(HttpServletResponse response, String contentType, String filename) {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
     }
 
     @DeleteMapping("/{id}")
@@ -1,11 +1,20 @@
 package com.bookshop.pahana.controller;
 
+import com.bookshop.pahana.dto.CustomerSummary;
+import com.bookshop.pahana.dto.SessionPrincipal;
 import com.bookshop.pahana.entity.Customers;
 import com.bookshop.pahana.service.CustomerService;
+import com.bookshop.pahana.service.CustomerSessionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.List;
@@ -17,13 +26,23 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:5173") // Adjust CORS if needed
 public class CustomerController {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomerController.class);
+
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerSessionService customerSessionService;
+
     @PostMapping
     public ResponseEntity<Customers> addCustomer(@RequestBody Customers customer) {
-        Customers savedCustomer = customerService.addCustomer(customer);
-        return new ResponseEntity<>(savedCustomer, HttpStatus.CREATED);
+        try {
+            Customers savedCustomer = customerService.addCustomer(customer);
+            return new ResponseEntity<>(savedCustomer, HttpStatus.CREATED);
+        } catch (DuplicateKeyException e) {
+            // Emails are unique (see the index on Customers.email)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An account with this email already exists", e);
+        }
     }
 
 
@@ -42,7 +61,8 @@ public class CustomerController {
                 response.put("userId", customer.get().getId());
                 response.put("userEmail", customer.get().getEmail());
                 response.put("userName", customer.get().getName());
-                // Add other user fields as needed
+                // Send as "Authorization: Bearer <token>" to identify the customer, e.g. to /me
+                response.put("token", customerSessionService.issueToken(customer.get()));
 
                 return new ResponseEntity<>(response, HttpStatus.OK);
             } else {
@@ -62,22 +82,30 @@ public class CustomerController {
         return customerService.getAllCustomers();
     }
 
+    // The customer the session token belongs to; no password, no database read when cached
+    @GetMapping("/me")
+    public ResponseEntity<CustomerSummary> getCurrentCustomer(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        SessionPrincipal principal = customerSessionService.authenticate(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not logged in"));
+        return customerSessionService.getCustomer(principal)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer no longer exists"));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Customers> getCustomerById(@PathVariable("id") String id) {
         try {
-            System.out.println("Fetching customer with ID: " + id);  // Log the incoming ID
             Optional<Customers> customer = customerService.getCustomerById(id);
 
             if (customer.isPresent()) {
-                System.out.println("Customer found: " + customer.get());  // Log the customer data
                 return new ResponseEntity<>(customer.get(), HttpStatus.OK);
             } else {
-                System.out.println("No customer found with ID: " + id);
+                log.debug("No customer found with ID: {}", id);
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);  // No customer found
             }
         } catch (Exception e) {
-            // Log the error (e.g., using a logging framework like SLF4J)
-            e.printStackTrace();
+            log.error("Error while fetching customer {}", id, e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);  // General server error
         }
     }
@@ -85,18 +113,24 @@ public class CustomerController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Customers> updateCustomer(@PathVariable("id") String id, @RequestBody Customers customer) {
-        Optional<Customers> existingCustomer = customerService.getCustomerById(id);
-        if (existingCustomer.isPresent()) {
-            Customers updatedCustomer = existingCustomer.get();
-            updatedCustomer.setName(customer.getName());
-            updatedCustomer.setEmail(customer.getEmail());
-            updatedCustomer.setPassword(customer.getPassword());
-            updatedCustomer.setContactNumber(customer.getContactNumber());
-
-            Customers savedCustomer = customerService.updateCustomer(id, updatedCustomer);
+        try {
+            Customers savedCustomer = customerService.updateCustomer(id, customer);
             return new ResponseEntity<>(savedCustomer, HttpStatus.OK);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An account with this email already exists", e);
+        }
+    }
+
+    // Partial update; include "version" to get 409 instead of overwriting someone else's change
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<Customers> patchCustomer(@PathVariable("id") String id,
+                                                   @RequestBody Map<String, Object> changes) {
+        try {
+            return ResponseEntity.ok(customerService.patchCustomer(id, changes));
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "An account with this email already exists", e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         }
     }
 
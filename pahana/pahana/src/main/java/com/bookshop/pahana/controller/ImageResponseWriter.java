@@ -0,0 +1,219 @@
+package com.bookshop.pahana.controller;
+
+import com.bookshop.pahana.service.ImageStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Writes cover images straight to the servlet response: strong ETag (SHA-256 of the content),
+// Last-Modified, 304/412 for conditional requests, single byte ranges, and Tomcat sendfile
+// (or FileChannel.transferTo) so the file bytes never pass through a heap buffer.
+@Component
+public class ImageResponseWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageResponseWriter.class);
+
+    // Set by Tomcat's NIO/NIO2 connectors when the current request may hand its body off to sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Legacy timestamped uploads were never overwritten either
+    private static final Pattern LEGACY_UPLOAD_NAME = Pattern.compile("^\\d{13}_.+");
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private record FileVersion(Path path, long lastModified, long size) {
+    }
+
+    // ETags are keyed by path, mtime and size, so a replaced file is hashed again
+    private final Cache<FileVersion, String> etags;
+    private final CacheControl mutableCacheControl;
+    private final DistributionSummary fullBytes;
+    private final DistributionSummary partialBytes;
+
+    public ImageResponseWriter(@Value("${images.etag-cache.max-entries:10000}") long maxEntries,
+                               @Value("${images.cache.max-age:1h}") Duration maxAge,
+                               MeterRegistry meterRegistry) {
+        this.etags = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        this.mutableCacheControl = CacheControl.maxAge(maxAge).cachePublic().mustRevalidate();
+        this.fullBytes = servedBytes(meterRegistry, "full");
+        this.partialBytes = servedBytes(meterRegistry, "partial");
+    }
+
+    // Body bytes per image response; 304s and HEAD requests send none and are not recorded
+    private static DistributionSummary servedBytes(MeterRegistry meterRegistry, String response) {
+        return DistributionSummary.builder("images.served")
+                .description("Image bytes sent per response")
+                .baseUnit("bytes")
+                .tag("response", response)
+                .register(meterRegistry);
+    }
+
+    // Content-addressed names can never refer to different bytes
+    public static boolean isImmutableName(String imageName) {
+        return ImageStore.isContentAddressed(imageName) || LEGACY_UPLOAD_NAME.matcher(imageName).matches();
+    }
+
+    public void write(Path file, MediaType contentType, boolean immutable,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(new FileVersion(file, lastModified, length));
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                (immutable ? IMMUTABLE : mutableCacheControl).getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Sets ETag and Last-Modified, and the 304/412 status when a precondition matches
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setContentType(contentType.toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = rangesToServe(request, etag, lastModified);
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = -1;
+            }
+            // HttpRange does not reject a first position past the end of the file
+            if (start < 0 || start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+        DistributionSummary servedBytes = count == length ? fullBytes : partialBytes;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams the file from the poller after this handler returns, freeing the request thread
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            servedBytes.record(count);
+            return;
+        }
+        long position = start;
+        long remaining = count;
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        } finally {
+            // What actually went out, if the client went away part way through
+            servedBytes.record(count - remaining);
+        }
+    }
+
+    public static MediaType contentType(Path file) {
+        return MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .or(() -> probe(file))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private static Optional<MediaType> probe(Path file) {
+        try {
+            String probed = Files.probeContentType(file);
+            return Optional.ofNullable(probed).map(MediaType::parseMediaType);
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // A Range header is honoured only for a single range, and only while If-Range still matches;
+    // anything else gets the whole file
+    private static List<HttpRange> rangesToServe(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long ifRangeDate;
+            try {
+                ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+            if (ifRangeDate == -1 || lastModified / 1000 > ifRangeDate / 1000) {
+                return List.of();
+            }
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges : List.of();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private String etag(FileVersion version) throws IOException {
+        String cached = etags.getIfPresent(version);
+        if (cached != null) {
+            return cached;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(version.path()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+        etags.put(version, etag);
+        log.debug("Hashed {} for its ETag", version.path());
+        return etag;
+    }
+}
@@ -0,0 +1,78 @@
+package com.bookshop.pahana.controller;
+
+import com.bookshop.pahana.dto.SessionPrincipal;
+import com.bookshop.pahana.dto.StockLevel;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.entity.StockReservation;
+import com.bookshop.pahana.service.CustomerSessionService;
+import com.bookshop.pahana.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory")
+@CrossOrigin(origins = "http://localhost:5173")
+public class InventoryController {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CustomerSessionService customerSessionService;
+
+    @GetMapping("/{bookId}")
+    public ResponseEntity<StockLevel> getStock(@PathVariable("bookId") String bookId) {
+        return ResponseEntity.ok(inventoryService.getStock(bookId));
+    }
+
+    // Stocktake: {"stock": 25} sets the count, {"stock": null} stops tracking the book
+    @PutMapping("/{bookId}")
+    public ResponseEntity<StockLevel> setStock(@PathVariable("bookId") String bookId, @RequestBody StockLevel level) {
+        try {
+            return ResponseEntity.ok(inventoryService.setStock(bookId, level.stock()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Deliveries and write-offs, e.g. ?delta=20 or ?delta=-2; safe while the book is selling
+    @PostMapping("/{bookId}/adjustments")
+    public ResponseEntity<StockLevel> adjustStock(@PathVariable("bookId") String bookId,
+                                                  @RequestParam("delta") int delta) {
+        return ResponseEntity.ok(inventoryService.adjustStock(bookId, delta));
+    }
+
+    // Holds the cart's books while a logged-in customer checks out; pass the id as the order's
+    // reservationId. A new reservation replaces the customer's previous one.
+    @PostMapping("/reservations")
+    public ResponseEntity<StockReservation> reserve(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody List<OrderLine> cartItems) {
+        SessionPrincipal principal = principal(authorization);
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(inventoryService.reserve(principal.customerId(), cartItems));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> cancelReservation(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @PathVariable("id") String id) {
+        inventoryService.cancel(principal(authorization).customerId(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private SessionPrincipal principal(String authorization) {
+        return customerSessionService.authenticate(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not logged in"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookshop.pahana.controller;
+
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.repository.ReactiveBookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Storefront catalog reads on the reactive MongoDB driver, next to the blocking /api/books so the
+// two can be put under the same load. Served by Spring MVC's reactive return value support: a
+// streamed list is written one book at a time on the async executor, and the next book is only
+// requested once the previous one has been written, so a slow client slows the cursor down instead
+// of filling memory. limitRate makes the driver fetch in batches of batch-size rather than one by one.
+// No catalog cache in front; every request reads MongoDB.
+@ConditionalOnProperty(name = "catalog.reactive.enabled", havingValue = "true")
+@RestController
+@RequestMapping("/api/reactive/books")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ReactiveBookController {
+
+    private final ReactiveBookRepository reactiveBookRepository;
+    private final int batchSize;
+
+    public ReactiveBookController(ReactiveBookRepository reactiveBookRepository,
+                                  @Value("${catalog.reactive.batch-size:100}") int batchSize) {
+        this.reactiveBookRepository = reactiveBookRepository;
+        this.batchSize = batchSize;
+    }
+
+    // Newline-delimited JSON (one book per line) or server-sent events, per the Accept header
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Book> streamBooks(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "language", required = false) String language,
+            @RequestParam(value = "publisher", required = false) String publisher,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice) {
+        BookFilter filter;
+        try {
+            filter = new BookFilter(category, language, publisher, minPrice, maxPrice);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return reactiveBookRepository.streamByTitle(filter).limitRate(batchSize);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Book> getBookById(@PathVariable("id") String id) {
+        return reactiveBookRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Book not found with id: " + id)));
+    }
+}
@@ -0,0 +1,18 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Checkout;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+// Everything the admin dashboard shows at the top, as of computedAt
+public record AdminSummary(long books,
+                           long customers,
+                           long orders,
+                           BigDecimal revenue,
+                           List<Checkout> recentOrders,
+                           List<CustomerSummary> recentCustomers,
+                           List<CategoryCount> lowCountCategories,
+                           Instant computedAt) {
+}
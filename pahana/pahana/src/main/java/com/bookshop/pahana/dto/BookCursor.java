@@ -0,0 +1,55 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position of the last book on a page: its sort value plus id as the tie-breaker.
+// Encoded as an opaque url-safe token that also pins the sort it was issued for.
+public record BookCursor(BookSort sort, boolean descending, Object value, String id) {
+
+    private static final String VERSION = "1";
+
+    public static BookCursor after(Book book, BookSort sort, boolean descending) {
+        Object value = sort == BookSort.PRICE ? book.getPrice() : book.getTitle();
+        return new BookCursor(sort, descending, value, book.getId());
+    }
+
+    public String encode() {
+        String typedValue;
+        if (value == null) {
+            typedValue = "n";
+        } else if (value instanceof Double d) {
+            typedValue = "d" + d;
+        } else {
+            typedValue = "s" + value;
+        }
+        // The value goes last so titles containing the separator survive the round trip
+        String raw = String.join("|", VERSION, sort.name(), descending ? "d" : "a", id, typedValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0]) || parts[3].isEmpty() || parts[4].isEmpty()) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            BookSort sort = BookSort.valueOf(parts[1]);
+            boolean descending = "d".equals(parts[2]);
+            String typedValue = parts[4];
+            Object value = switch (typedValue.charAt(0)) {
+                case 'n' -> null;
+                case 'd' -> Double.valueOf(typedValue.substring(1));
+                case 's' -> typedValue.substring(1);
+                default -> throw new IllegalArgumentException("Malformed cursor");
+            };
+            return new BookCursor(sort, descending, value, parts[3]);
+        } catch (IllegalArgumentException e) {
+            // Base64, enum and number parse failures all surface as one client error
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bookshop.pahana.dto;
+
+import java.util.List;
+
+// Facet counts for the storefront filters. Each facet is counted with every active filter
+// except its own, so selecting "Fiction" still shows how many books the other categories have.
+public record BookFacetCounts(int total,
+                              List<FacetValue> categories,
+                              List<FacetValue> languages,
+                              List<FacetValue> publishers,
+                              List<FacetValue> prices) {
+
+    public record FacetValue(String value, long count) {
+    }
+}
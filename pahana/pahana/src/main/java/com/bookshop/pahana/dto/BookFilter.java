@@ -0,0 +1,51 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Book;
+
+// Server-side catalog filters; a null field means "no restriction"
+public record BookFilter(String category,
+                         String language,
+                         String publisher,
+                         Double minPrice,
+                         Double maxPrice) {
+
+    public static final BookFilter NONE = new BookFilter(null, null, null, null, null);
+
+    public BookFilter {
+        category = blankToNull(category);
+        language = blankToNull(language);
+        publisher = blankToNull(publisher);
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+    }
+
+    public boolean isEmpty() {
+        return category == null && language == null && publisher == null
+                && minPrice == null && maxPrice == null;
+    }
+
+    // Same semantics as the MongoDB criteria built in BookRepositoryImpl
+    public boolean matches(Book book) {
+        if (book == null) {
+            return false;
+        }
+        if (category != null && !category.equals(book.getCategory())) {
+            return false;
+        }
+        if (language != null && !language.equals(book.getLanguage())) {
+            return false;
+        }
+        if (publisher != null && !publisher.equals(book.getPublisher())) {
+            return false;
+        }
+        if (minPrice != null && (book.getPrice() == null || book.getPrice() < minPrice)) {
+            return false;
+        }
+        return maxPrice == null || (book.getPrice() != null && book.getPrice() <= maxPrice);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
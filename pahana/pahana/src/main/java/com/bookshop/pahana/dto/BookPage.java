@@ -0,0 +1,9 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Book;
+
+import java.util.List;
+
+// One page of the catalog; pass nextCursor back as "after" to continue, null means no more pages
+public record BookPage(List<Book> items, String nextCursor, boolean hasMore) {
+}
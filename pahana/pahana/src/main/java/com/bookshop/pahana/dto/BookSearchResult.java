@@ -0,0 +1,12 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Book;
+
+import java.util.List;
+
+// One page of full-text search hits, best match first; total counts every matching book
+public record BookSearchResult(List<Hit> hits, int total, int page, int size) {
+
+    public record Hit(Book book, float score) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookshop.pahana.dto;
+
+import java.util.Locale;
+
+// Sort keys supported by the paginated catalog listing; "id" is always the tie-breaker
+public enum BookSort {
+
+    TITLE("title"),
+    PRICE("price");
+
+    private final String field;
+
+    BookSort(String field) {
+        this.field = field;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public static BookSort from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort: " + value);
+        }
+    }
+}
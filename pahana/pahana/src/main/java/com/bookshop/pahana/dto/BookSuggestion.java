@@ -0,0 +1,8 @@
+package com.bookshop.pahana.dto;
+
+// One typeahead completion; bookId is set for titles and null for authors
+public record BookSuggestion(String text, String type, String bookId) {
+
+    public static final String TITLE = "title";
+    public static final String AUTHOR = "author";
+}
@@ -0,0 +1,5 @@
+package com.bookshop.pahana.dto;
+
+// Number of catalog books in one category
+public record CategoryCount(String category, long books) {
+}
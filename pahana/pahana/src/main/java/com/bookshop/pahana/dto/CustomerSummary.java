@@ -0,0 +1,5 @@
+package com.bookshop.pahana.dto;
+
+// The customer fields the admin dashboard lists; never the password
+public record CustomerSummary(String id, String name, String email, String contactNumber) {
+}
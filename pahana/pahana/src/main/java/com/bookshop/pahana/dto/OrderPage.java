@@ -0,0 +1,9 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Checkout;
+
+import java.util.List;
+
+// One page of orders, newest first; pass nextCursor back as "after" to continue, null means no more pages
+public record OrderPage(List<Checkout> items, String nextCursor, boolean hasMore) {
+}
@@ -0,0 +1,12 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Checkout;
+
+// The response to POST /api/checkout; replayed is true when it was answered from an earlier
+// request with the same Idempotency-Key
+public record PlacedOrder(Checkout order, int status, boolean replayed) {
+
+    public PlacedOrder replay() {
+        return new PlacedOrder(order, status, true);
+    }
+}
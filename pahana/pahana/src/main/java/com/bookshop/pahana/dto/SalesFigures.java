@@ -0,0 +1,7 @@
+package com.bookshop.pahana.dto;
+
+import java.math.BigDecimal;
+
+// Sales totals for one day, book, category, shipping or payment method
+public record SalesFigures(String key, String label, long orders, long units, BigDecimal revenue) {
+}
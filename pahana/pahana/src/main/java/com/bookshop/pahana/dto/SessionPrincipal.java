@@ -0,0 +1,7 @@
+package com.bookshop.pahana.dto;
+
+import java.time.Instant;
+
+// What a session token vouches for: who logged in, and until when
+public record SessionPrincipal(String customerId, String name, Instant expiresAt) {
+}
@@ -0,0 +1,5 @@
+package com.bookshop.pahana.dto;
+
+// Units of a book that can still be sold; null stock means it is not tracked
+public record StockLevel(String bookId, Integer stock) {
+}
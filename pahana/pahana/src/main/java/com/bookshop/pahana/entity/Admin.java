@@ -1,6 +1,7 @@
 package com.bookshop.pahana.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "admins")
@@ -9,6 +10,8 @@ public class Admin {
     @Id
     private String id;
     private String adminName;
+    // Admin login looks admins up by email
+    @Indexed(name = "email", unique = true, sparse = true)
     private String email;
     private String password;
 
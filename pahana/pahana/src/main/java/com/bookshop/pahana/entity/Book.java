@@ -2,9 +2,23 @@
 package com.bookshop.pahana.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+// Indexes back the keyset listing: equality filter first, then sort field, then _id as tie-breaker
 @Document(collection = "books")
+@CompoundIndexes({
+        @CompoundIndex(name = "title_id", def = "{'title': 1, '_id': 1}"),
+        @CompoundIndex(name = "price_id", def = "{'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "category_title_id", def = "{'category': 1, 'title': 1, '_id': 1}"),
+        @CompoundIndex(name = "category_price_id", def = "{'category': 1, 'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "language_title_id", def = "{'language': 1, 'title': 1, '_id': 1}"),
+        @CompoundIndex(name = "language_price_id", def = "{'language': 1, 'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "publisher_title_id", def = "{'publisher': 1, 'title': 1, '_id': 1}"),
+        @CompoundIndex(name = "publisher_price_id", def = "{'publisher': 1, 'price': 1, '_id': 1}")
+})
 public class Book {
 
     @Id
@@ -13,10 +27,18 @@ public class Book {
     private String title;
     private Double price;
     private String description;
+    // Looked up when deciding whether a stored image is still referenced
+    @Indexed(name = "image", sparse = true)
     private String image;
     private String language;
     private String category;
     private String publisher;
+    // Bumped by every update; a client that sends the version it read gets 409 if it has moved on.
+    // Books stored before versioning have none, which counts as 0.
+    private Long version;
+    // Units that can still be sold; null means stock is not tracked and the book never sells out.
+    // Only changed through conditional $inc updates (see InventoryService), never by saving the book.
+    private Integer stock;
 
     public String getId() {
         return id;
@@ -89,4 +111,37 @@ public class Book {
     public void setPublisher(String publisher) {
         this.publisher = publisher;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    // Shallow copy, used to keep the pre-update state when a loaded book is modified in place
+    public Book copy() {
+        Book copy = new Book();
+        copy.setId(id);
+        copy.setAuthor(author);
+        copy.setTitle(title);
+        copy.setPrice(price);
+        copy.setDescription(description);
+        copy.setImage(image);
+        copy.setLanguage(language);
+        copy.setCategory(category);
+        copy.setPublisher(publisher);
+        copy.setVersion(version);
+        copy.setStock(stock);
+        return copy;
+    }
 }
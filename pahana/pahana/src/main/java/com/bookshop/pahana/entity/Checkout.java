@@ -2,17 +2,24 @@ package com.bookshop.pahana.entity;
 
 
 
+import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
+// A customer's orders, newest first
 @Document(collection = "checkouts")
+@CompoundIndex(name = "email_createdAt", def = "{'email': 1, 'createdAt': -1}")
 public class Checkout {
 
     @Id
     private String id;
-    private List<Book> cartItems; // Cart items (books)
+    private List<OrderLine> cartItems; // Ordered books with quantity and price at checkout
     private String name;
     private String address;
     private String phone;
@@ -24,6 +31,12 @@ public class Checkout {
     private String cvv; // For credit card payment
     private String cardHolderName; // For credit card payment
     private Double totalPrice;
+    private Instant createdAt;
+    // Units taken from tracked stock per book id, given back if the order is deleted
+    private Map<String, Integer> stockTaken;
+    // Stock held for this cart while it was being checked out; used up by placing the order
+    @Transient
+    private String reservationId;
 
     // Getters and Setters
     public String getId() {
@@ -34,11 +47,11 @@ public class Checkout {
         this.id = id;
     }
 
-    public List<Book> getCartItems() {
+    public List<OrderLine> getCartItems() {
         return cartItems;
     }
 
-    public void setCartItems(List<Book> cartItems) {
+    public void setCartItems(List<OrderLine> cartItems) {
         this.cartItems = cartItems;
     }
 
@@ -129,4 +142,36 @@ public class Checkout {
     public void setTotalPrice(Double totalPrice) {
         this.totalPrice = totalPrice;
     }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Map<String, Integer> getStockTaken() {
+        return stockTaken;
+    }
+
+    public void setStockTaken(Map<String, Integer> stockTaken) {
+        this.stockTaken = stockTaken;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    // When the order was placed; orders saved before createdAt existed fall back to their ObjectId time
+    public Instant placedAt() {
+        if (createdAt != null) {
+            return createdAt;
+        }
+        return id != null && ObjectId.isValid(id) ? new ObjectId(id).getDate().toInstant() : null;
+    }
 }
@@ -1,6 +1,7 @@
 package com.bookshop.pahana.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "customers")
@@ -11,8 +12,13 @@ public class Customers {
     private String name;
     private String address;
     private String contactNumber;
+    // Login looks customers up by email; sparse so customers without one do not collide. Named apart
+    // from the plain "email" index it replaces, which MongoIndexManager drops once this one is built
+    @Indexed(name = "email_unique", unique = true, sparse = true)
     private String email;
     private String password;
+    // Bumped by every update, see Book.version
+    private Long version;
 
     public String getId() {
         return id;
@@ -54,6 +60,14 @@ public class Customers {
         this.password = password;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 
     @Override
     public String toString() {
@@ -0,0 +1,85 @@
+package com.bookshop.pahana.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A checkout request seen under an Idempotency-Key, shared by all instances. Inserted (unique _id)
+// before the order is placed, so only one request per key gets to place it; the response is added
+// once it has. A claim still without a response after the wait timeout may be taken over.
+// MongoDB removes the record after expiresAt.
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String key;
+    // Fingerprint of the request body; the same key with a different body is rejected
+    private String requestHash;
+    // Null while the first request is still placing the order. Card details are left out.
+    private Checkout response;
+    private int status;
+    // When the current holder claimed the key
+    private Instant claimedAt;
+    @Indexed(name = "expiresAt_ttl", expireAfter = "0s")
+    private Instant expiresAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String requestHash, Instant claimedAt, Instant expiresAt) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.claimedAt = claimedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Checkout getResponse() {
+        return response;
+    }
+
+    public void setResponse(Checkout response) {
+        this.response = response;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Instant getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(Instant claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.bookshop.pahana.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Reference count for one content-addressed cover image; the id is the stored name
+@Document(collection = "image_blobs")
+public class ImageBlob {
+
+    @Id
+    private String id;
+    private long refs;
+    private long size;
+    // Last put() of this content; a blob touched recently is never garbage collected
+    private Instant touchedAt;
+
+    public ImageBlob() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getRefs() {
+        return refs;
+    }
+
+    public void setRefs(long refs) {
+        this.refs = refs;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public Instant getTouchedAt() {
+        return touchedAt;
+    }
+
+    public void setTouchedAt(Instant touchedAt) {
+        this.touchedAt = touchedAt;
+    }
+}
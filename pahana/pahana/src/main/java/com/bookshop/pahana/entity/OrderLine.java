@@ -0,0 +1,20 @@
+package com.bookshop.pahana.entity;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+// One ordered book as it was at checkout: just what the receipt needs, not the whole catalog entry.
+// The aliases accept the cart items the storefront posts (a Book plus "quantity"). The category is
+// the book's category at the time of sale, which is what sales figures are grouped by.
+public record OrderLine(@JsonAlias("id") String bookId,
+                        String title,
+                        String author,
+                        String category,
+                        @JsonAlias("price") Double unitPrice,
+                        Integer quantity) {
+
+    public OrderLine {
+        if (quantity == null) {
+            quantity = 1;
+        }
+    }
+}
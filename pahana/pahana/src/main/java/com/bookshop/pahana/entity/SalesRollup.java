@@ -0,0 +1,81 @@
+package com.bookshop.pahana.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Running sales totals for one value of one dimension, e.g. id "day:2024-05-01" or "book:<bookId>".
+// Maintained with $inc as orders are placed and deleted; revenue is kept in cents so it adds up exactly.
+@Document(collection = "sales_rollups")
+@CompoundIndex(name = "dimension_revenue", def = "{'dimension': 1, 'revenueCents': -1}")
+public class SalesRollup {
+
+    @Id
+    private String id;
+    private String dimension;
+    private String key;
+    // Display name where the key is an id (the book title)
+    private String label;
+    private long orders;
+    private long units;
+    private long revenueCents;
+
+    public SalesRollup() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(String dimension) {
+        this.dimension = dimension;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    public void setRevenueCents(long revenueCents) {
+        this.revenueCents = revenueCents;
+    }
+}
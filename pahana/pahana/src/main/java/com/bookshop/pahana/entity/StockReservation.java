@@ -0,0 +1,66 @@
+package com.bookshop.pahana.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Stock set aside for a cart being checked out. The units are already taken off the books, so
+// nobody else can buy them; placing the order uses them up, and once expiresAt has passed they are
+// put back by InventoryService's sweep. Each logged-in customer holds at most one reservation.
+@Document(collection = "stock_reservations")
+public class StockReservation {
+
+    @Id
+    private String id;
+    // Sparse: reservations made before they were tied to a customer have none
+    @Indexed(name = "customerId_unique", unique = true, sparse = true)
+    private String customerId;
+    // Units held per book id; only books that track stock
+    private Map<String, Integer> items;
+    @Indexed(name = "expiresAt")
+    private Instant expiresAt;
+
+    public StockReservation() {
+    }
+
+    public StockReservation(String customerId, Map<String, Integer> items, Instant expiresAt) {
+        this.customerId = customerId;
+        this.items = items;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public Map<String, Integer> getItems() {
+        return items;
+    }
+
+    public void setItems(Map<String, Integer> items) {
+        this.items = items;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookshop.pahana.event;
+
+import com.bookshop.pahana.entity.Book;
+
+// Published by BookService after a catalog write has been persisted.
+// before is null for an insert, after is null for a delete.
+public record BookChangedEvent(Book before, Book after) {
+
+    public String bookId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
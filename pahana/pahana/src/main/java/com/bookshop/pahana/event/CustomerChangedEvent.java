@@ -0,0 +1,5 @@
+package com.bookshop.pahana.event;
+
+// Published by CustomerService after a customer has been added, updated or deleted
+public record CustomerChangedEvent(String customerId) {
+}
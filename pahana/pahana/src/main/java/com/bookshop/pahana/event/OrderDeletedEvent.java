@@ -0,0 +1,7 @@
+package com.bookshop.pahana.event;
+
+import com.bookshop.pahana.entity.Checkout;
+
+// Published by CheckoutService after an order has been removed; carries the order as it was stored
+public record OrderDeletedEvent(Checkout checkout) {
+}
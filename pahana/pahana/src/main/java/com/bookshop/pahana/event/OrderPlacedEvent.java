@@ -0,0 +1,7 @@
+package com.bookshop.pahana.event;
+
+import com.bookshop.pahana.entity.Checkout;
+
+// Published by CheckoutService once an order has been accepted
+public record OrderPlacedEvent(Checkout checkout) {
+}
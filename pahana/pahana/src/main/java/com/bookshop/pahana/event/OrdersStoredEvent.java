@@ -0,0 +1,12 @@
+package com.bookshop.pahana.event;
+
+import com.bookshop.pahana.entity.Checkout;
+
+import java.util.List;
+import java.util.Set;
+
+// Published by OrderWriteBehindQueue once a batch of queued orders is in MongoDB. storedEarlier holds
+// the ids of orders a previous run had already stored before it stopped (found again on journal replay);
+// that run may not have published them, so they are included, and listeners must not count an order twice.
+public record OrdersStoredEvent(List<Checkout> checkouts, Set<String> storedEarlier) {
+}
@@ -0,0 +1,31 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.dto.BookCursor;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookSort;
+import com.bookshop.pahana.entity.Book;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+// Catalog queries that derived query methods cannot express
+public interface BookRepositoryCustom {
+
+    // Keyset page: books matching the filter, ordered by sort field then id, strictly after the cursor
+    List<Book> findPage(BookFilter filter, BookSort sort, boolean descending, BookCursor after, int limit);
+
+    // Applies the update and bumps the version in one findAndModify, returning the book as it was
+    // before. Null when there is no such book or, with an expected version, it no longer matches.
+    Book updateIfVersion(String id, Long expectedVersion, Update update);
+
+    // Takes the units in one conditional $inc if at least that many are in stock; false otherwise
+    // (also for a missing book or one that does not track stock)
+    boolean takeStock(String id, int quantity);
+
+    // Puts units back; books that do not track stock are left alone
+    void returnStock(String id, int quantity);
+
+    // Adds delta (may be negative, but never below zero) to a tracked book's stock and returns
+    // the before-image; null if the book is missing, untracked or has too few units
+    Book adjustStock(String id, int delta);
+}
@@ -0,0 +1,118 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.dto.BookCursor;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookSort;
+import com.bookshop.pahana.entity.Book;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Picked up by Spring Data as the implementation of BookRepositoryCustom
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public BookRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Book> findPage(BookFilter filter, BookSort sort, boolean descending, BookCursor after, int limit) {
+        List<Criteria> clauses = filterCriteria(filter);
+        if (after != null) {
+            clauses.add(afterCriteria(sort.field(), descending, after));
+        }
+
+        Query query = new Query();
+        if (!clauses.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(clauses));
+        }
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        query.with(Sort.by(direction, sort.field(), "id"));
+        query.limit(limit);
+        return mongoTemplate.find(query, Book.class);
+    }
+
+    @Override
+    public Book updateIfVersion(String id, Long expectedVersion, Update update) {
+        return mongoTemplate.findAndModify(OptimisticVersion.byId(id, expectedVersion), OptimisticVersion.bump(update),
+                FindAndModifyOptions.options().returnNew(false), Book.class);
+    }
+
+    @Override
+    public boolean takeStock(String id, int quantity) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("stock").gte(quantity));
+        return mongoTemplate.updateFirst(query, new Update().inc("stock", -quantity), Book.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void returnStock(String id, int quantity) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("stock").ne(null));
+        mongoTemplate.updateFirst(query, new Update().inc("stock", quantity), Book.class);
+    }
+
+    @Override
+    public Book adjustStock(String id, int delta) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("stock").gte(Math.max(0, -delta)));
+        return mongoTemplate.findAndModify(query, new Update().inc("stock", delta),
+                FindAndModifyOptions.options().returnNew(false), Book.class);
+    }
+
+    static List<Criteria> filterCriteria(BookFilter filter) {
+        List<Criteria> clauses = new ArrayList<>();
+        if (filter == null) {
+            return clauses;
+        }
+        if (filter.category() != null) {
+            clauses.add(Criteria.where("category").is(filter.category()));
+        }
+        if (filter.language() != null) {
+            clauses.add(Criteria.where("language").is(filter.language()));
+        }
+        if (filter.publisher() != null) {
+            clauses.add(Criteria.where("publisher").is(filter.publisher()));
+        }
+        if (filter.minPrice() != null || filter.maxPrice() != null) {
+            Criteria price = Criteria.where("price");
+            if (filter.minPrice() != null) {
+                price.gte(filter.minPrice());
+            }
+            if (filter.maxPrice() != null) {
+                price.lte(filter.maxPrice());
+            }
+            clauses.add(price);
+        }
+        return clauses;
+    }
+
+    // Seek past (value, id). MongoDB orders missing/null values before everything else,
+    // so a null sort value needs its own branch in each direction.
+    private static Criteria afterCriteria(String field, boolean descending, BookCursor after) {
+        Object value = after.value();
+        String id = after.id();
+        if (!descending) {
+            if (value == null) {
+                return new Criteria().orOperator(
+                        new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").gt(id)),
+                        Criteria.where(field).ne(null));
+            }
+            return new Criteria().orOperator(
+                    Criteria.where(field).gt(value),
+                    new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").gt(id)));
+        }
+        if (value == null) {
+            return new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").lt(id));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).lt(value),
+                new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").lt(id)),
+                Criteria.where(field).is(null));
+    }
+}
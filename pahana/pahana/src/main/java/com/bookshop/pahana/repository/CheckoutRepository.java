@@ -5,5 +5,5 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CheckoutRepository extends MongoRepository<Checkout, String> {
+public interface CheckoutRepository extends MongoRepository<Checkout, String>, CheckoutRepositoryCustom {
 }
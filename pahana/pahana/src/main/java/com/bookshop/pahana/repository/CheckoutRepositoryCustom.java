@@ -0,0 +1,26 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.entity.Checkout;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Order queries that derived query methods cannot express
+public interface CheckoutRepositoryCustom {
+
+    // Units ordered per book id across all orders
+    Map<String, Long> countUnitsByBook();
+
+    // Removes the order and returns it as it was, or null if there was none. Of two concurrent
+    // calls for the same id only one gets the order back.
+    Checkout removeById(String id);
+
+    // Newest orders first, starting after the order with id "afterId" (null for the first page)
+    List<Checkout> findPage(String afterId, int limit);
+
+    // Orders placed in [from, to) in id order, read from a cursor batchSize documents at a time.
+    // Either bound may be null. The caller must close the stream.
+    Stream<Checkout> streamPlacedBetween(Instant from, Instant to, int batchSize);
+}
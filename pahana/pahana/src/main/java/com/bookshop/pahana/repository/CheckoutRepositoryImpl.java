@@ -0,0 +1,95 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.entity.Checkout;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
+
+// Picked up by Spring Data as the implementation of CheckoutRepositoryCustom
+public class CheckoutRepositoryImpl implements CheckoutRepositoryCustom {
+
+    // Card details are stored with the order but never leave the server through listings or exports
+    private static final String[] CARD_FIELDS = {"cardNumber", "expiryDate", "cvv"};
+
+    private final MongoTemplate mongoTemplate;
+
+    public CheckoutRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Map<String, Long> countUnitsByBook() {
+        // Orders not yet migrated embed whole books: _id instead of bookId and no quantity
+        Aggregation aggregation = newAggregation(
+                unwind("cartItems"),
+                project()
+                        .and(ConditionalOperators.ifNull("cartItems.bookId").thenValueOf("cartItems._id")).as("bookId")
+                        .and(ConditionalOperators.ifNull("cartItems.quantity").then(1)).as("quantity"),
+                group("bookId").sum("quantity").as("units"));
+
+        Map<String, Long> units = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Checkout.class, Document.class)) {
+            Object bookId = row.get("_id");
+            if (bookId != null) {
+                // Ids embedded by older orders are ObjectIds when they look like one, strings otherwise
+                units.put(bookId.toString(), ((Number) row.get("units")).longValue());
+            }
+        }
+        return units;
+    }
+
+    @Override
+    public Checkout removeById(String id) {
+        return mongoTemplate.findAndRemove(Query.query(Criteria.where("_id").is(id)), Checkout.class);
+    }
+
+    @Override
+    public List<Checkout> findPage(String afterId, int limit) {
+        Query query = new Query();
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("_id").lt(new ObjectId(afterId)));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "_id")).limit(limit);
+        query.fields().exclude(CARD_FIELDS);
+        return mongoTemplate.find(query, Checkout.class);
+    }
+
+    @Override
+    public Stream<Checkout> streamPlacedBetween(Instant from, Instant to, int batchSize) {
+        // The ObjectId carries the creation second, so the range is a scan of the _id index and
+        // also covers orders that predate createdAt
+        Criteria id = Criteria.where("_id");
+        if (from != null) {
+            id.gte(firstIdAt(from.getEpochSecond()));
+        }
+        if (to != null) {
+            long seconds = to.getEpochSecond() + (to.getNano() > 0 ? 1 : 0);
+            id.lt(firstIdAt(seconds));
+        }
+        Query query = from == null && to == null ? new Query() : Query.query(id);
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        query.fields().exclude(CARD_FIELDS);
+        return mongoTemplate.stream(query, Checkout.class);
+    }
+
+    // Smallest ObjectId generated in the given second
+    private static ObjectId firstIdAt(long epochSecond) {
+        return new ObjectId(String.format("%08x%016x", epochSecond, 0));
+    }
+}
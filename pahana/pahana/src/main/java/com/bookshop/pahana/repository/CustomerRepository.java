@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface CustomerRepository extends MongoRepository<Customers, String> {
+public interface CustomerRepository extends MongoRepository<Customers, String>, CustomerRepositoryCustom {
 
     // Find customer by email
     Optional<Customers> findByEmail(String email);
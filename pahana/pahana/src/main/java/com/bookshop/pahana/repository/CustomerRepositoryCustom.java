@@ -0,0 +1,12 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.entity.Customers;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Customer writes that derived query methods cannot express
+public interface CustomerRepositoryCustom {
+
+    // Applies the update and bumps the version in one findAndModify, returning the updated customer.
+    // Null when there is no such customer or, with an expected version, it no longer matches.
+    Customers updateIfVersion(String id, Long expectedVersion, Update update);
+}
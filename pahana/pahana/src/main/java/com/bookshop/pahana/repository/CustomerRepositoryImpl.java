@@ -0,0 +1,22 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.entity.Customers;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Picked up by Spring Data as the implementation of CustomerRepositoryCustom
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CustomerRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Customers updateIfVersion(String id, Long expectedVersion, Update update) {
+        return mongoTemplate.findAndModify(OptimisticVersion.byId(id, expectedVersion), OptimisticVersion.bump(update),
+                FindAndModifyOptions.options().returnNew(true), Customers.class);
+    }
+}
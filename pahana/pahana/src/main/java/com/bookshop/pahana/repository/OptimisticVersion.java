@@ -0,0 +1,44 @@
+package com.bookshop.pahana.repository;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Optimistic versioning shared by the versioned documents (Book, Customers): every update bumps
+// "version", and an update that names the version it was based on only applies to that version.
+public final class OptimisticVersion {
+
+    public static final String FIELD = "version";
+
+    private OptimisticVersion() {
+    }
+
+    // The version from a request body, or null when the update is unconditional
+    public static Long parse(Object version) {
+        if (version == null) {
+            return null;
+        }
+        if (!(version instanceof Number number) || number.longValue() < 0) {
+            throw new IllegalArgumentException("version must be a number >= 0");
+        }
+        return number.longValue();
+    }
+
+    // Documents written before versioning have no version field, which counts as version 0
+    public static Criteria is(long expected) {
+        return expected == 0 ? Criteria.where(FIELD).in(0L, null) : Criteria.where(FIELD).is(expected);
+    }
+
+    // The document with this id, and only at expectedVersion when one is given
+    public static Query byId(String id, Long expectedVersion) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(is(expectedVersion));
+        }
+        return query;
+    }
+
+    public static Update bump(Update update) {
+        return update.inc(FIELD, 1);
+    }
+}
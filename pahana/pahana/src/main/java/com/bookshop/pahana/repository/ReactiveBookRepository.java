@@ -0,0 +1,13 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.entity.Book;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+// Non-blocking counterpart of BookRepository on the reactive MongoDB driver; read-only use,
+// all catalog writes still go through BookService
+@ConditionalOnProperty(name = "catalog.reactive.enabled", havingValue = "true")
+@Repository
+public interface ReactiveBookRepository extends ReactiveMongoRepository<Book, String>, ReactiveBookRepositoryCustom {
+}
@@ -0,0 +1,11 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.entity.Book;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveBookRepositoryCustom {
+
+    // Every book matching the filter in title order, read from the cursor only as fast as it is consumed
+    Flux<Book> streamByTitle(BookFilter filter);
+}
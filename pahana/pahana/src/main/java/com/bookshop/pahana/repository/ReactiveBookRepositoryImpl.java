@@ -0,0 +1,34 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.entity.Book;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Picked up by Spring Data as the implementation of ReactiveBookRepositoryCustom
+@ConditionalOnProperty(name = "catalog.reactive.enabled", havingValue = "true")
+public class ReactiveBookRepositoryImpl implements ReactiveBookRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReactiveBookRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Book> streamByTitle(BookFilter filter) {
+        // Same filters and (title, _id) order as the MVC listing, so the same indexes serve it
+        Query query = new Query().with(Sort.by("title", "_id"));
+        List<Criteria> clauses = BookRepositoryImpl.filterCriteria(filter);
+        if (!clauses.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(clauses));
+        }
+        return reactiveMongoTemplate.find(query, Book.class);
+    }
+}
@@ -0,0 +1,179 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.AdminSummary;
+import com.bookshop.pahana.dto.CategoryCount;
+import com.bookshop.pahana.dto.CustomerSummary;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.event.BookChangedEvent;
+import com.bookshop.pahana.event.CustomerChangedEvent;
+import com.bookshop.pahana.event.OrderDeletedEvent;
+import com.bookshop.pahana.event.OrderPlacedEvent;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.bookshop.pahana.repository.CheckoutRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+
+// Serves the admin dashboard from an in-memory snapshot instead of loading whole collections.
+// Changes to books, customers or orders mark the snapshot stale; a scheduled check recomputes it
+// at most once per refresh-delay (so bursts of orders cost one recompute), and at least once per
+// max-age. Computing it takes a few counts from collection metadata, one aggregation over the
+// books and two small sorted reads, whatever the size of the data.
+@Service
+public class AdminSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminSummaryService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CheckoutRepository checkoutRepository;
+    private final SalesAnalytics salesAnalytics;
+    private final Duration maxAge;
+    private final int recentCount;
+    private final int lowCategoryCount;
+
+    private volatile AdminSummary snapshot;
+    private volatile boolean stale = true;
+    // Not synchronized: a virtual thread blocked on MongoDB inside a monitor would pin its carrier
+    private final Lock refreshLock = new ReentrantLock();
+
+    public AdminSummaryService(MongoTemplate mongoTemplate, CheckoutRepository checkoutRepository,
+                               SalesAnalytics salesAnalytics,
+                               @Value("${admin.summary.max-age:60s}") Duration maxAge,
+                               @Value("${admin.summary.recent:5}") int recentCount,
+                               @Value("${admin.summary.low-categories:5}") int lowCategoryCount) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkoutRepository = checkoutRepository;
+        this.salesAnalytics = salesAnalytics;
+        this.maxAge = maxAge;
+        this.recentCount = recentCount;
+        this.lowCategoryCount = lowCategoryCount;
+    }
+
+    public AdminSummary getSummary() {
+        AdminSummary current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        try {
+            return refresh();
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Dashboard summary is not available yet", e);
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        stale = true;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        stale = true;
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        stale = true;
+    }
+
+    @EventListener
+    public void onOrdersStored(OrdersStoredEvent event) {
+        stale = true;
+    }
+
+    @EventListener
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        stale = true;
+    }
+
+    @Scheduled(fixedDelayString = "${admin.summary.refresh-delay:2s}", initialDelayString = "${admin.summary.refresh-delay:2s}")
+    public void refreshIfStale() {
+        AdminSummary current = snapshot;
+        // Nothing to keep warm until the dashboard has asked once
+        if (current == null) {
+            return;
+        }
+        if (!stale && current.computedAt().plus(maxAge).isAfter(Instant.now())) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            stale = true;
+            log.warn("Could not refresh the dashboard summary: {}", e.getMessage());
+        }
+    }
+
+    private AdminSummary refresh() {
+        refreshLock.lock();
+        try {
+            // Cleared first so a change made while computing triggers another refresh
+            stale = false;
+            Instant computedAt = Instant.now();
+            AdminSummary summary = new AdminSummary(
+                    mongoTemplate.estimatedCount(Book.class),
+                    mongoTemplate.estimatedCount(Customers.class),
+                    mongoTemplate.estimatedCount(Checkout.class),
+                    salesAnalytics.getTotals().revenue(),
+                    checkoutRepository.findPage(null, recentCount),
+                    recentCustomers(),
+                    lowCountCategories(),
+                    computedAt);
+            snapshot = summary;
+            return summary;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private List<CustomerSummary> recentCustomers() {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "_id")).limit(recentCount);
+        query.fields().include("name", "email", "contactNumber");
+        List<CustomerSummary> customers = new ArrayList<>();
+        for (Customers customer : mongoTemplate.find(query, Customers.class)) {
+            customers.add(new CustomerSummary(customer.getId(), customer.getName(), customer.getEmail(),
+                    customer.getContactNumber()));
+        }
+        return customers;
+    }
+
+    // Categories with the fewest books, candidates for restocking the catalog
+    private List<CategoryCount> lowCountCategories() {
+        Aggregation aggregation = newAggregation(
+                group("category").count().as("books"),
+                sort(Sort.by(Sort.Direction.ASC, "books", "_id")),
+                limit(lowCategoryCount));
+        List<CategoryCount> categories = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Book.class, Document.class)) {
+            Object category = row.get("_id");
+            if (category != null) {
+                categories.add(new CategoryCount(category.toString(), ((Number) row.get("books")).longValue()));
+            }
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,273 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookPage;
+import com.bookshop.pahana.dto.BookSort;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.event.BookChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through cache in front of the catalog reads in BookService.
+// Bounded by an estimate of retained bytes (Caffeine's W-TinyLFU picks the victims) with an optional TTL.
+// Cached books are shared between requests and must not be modified by callers.
+@Component
+public class BookCache {
+
+    // Rough per-object overhead (headers, references, boxed price) added to the string payload
+    private static final int BOOK_OVERHEAD_BYTES = 160;
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    sealed interface Key permits ById, AllBooks, Listing {
+    }
+
+    record ById(String id) implements Key {
+    }
+
+    record AllBooks() implements Key {
+    }
+
+    record Listing(BookFilter filter, BookSort sort, boolean descending, String after, int limit) implements Key {
+    }
+
+    private static final AllBooks ALL_BOOKS = new AllBooks();
+
+    private final Cache<Key, Object> cache;
+
+    // Filtered listings and bulk book lookups cannot be invalidated through Caffeine's per-key
+    // locking (an in-flight load is invisible while scanning keys, and a bulk load is stored after
+    // the fact), so they are only stored if no catalog write happened while they were loading.
+    private final AtomicLong generation = new AtomicLong();
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+
+    // Single-key loads in progress, so concurrent misses share one load. They run outside Caffeine's
+    // compute, which holds a map bin monitor and would pin a virtual thread's carrier for the whole
+    // MongoDB call; like the listings they are only stored if no catalog write happened meanwhile.
+    private final ConcurrentMap<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public BookCache(@Value("${catalog.cache.enabled:true}") boolean enabled,
+                     @Value("${catalog.cache.max-weight:64MB}") DataSize maxWeight,
+                     @Value("${catalog.cache.ttl:0}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Key, Object> builder = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((Key key, Object value) -> weigh(value))
+                .recordStats();
+        if (!ttl.isZero() && !ttl.isNegative()) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "books");
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public Optional<Book> getBook(String id, Function<String, Optional<Book>> loader) {
+        if (cache == null) {
+            return loader.apply(id);
+        }
+        // Misses are not cached, so a "not found" never hides a book added afterwards
+        Object value = load(new ById(id), () -> loader.apply(id).orElse(null));
+        return Optional.ofNullable((Book) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Book> getAllBooks(Supplier<List<Book>> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        return (List<Book>) load(ALL_BOOKS, () -> List.copyOf(loader.get()));
+    }
+
+    private Object load(Key key, Supplier<Object> loader) {
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            long loadedAt = generation.get();
+            Object value = loader.get();
+            if (value != null) {
+                generationLock.readLock().lock();
+                try {
+                    if (loadedAt == generation.get()) {
+                        cache.put(key, value);
+                    }
+                } finally {
+                    generationLock.readLock().unlock();
+                }
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    // Several books at once; whatever is not cached is fetched with one loader call
+    public Map<String, Book> getBooks(Collection<String> ids, Function<Collection<String>, Iterable<Book>> loader) {
+        Map<String, Book> books = new HashMap<>();
+        if (cache == null) {
+            loader.apply(ids).forEach(book -> books.put(book.getId(), book));
+            return books;
+        }
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Object cached = cache.getIfPresent(new ById(id));
+            if (cached != null) {
+                books.put(id, (Book) cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return books;
+        }
+
+        long loadedAt = generation.get();
+        Map<Key, Book> loaded = new HashMap<>();
+        for (Book book : loader.apply(missing)) {
+            books.put(book.getId(), book);
+            loaded.put(new ById(book.getId()), book);
+        }
+        generationLock.readLock().lock();
+        try {
+            if (loadedAt == generation.get()) {
+                cache.putAll(loaded);
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+        return books;
+    }
+
+    public BookPage getPage(Listing key, Supplier<BookPage> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (BookPage) cached;
+        }
+
+        long loadedAt = generation.get();
+        BookPage page = loader.get();
+        BookPage stored = new BookPage(List.copyOf(page.items()), page.nextCursor(), page.hasMore());
+        generationLock.readLock().lock();
+        try {
+            if (loadedAt == generation.get()) {
+                cache.put(key, stored);
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+        return stored;
+    }
+
+    // Drops exactly the entries a write can have changed: the book itself, the full listing,
+    // and the filtered listings whose filter matches the book before or after the write.
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        cache.invalidate(ALL_BOOKS);
+
+        generationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            // Inside the lock, so a bulk lookup cannot store the old book after this point
+            cache.invalidate(new ById(event.bookId()));
+            cache.asMap().keySet().removeIf(key -> key instanceof Listing listing
+                    && (listing.filter().matches(event.before()) || listing.filter().matches(event.after())));
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache == null) {
+            return;
+        }
+        generationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int weigh(Object value) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        if (value instanceof Book book) {
+            bytes += weigh(book);
+        } else if (value instanceof BookPage page) {
+            bytes += weigh(page.items()) + length(page.nextCursor()) * 2L;
+        } else if (value instanceof List<?> books) {
+            bytes += weigh((List<Book>) books);
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long weigh(List<Book> books) {
+        long bytes = 16L + books.size() * 8L;
+        for (Book book : books) {
+            bytes += weigh(book);
+        }
+        return bytes;
+    }
+
+    static long weigh(Book book) {
+        long chars = length(book.getId()) + length(book.getAuthor()) + length(book.getTitle())
+                + length(book.getDescription()) + length(book.getImage()) + length(book.getLanguage())
+                + length(book.getCategory()) + length(book.getPublisher());
+        return BOOK_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
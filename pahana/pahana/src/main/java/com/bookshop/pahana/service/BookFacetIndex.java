@@ -0,0 +1,259 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookFacetCounts;
+import com.bookshop.pahana.dto.BookFacetCounts.FacetValue;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.entity.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-value counts for category, language, publisher and price buckets, maintained from
+// catalog events. Unfiltered counts are kept incrementally; counts narrowed by a filter are
+// computed in one pass over a compact per-book record without touching MongoDB.
+@Component
+public class BookFacetIndex implements CatalogProjection {
+
+    private static final Comparator<FacetValue> BY_COUNT = Comparator
+            .comparingLong((FacetValue facet) -> -facet.count())
+            .thenComparing(FacetValue::value);
+
+    private final double[] priceBounds;
+    private final String[] priceLabels;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state;
+    private volatile boolean ready;
+    // Unfiltered response, rebuilt lazily after the next change
+    private volatile BookFacetCounts unfiltered;
+
+    public BookFacetIndex(@Value("${catalog.facets.price-buckets:500,1000,2000,5000}") double[] priceBounds) {
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+        this.priceLabels = new String[this.priceBounds.length + 1];
+        double lower = 0;
+        for (int i = 0; i < this.priceBounds.length; i++) {
+            priceLabels[i] = format(lower) + "-" + format(this.priceBounds[i]);
+            lower = this.priceBounds[i];
+        }
+        priceLabels[this.priceBounds.length] = format(lower) + "+";
+        this.state = new State();
+    }
+
+    @Override
+    public String name() {
+        return "facets";
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Rebuild startRebuild() {
+        State next = new State();
+        return new Rebuild() {
+            @Override
+            public void add(Book book) {
+                next.upsert(toRecord(book));
+            }
+
+            @Override
+            public void publish() {
+                lock.writeLock().lock();
+                try {
+                    state = next;
+                    unfiltered = null;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void upsert(Book book) {
+        lock.writeLock().lock();
+        try {
+            state.upsert(toRecord(book));
+            unfiltered = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            state.remove(bookId);
+            unfiltered = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public BookFacetCounts counts(BookFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            BookFacetCounts cached = unfiltered;
+            if (cached != null) {
+                return cached;
+            }
+        }
+        lock.readLock().lock();
+        try {
+            if (filter == null || filter.isEmpty()) {
+                BookFacetCounts counts = toResponse(state.records.size(), state.categories, state.languages,
+                        state.publishers, state.prices);
+                unfiltered = counts;
+                return counts;
+            }
+            return narrowed(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Disjunctive counting: a book failing only the category constraint still counts towards the
+    // category facet, and so on; a book failing two constraints counts nowhere.
+    private BookFacetCounts narrowed(BookFilter filter) {
+        Map<String, Long> categories = new HashMap<>();
+        Map<String, Long> languages = new HashMap<>();
+        Map<String, Long> publishers = new HashMap<>();
+        long[] prices = new long[priceLabels.length];
+        int total = 0;
+
+        for (FacetRecord record : state.records.values()) {
+            boolean categoryOk = filter.category() == null || filter.category().equals(record.category());
+            boolean languageOk = filter.language() == null || filter.language().equals(record.language());
+            boolean publisherOk = filter.publisher() == null || filter.publisher().equals(record.publisher());
+            boolean priceOk = priceMatches(filter, record.price());
+
+            if (languageOk && publisherOk && priceOk) {
+                increment(categories, record.category());
+            }
+            if (categoryOk && publisherOk && priceOk) {
+                increment(languages, record.language());
+            }
+            if (categoryOk && languageOk && priceOk) {
+                increment(publishers, record.publisher());
+            }
+            if (categoryOk && languageOk && publisherOk && record.priceBucket() >= 0) {
+                prices[record.priceBucket()]++;
+            }
+            if (categoryOk && languageOk && publisherOk && priceOk) {
+                total++;
+            }
+        }
+        return toResponse(total, categories, languages, publishers, prices);
+    }
+
+    private static boolean priceMatches(BookFilter filter, Double price) {
+        if (filter.minPrice() == null && filter.maxPrice() == null) {
+            return true;
+        }
+        if (price == null) {
+            return false;
+        }
+        return (filter.minPrice() == null || price >= filter.minPrice())
+                && (filter.maxPrice() == null || price <= filter.maxPrice());
+    }
+
+    private BookFacetCounts toResponse(int total, Map<String, Long> categories, Map<String, Long> languages,
+                                       Map<String, Long> publishers, long[] prices) {
+        List<FacetValue> priceFacets = new ArrayList<>(prices.length);
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] > 0) {
+                priceFacets.add(new FacetValue(priceLabels[i], prices[i]));
+            }
+        }
+        return new BookFacetCounts(total, sorted(categories), sorted(languages), sorted(publishers),
+                List.copyOf(priceFacets));
+    }
+
+    private static List<FacetValue> sorted(Map<String, Long> counts) {
+        List<FacetValue> values = new ArrayList<>(counts.size());
+        counts.forEach((value, count) -> values.add(new FacetValue(value, count)));
+        values.sort(BY_COUNT);
+        return List.copyOf(values);
+    }
+
+    private FacetRecord toRecord(Book book) {
+        return new FacetRecord(book.getId(), book.getCategory(), book.getLanguage(), book.getPublisher(),
+                book.getPrice(), priceBucket(book.getPrice()));
+    }
+
+    private int priceBucket(Double price) {
+        if (price == null) {
+            return -1;
+        }
+        for (int i = 0; i < priceBounds.length; i++) {
+            if (price < priceBounds[i]) {
+                return i;
+            }
+        }
+        return priceBounds.length;
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+
+    private static void increment(Map<String, Long> counts, String value) {
+        if (value != null) {
+            counts.merge(value, 1L, Long::sum);
+        }
+    }
+
+    private static void decrement(Map<String, Long> counts, String value) {
+        if (value != null) {
+            counts.computeIfPresent(value, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private record FacetRecord(String id, String category, String language, String publisher,
+                               Double price, int priceBucket) {
+    }
+
+    private final class State {
+        final Map<String, FacetRecord> records = new HashMap<>();
+        final Map<String, Long> categories = new HashMap<>();
+        final Map<String, Long> languages = new HashMap<>();
+        final Map<String, Long> publishers = new HashMap<>();
+        final long[] prices = new long[priceLabels.length];
+
+        void upsert(FacetRecord record) {
+            remove(record.id());
+            records.put(record.id(), record);
+            increment(categories, record.category());
+            increment(languages, record.language());
+            increment(publishers, record.publisher());
+            if (record.priceBucket() >= 0) {
+                prices[record.priceBucket()]++;
+            }
+        }
+
+        void remove(String bookId) {
+            FacetRecord record = records.remove(bookId);
+            if (record == null) {
+                return;
+            }
+            decrement(categories, record.category());
+            decrement(languages, record.language());
+            decrement(publishers, record.publisher());
+            if (record.priceBucket() >= 0) {
+                prices[record.priceBucket()]--;
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookSearchResult;
+import com.bookshop.pahana.entity.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over the catalog text fields, ranked with BM25.
+// Field weights are folded into the term frequency and document length (a simplified BM25F),
+// so a title hit outranks the same word buried in a description.
+@Component
+public class BookSearchIndex implements CatalogProjection {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float PUBLISHER_WEIGHT = 1.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private volatile boolean ready;
+
+    @Override
+    public String name() {
+        return "search";
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Rebuild startRebuild() {
+        State next = new State();
+        return new Rebuild() {
+            @Override
+            public void add(Book book) {
+                next.upsert(book);
+            }
+
+            @Override
+            public void publish() {
+                lock.writeLock().lock();
+                try {
+                    state = next;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void upsert(Book book) {
+        lock.writeLock().lock();
+        try {
+            state.upsert(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            state.remove(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public BookSearchResult search(String query, int page, int size) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.tokenize(query)));
+        lock.readLock().lock();
+        try {
+            return state.search(terms, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Postings for one term: parallel arrays of document slots and weighted term frequencies
+    private static final class Postings {
+        int[] docs = new int[4];
+        float[] freqs = new float[4];
+        int size;
+
+        void add(int doc, float freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    // Order within a postings list does not matter, so swap in the last entry
+                    size--;
+                    docs[i] = docs[size];
+                    freqs[i] = freqs[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Doc(Book book, String[] terms, float length) {
+    }
+
+    private static final class State {
+        final Map<String, Postings> postings = new HashMap<>();
+        final Map<String, Integer> slotsByBookId = new HashMap<>();
+        final List<Doc> docs = new ArrayList<>();
+        final List<Integer> freeSlots = new ArrayList<>();
+        double totalLength;
+        int liveDocs;
+
+        void upsert(Book book) {
+            remove(book.getId());
+
+            Map<String, Float> freqs = new HashMap<>();
+            float length = 0;
+            length += addField(freqs, book.getTitle(), TITLE_WEIGHT);
+            length += addField(freqs, book.getAuthor(), AUTHOR_WEIGHT);
+            length += addField(freqs, book.getCategory(), CATEGORY_WEIGHT);
+            length += addField(freqs, book.getPublisher(), PUBLISHER_WEIGHT);
+            length += addField(freqs, book.getDescription(), DESCRIPTION_WEIGHT);
+
+            int slot;
+            Doc doc = new Doc(book, freqs.keySet().toArray(String[]::new), length);
+            if (freeSlots.isEmpty()) {
+                slot = docs.size();
+                docs.add(doc);
+            } else {
+                slot = freeSlots.remove(freeSlots.size() - 1);
+                docs.set(slot, doc);
+            }
+            for (Map.Entry<String, Float> entry : freqs.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(slot, entry.getValue());
+            }
+            slotsByBookId.put(book.getId(), slot);
+            totalLength += length;
+            liveDocs++;
+        }
+
+        void remove(String bookId) {
+            Integer slot = slotsByBookId.remove(bookId);
+            if (slot == null) {
+                return;
+            }
+            Doc doc = docs.get(slot);
+            for (String term : doc.terms()) {
+                Postings list = postings.get(term);
+                list.remove(slot);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            docs.set(slot, null);
+            freeSlots.add(slot);
+            totalLength -= doc.length();
+            liveDocs--;
+        }
+
+        private static float addField(Map<String, Float> freqs, String text, float weight) {
+            List<String> tokens = TextAnalyzer.tokenize(text);
+            for (String token : tokens) {
+                freqs.merge(token, weight, Float::sum);
+            }
+            return tokens.size() * weight;
+        }
+
+        // Scores only the documents in the query terms' postings: the scratch arrays are sized to
+        // those, not to the catalog, so a query for a rare word stays cheap however many books there are
+        BookSearchResult search(List<String> terms, int page, int size) {
+            if (terms.isEmpty() || liveDocs == 0) {
+                return new BookSearchResult(List.of(), 0, page, size);
+            }
+            List<Postings> lists = new ArrayList<>(terms.size());
+            long touched = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    touched += list.size;
+                }
+            }
+            int capacity = (int) Math.min(touched, liveDocs);
+            if (capacity == 0) {
+                return new BookSearchResult(List.of(), 0, page, size);
+            }
+
+            float averageLength = (float) (totalLength / liveDocs);
+            int[] matched = new int[capacity];
+            float[] scores = new float[capacity];
+            int matchedCount = 0;
+            // A document can only turn up twice when several terms matched
+            SlotPositions positions = lists.size() > 1 ? new SlotPositions(capacity) : null;
+            for (Postings list : lists) {
+                float idf = (float) Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.docs[i];
+                    int position = positions == null ? -1 : positions.get(slot);
+                    if (position < 0) {
+                        position = matchedCount++;
+                        matched[position] = slot;
+                        if (positions != null) {
+                            positions.put(slot, position);
+                        }
+                    }
+                    float freq = list.freqs[i];
+                    float norm = K1 * (1 - B + B * docs.get(slot).length() / averageLength);
+                    scores[position] += idf * freq * (K1 + 1) / (freq + norm);
+                }
+            }
+
+            // Pages past the last hit are empty; long arithmetic so a huge page number cannot wrap
+            long offset = (long) page * size;
+            if (offset >= matchedCount) {
+                return new BookSearchResult(List.of(), matchedCount, page, size);
+            }
+            // Keep only the best offset + size hits instead of sorting every match
+            int wanted = (int) Math.min(offset + size, matchedCount);
+            PriorityQueue<Integer> top = new PriorityQueue<>(wanted,
+                    (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int position = 0; position < matchedCount; position++) {
+                if (top.size() < wanted) {
+                    top.add(position);
+                } else if (scores[position] > scores[top.peek()]) {
+                    top.poll();
+                    top.add(position);
+                }
+            }
+            int[] ranked = new int[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = top.poll();
+            }
+
+            List<BookSearchResult.Hit> hits = new ArrayList<>(ranked.length - (int) offset);
+            for (int i = (int) offset; i < ranked.length; i++) {
+                hits.add(new BookSearchResult.Hit(docs.get(matched[ranked[i]]).book(), scores[ranked[i]]));
+            }
+            return new BookSearchResult(hits, matchedCount, page, size);
+        }
+    }
+
+    // Document slot -> position in a query's scratch arrays; open addressing, slots stored + 1
+    private static final class SlotPositions {
+        final int[] keys;
+        final int[] values;
+        final int mask;
+
+        SlotPositions(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(int slot) {
+            for (int i = mix(slot) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == slot + 1) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(int slot, int position) {
+            int i = mix(slot) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = slot + 1;
+            values[i] = position;
+        }
+
+        private static int mix(int slot) {
+            return slot * 0x9E3779B9;
+        }
+    }
+}
@@ -1,34 +1,79 @@
 package com.bookshop.pahana.service;
 
+import com.bookshop.pahana.dto.BookCursor;
+import com.bookshop.pahana.dto.BookFacetCounts;
+import com.bookshop.pahana.dto.BookFilter;
+import com.bookshop.pahana.dto.BookPage;
+import com.bookshop.pahana.dto.BookSearchResult;
+import com.bookshop.pahana.dto.BookSort;
+import com.bookshop.pahana.dto.BookSuggestion;
 import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.event.BookChangedEvent;
 import com.bookshop.pahana.repository.BookRepository;
-import org.springframework.beans.factory.annotation.Value;
+import com.bookshop.pahana.repository.OptimisticVersion;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class BookService {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;  // Should point to your upload directory (e.g., "uploads")
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+
+    public static final int MAX_PAGE_SIZE = 100;
+    // Fields a PATCH may change; the image is replaced through the multipart PUT
+    private static final Set<String> PATCHABLE_FIELDS =
+            Set.of("title", "author", "description", "price", "category", "language", "publisher");
 
     private final BookRepository bookRepository;
+    private final BookCache bookCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSuggester bookSuggester;
+    private final BookFacetIndex bookFacetIndex;
+    private final ImageStore imageStore;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageGarbageCollector imageGarbageCollector;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DistributionSummary uploadSizes;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookCache bookCache, BookSearchIndex bookSearchIndex,
+                       BookSuggester bookSuggester, BookFacetIndex bookFacetIndex,
+                       ImageStore imageStore, ImageDerivativeService imageDerivativeService,
+                       ImageGarbageCollector imageGarbageCollector, ApplicationEventPublisher eventPublisher,
+                       MeterRegistry meterRegistry) {
         this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookSuggester = bookSuggester;
+        this.bookFacetIndex = bookFacetIndex;
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.imageGarbageCollector = imageGarbageCollector;
+        this.eventPublisher = eventPublisher;
+        this.uploadSizes = DistributionSummary.builder("images.uploaded")
+                .description("Size of cover images uploaded with a book")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     // Method to add a book with image upload
@@ -37,110 +82,278 @@ public class BookService {
             String imagePath = saveImage(imageFile);
             book.setImage(imagePath);
         }
-        return bookRepository.save(book);
+        book.setVersion(0L);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(null, savedBook));
+        return savedBook;
     }
 
     // Method to get all books
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return bookCache.getAllBooks(bookRepository::findAll);
+    }
+
+    // Method to get one keyset page of books; "after" is the nextCursor of the previous page
+    public BookPage getBooksPage(BookFilter filter, BookSort sort, boolean descending, String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        BookCursor cursor = decodeCursor(after, sort, descending);
+
+        BookCache.Listing key = new BookCache.Listing(filter, sort, descending, after, limit);
+        return bookCache.getPage(key, () -> loadPage(filter, sort, descending, cursor, limit));
+    }
+
+    private static BookCursor decodeCursor(String after, BookSort sort, boolean descending) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        BookCursor cursor = BookCursor.decode(after);
+        if (cursor.sort() != sort || cursor.descending() != descending) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        return cursor;
+    }
+
+    private BookPage loadPage(BookFilter filter, BookSort sort, boolean descending, BookCursor cursor, int limit) {
+        // Fetch one extra row to learn whether another page exists without a count query
+        List<Book> books = bookRepository.findPage(filter, sort, descending, cursor, limit + 1);
+        boolean hasMore = books.size() > limit;
+        if (hasMore) {
+            books = books.subList(0, limit);
+        }
+        String nextCursor = hasMore
+                ? BookCursor.after(books.get(books.size() - 1), sort, descending).encode()
+                : null;
+        return new BookPage(books, nextCursor, hasMore);
+    }
+
+    // Method to run a ranked full-text search against the in-memory index
+    public BookSearchResult searchBooks(String query, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("q must not be blank");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!bookSearchIndex.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search index is still being built");
+        }
+        return bookSearchIndex.search(query, page, size);
+    }
+
+    // Method to complete a typed prefix to the best-selling matching titles and authors
+    public List<BookSuggestion> suggestBooks(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("prefix must not be blank");
+        }
+        if (limit < 1 || limit > BookSuggester.MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + BookSuggester.MAX_SUGGESTIONS);
+        }
+        if (!bookSuggester.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Suggestions are still being built");
+        }
+        return bookSuggester.suggest(prefix, limit);
+    }
+
+    // Method to get facet counts for the storefront filters, optionally narrowed by the active filter
+    public BookFacetCounts getFacetCounts(BookFilter filter) {
+        if (!bookFacetIndex.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Facet counts are still being built");
+        }
+        return bookFacetIndex.counts(filter);
     }
 
     // Method to get a book by ID
     public Optional<Book> getBookById(String id) {
-        return bookRepository.findById(id);
+        return bookCache.getBook(id, bookRepository::findById);
     }
 
-    public Book updateBook(String id, Book updatedBook, MultipartFile imageFile) throws IOException {
-        Optional<Book> existingBookOpt = bookRepository.findById(id);
+    // Several books by id in one round trip (cached ones are not fetched again); unknown ids are absent
+    public Map<String, Book> getBooksByIds(Collection<String> ids) {
+        return bookCache.getBooks(ids, bookRepository::findAllById);
+    }
 
-        if (existingBookOpt.isPresent()) {
-            Book existingBook = existingBookOpt.get();
+    // Method to replace a book's fields; with an expected version the update only applies if nobody
+    // has changed the book since that version was read (409 otherwise)
+    public Book updateBook(String id, Book updatedBook, MultipartFile imageFile, Long expectedVersion) throws IOException {
+        Update update = new Update()
+                .set("title", updatedBook.getTitle())
+                .set("author", updatedBook.getAuthor())
+                .set("description", updatedBook.getDescription())
+                .set("price", updatedBook.getPrice())
+                .set("category", updatedBook.getCategory())
+                .set("language", updatedBook.getLanguage())
+                .set("publisher", updatedBook.getPublisher());
 
-            // Update fields
-            existingBook.setTitle(updatedBook.getTitle());
-            existingBook.setAuthor(updatedBook.getAuthor());
-            existingBook.setDescription(updatedBook.getDescription());
-            existingBook.setPrice(updatedBook.getPrice());
-            existingBook.setCategory(updatedBook.getCategory());
-            existingBook.setLanguage(updatedBook.getLanguage());
-            existingBook.setPublisher(updatedBook.getPublisher());
+        // Handle image update only if a new image is provided; the old one is released
+        // only once the book no longer points at it
+        String newImage = null;
+        if (imageFile != null && !imageFile.isEmpty()) {
+            newImage = saveImage(imageFile);
+            update.set("image", newImage);
+        }
+        String image = newImage;
 
-            // Handle image update only if a new image is provided
-            if (imageFile != null && !imageFile.isEmpty()) {
-                // Delete old image if exists
-                if (existingBook.getImage() != null) {
-                    deleteImage(existingBook.getImage());
+        Book savedBook;
+        try {
+            savedBook = applyUpdate(id, expectedVersion, update, book -> {
+                book.setTitle(updatedBook.getTitle());
+                book.setAuthor(updatedBook.getAuthor());
+                book.setDescription(updatedBook.getDescription());
+                book.setPrice(updatedBook.getPrice());
+                book.setCategory(updatedBook.getCategory());
+                book.setLanguage(updatedBook.getLanguage());
+                book.setPublisher(updatedBook.getPublisher());
+                if (image != null) {
+                    book.setImage(image);
                 }
-                // Save new image
-                String imagePath = saveImage(imageFile);
-                existingBook.setImage(imagePath);
+            });
+        } catch (RuntimeException e) {
+            if (newImage != null) {
+                deleteImage(newImage);
+            }
+            if (e instanceof ResponseStatusException) {
+                throw e;
             }
+            log.error("Error while updating book {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating book", e);
+        }
+        return savedBook;
+    }
 
-            try {
-                return bookRepository.save(existingBook);
-            } catch (Exception e) {
-                // Log the error if saving fails
-                System.out.println("Error while updating book: " + e.getMessage());
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating book", e);
+    // Method to apply a JSON merge patch: only the fields present are written, null removes a field.
+    // A "version" entry makes the update conditional like updateBook's expected version.
+    public Book patchBook(String id, Map<String, Object> changes) {
+        Map<String, Object> fields = new LinkedHashMap<>(changes);
+        Long expectedVersion = OptimisticVersion.parse(fields.remove(OptimisticVersion.FIELD));
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        Update update = new Update();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            field.setValue(patchValue(field.getKey(), field.getValue()));
+            if (field.getValue() == null) {
+                update.unset(field.getKey());
+            } else {
+                update.set(field.getKey(), field.getValue());
             }
-        } else {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found with id: " + id);
         }
+        return applyUpdate(id, expectedVersion, update, book -> fields.forEach((field, value) -> {
+            switch (field) {
+                case "title" -> book.setTitle((String) value);
+                case "author" -> book.setAuthor((String) value);
+                case "description" -> book.setDescription((String) value);
+                case "price" -> book.setPrice((Double) value);
+                case "category" -> book.setCategory((String) value);
+                case "language" -> book.setLanguage((String) value);
+                default -> book.setPublisher((String) value);
+            }
+        }));
     }
 
+    // One findAndModify; the stored book is never read and written back, so concurrent updates of
+    // different fields do not overwrite each other. "changes" turns the returned before-image into
+    // the after-image for the BookChangedEvent.
+    private Book applyUpdate(String id, Long expectedVersion, Update update, Consumer<Book> changes) {
+        Book previousBook = bookRepository.updateIfVersion(id, expectedVersion, update);
+        if (previousBook == null) {
+            if (expectedVersion != null && bookRepository.existsById(id)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Book has been changed by someone else; reload it and try again");
+            }
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found with id: " + id);
+        }
+        Book savedBook = previousBook.copy();
+        changes.accept(savedBook);
+        savedBook.setVersion((previousBook.getVersion() == null ? 0 : previousBook.getVersion()) + 1);
+        // A new upload took a reference even when it is the same file as before (identical content
+        // gets the same name), so the old image's reference is released either way
+        if (update.modifies("image") && previousBook.getImage() != null) {
+            deleteImage(previousBook.getImage());
+        }
+        eventPublisher.publishEvent(new BookChangedEvent(previousBook, savedBook));
+        return savedBook;
+    }
 
+    private static Object patchValue(String field, Object value) {
+        if (!PATCHABLE_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Field cannot be updated: " + field);
+        }
+        if ("price".equals(field)) {
+            if (!(value instanceof Number price) || price.doubleValue() < 0) {
+                throw new IllegalArgumentException("price must be a number >= 0");
+            }
+            return price.doubleValue();
+        }
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        if ("title".equals(field) && (value == null || ((String) value).isBlank())) {
+            throw new IllegalArgumentException("title must not be blank");
+        }
+        return value;
+    }
 
     // Method to delete a book by ID
     public void deleteBook(String id) throws IOException {
         Optional<Book> bookOpt = bookRepository.findById(id);
         if (bookOpt.isPresent()) {
             Book book = bookOpt.get();
+            bookRepository.deleteById(id);
             // Delete associated image if exists
             if (book.getImage() != null) {
                 deleteImage(book.getImage());
             }
-            bookRepository.deleteById(id);
+            eventPublisher.publishEvent(new BookChangedEvent(book, null));
         }
     }
 
-    // Helper method to save image file
+    // Helper method to save image file; identical uploads are stored once
     private String saveImage(MultipartFile imageFile) throws IOException {
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        uploadSizes.record(imageFile.getSize());
+        String fileName;
+        try (InputStream content = imageFile.getInputStream()) {
+            fileName = imageStore.put(content, imageFile.getOriginalFilename());
         }
 
-        // Generate unique filename
-        String fileName = System.currentTimeMillis() + "_" +
-                Objects.requireNonNull(imageFile.getOriginalFilename())
-                        .replace(" ", "_");
-
-        // Save file
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(imageFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Thumbnail/card/detail variants are produced in the background
+        imageDerivativeService.generateAsync(fileName);
 
         return fileName; // Return just the filename to store in DB
     }
 
-    // Helper method to delete image file
-    private void deleteImage(String imageName) throws IOException {
-        Path imagePath = Paths.get(uploadDir).resolve(imageName);
-        if (Files.exists(imagePath)) {
-            Files.delete(imagePath);
-        }
+    // Helper method to release an image; the garbage collector deletes the file and its variants
+    // in the background once no book uses it any more
+    private void deleteImage(String imageName) {
+        imageGarbageCollector.releaseLater(imageName);
     }
 
     // Helper method to get image path (for serving images)
     public Path getImagePath(String imageName) {
-        return Paths.get(uploadDir).resolve(imageName);
+        return imageStore.resolve(imageName);
     }
 
 
 
     // Get image path for serving images
     public FileSystemResource getImage(String imageName) {
-        return new FileSystemResource(Paths.get(uploadDir).resolve(imageName).toFile());
+        checkImageName(imageName);
+        return new FileSystemResource(imageStore.resolve(imageName));
+    }
+
+    // Get a resized variant for serving; empty when the original has to be served as uploaded
+    public Optional<FileSystemResource> getImageVariant(String imageName, ImageVariant variant) throws IOException {
+        checkImageName(imageName);
+        return imageDerivativeService.getVariant(imageName, variant).map(FileSystemResource::new);
+    }
+
+    // Image names come from the URL, so they must stay a plain file name inside the upload directory
+    private static void checkImageName(String imageName) {
+        if (imageName == null || imageName.isBlank() || imageName.equals(".") || imageName.equals("..")
+                || imageName.contains("/") || imageName.contains("\\")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid image name");
+        }
     }
 }
 
@@ -0,0 +1,536 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookSuggestion;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.event.OrderPlacedEvent;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.bookshop.pahana.repository.CheckoutRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typeahead over titles and authors. Every word start of a normalized title/author is a key in a
+// radix trie, and each trie node keeps the best MAX_SUGGESTIONS entries of its subtree, so a lookup
+// is one walk down the trie followed by a slice of a precomputed array. Entries are ranked by units
+// sold (from checkout history) and kept current from catalog and order events.
+@Component
+public class BookSuggester implements CatalogProjection {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Bounds on what gets indexed: suggestions match the first few words and characters of a key
+    private static final int MAX_KEY_WORDS = 4;
+    private static final int MAX_KEY_LENGTH = 24;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingLong((Entry entry) -> -entry.weight)
+            .thenComparingInt(entry -> entry.text.length())
+            .thenComparing(entry -> entry.text)
+            .thenComparing(entry -> entry.type);
+
+    private final CheckoutRepository checkoutRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State(new HashMap<>());
+    private volatile boolean ready;
+    // Units sold while a rebuild is loading, replayed onto the new state when it is published
+    private Map<String, Long> unitsDuringRebuild;
+
+    public BookSuggester(CheckoutRepository checkoutRepository) {
+        this.checkoutRepository = checkoutRepository;
+    }
+
+    @Override
+    public String name() {
+        return "suggest";
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        String normalized = TextAnalyzer.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        boolean truncated = normalized.length() > MAX_KEY_LENGTH;
+        String key = truncated ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+
+        lock.readLock().lock();
+        try {
+            Entry[] top = state.find(key);
+            if (truncated) {
+                return filterLongPrefix(top, normalized, limit);
+            }
+            int count = Math.min(limit, top.length);
+            BookSuggestion[] suggestions = new BookSuggestion[count];
+            for (int i = 0; i < count; i++) {
+                suggestions[i] = top[i].suggestion;
+            }
+            return Arrays.asList(suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keys stop at MAX_KEY_LENGTH, so longer prefixes are checked against the full text
+    private static List<BookSuggestion> filterLongPrefix(Entry[] top, String prefix, int limit) {
+        List<BookSuggestion> suggestions = new ArrayList<>(limit);
+        for (Entry entry : top) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            if (entry.normalized.startsWith(prefix) || entry.normalized.contains(" " + prefix)) {
+                suggestions.add(entry.suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public Rebuild startRebuild() {
+        lock.writeLock().lock();
+        try {
+            unitsDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        State next = new State(new HashMap<>(checkoutRepository.countUnitsByBook()));
+        return new Rebuild() {
+            @Override
+            public void add(Book book) {
+                next.upsert(book);
+            }
+
+            @Override
+            public void publish() {
+                lock.writeLock().lock();
+                try {
+                    unitsDuringRebuild.forEach(next::addUnits);
+                    unitsDuringRebuild = null;
+                    state = next;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void upsert(Book book) {
+        lock.writeLock().lock();
+        try {
+            state.upsert(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            state.remove(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addUnits(event.checkout());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Orders an earlier run stored were already in the checkouts this instance's units were loaded from
+    @EventListener
+    public void onOrdersStored(OrdersStoredEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (Checkout checkout : event.checkouts()) {
+                if (!event.storedEarlier().contains(checkout.getId())) {
+                    addUnits(checkout);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnits(Checkout checkout) {
+        if (checkout.getCartItems() == null) {
+            return;
+        }
+        for (OrderLine line : checkout.getCartItems()) {
+            if (line != null && line.bookId() != null) {
+                long units = line.quantity();
+                state.addUnits(line.bookId(), units);
+                if (unitsDuringRebuild != null) {
+                    unitsDuringRebuild.merge(line.bookId(), units, Long::sum);
+                }
+            }
+        }
+    }
+
+    // A distinct title or author; several books can share one entry
+    private static final class Entry {
+        final String type;
+        final String text;
+        final String normalized;
+        final Set<String> keys;
+        final Set<String> bookIds = new LinkedHashSet<>();
+        long weight;
+        BookSuggestion suggestion;
+
+        Entry(String type, String text, String normalized) {
+            this.type = type;
+            this.text = text;
+            this.normalized = normalized;
+            this.keys = keysFor(normalized);
+        }
+
+        void refreshSuggestion() {
+            String bookId = BookSuggestion.TITLE.equals(type) && !bookIds.isEmpty() ? bookIds.iterator().next() : null;
+            suggestion = new BookSuggestion(text, type, bookId);
+        }
+
+        private static Set<String> keysFor(String normalized) {
+            Set<String> keys = new LinkedHashSet<>();
+            int start = 0;
+            for (int words = 0; words < MAX_KEY_WORDS && start < normalized.length(); words++) {
+                keys.add(normalized.substring(start, Math.min(normalized.length(), start + MAX_KEY_LENGTH)));
+                int space = normalized.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+            }
+            return keys;
+        }
+    }
+
+    private record IndexedBook(Entry title, Entry author) {
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        Entry[] own = NO_ENTRIES;
+        Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void addChild(Node child) {
+            int insertAt = -(childIndex(child.label.charAt(0)) + 1);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int index = childIndex(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            children = shrunk;
+        }
+
+        // Best entries of this subtree: own entries merged with the (already ranked) child tops
+        void refreshTop() {
+            Entry[] best = new Entry[MAX_SUGGESTIONS];
+            int count = 0;
+            for (Entry entry : own) {
+                count = offer(best, count, entry);
+            }
+            for (Node child : children) {
+                for (Entry entry : child.top) {
+                    if (count == best.length && RANKING.compare(entry, best[count - 1]) >= 0) {
+                        break;
+                    }
+                    count = offer(best, count, entry);
+                }
+            }
+            top = count == best.length ? best : Arrays.copyOf(best, count);
+        }
+
+        private static int offer(Entry[] best, int count, Entry entry) {
+            for (int i = 0; i < count; i++) {
+                if (best[i] == entry) {
+                    // The same entry can be reached through several of its keys
+                    return count;
+                }
+            }
+            if (count == best.length) {
+                if (RANKING.compare(entry, best[count - 1]) >= 0) {
+                    return count;
+                }
+                count--;
+            }
+            int i = count;
+            while (i > 0 && RANKING.compare(entry, best[i - 1]) < 0) {
+                best[i] = best[i - 1];
+                i--;
+            }
+            best[i] = entry;
+            return count + 1;
+        }
+    }
+
+    private static final class State {
+        final Node root = new Node("");
+        final Map<String, Entry> entries = new HashMap<>();
+        final Map<String, IndexedBook> books = new HashMap<>();
+        final Map<String, Long> unitsByBook;
+
+        State(Map<String, Long> unitsByBook) {
+            this.unitsByBook = unitsByBook;
+        }
+
+        Entry[] find(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                int index = node.childIndex(prefix.charAt(i));
+                if (index < 0) {
+                    return NO_ENTRIES;
+                }
+                Node child = node.children[index];
+                int matched = commonPrefix(child.label, prefix, i);
+                if (i + matched == prefix.length()) {
+                    // The prefix ends on or inside this edge: everything below the child matches
+                    return child.top;
+                }
+                if (matched < child.label.length()) {
+                    return NO_ENTRIES;
+                }
+                node = child;
+                i += matched;
+            }
+            return node.top;
+        }
+
+        void upsert(Book book) {
+            remove(book.getId());
+            Entry title = attach(BookSuggestion.TITLE, book.getTitle(), book.getId());
+            Entry author = attach(BookSuggestion.AUTHOR, book.getAuthor(), book.getId());
+            if (title != null || author != null) {
+                books.put(book.getId(), new IndexedBook(title, author));
+            }
+        }
+
+        void remove(String bookId) {
+            IndexedBook indexed = books.remove(bookId);
+            if (indexed != null) {
+                detach(indexed.title(), bookId);
+                detach(indexed.author(), bookId);
+            }
+        }
+
+        void addUnits(String bookId, long units) {
+            unitsByBook.merge(bookId, units, Long::sum);
+            IndexedBook indexed = books.get(bookId);
+            if (indexed == null) {
+                return;
+            }
+            for (Entry entry : new Entry[]{indexed.title(), indexed.author()}) {
+                if (entry != null) {
+                    entry.weight += units;
+                    refreshPaths(entry);
+                }
+            }
+        }
+
+        private Entry attach(String type, String text, String bookId) {
+            String normalized = TextAnalyzer.normalize(text);
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            String entryKey = type + ':' + normalized;
+            Entry entry = entries.get(entryKey);
+            if (entry == null) {
+                entry = new Entry(type, text.trim(), normalized);
+                entries.put(entryKey, entry);
+                for (String key : entry.keys) {
+                    insert(key, entry);
+                }
+            }
+            entry.bookIds.add(bookId);
+            entry.weight += unitsByBook.getOrDefault(bookId, 0L);
+            entry.refreshSuggestion();
+            refreshPaths(entry);
+            return entry;
+        }
+
+        private void detach(Entry entry, String bookId) {
+            if (entry == null || !entry.bookIds.remove(bookId)) {
+                return;
+            }
+            entry.weight -= unitsByBook.getOrDefault(bookId, 0L);
+            if (entry.bookIds.isEmpty()) {
+                entries.remove(entry.type + ':' + entry.normalized);
+                for (String key : entry.keys) {
+                    delete(key, entry);
+                }
+            } else {
+                entry.refreshSuggestion();
+                refreshPaths(entry);
+            }
+        }
+
+        private void insert(String key, Entry entry) {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int index = node.childIndex(key.charAt(i));
+                if (index < 0) {
+                    Node leaf = new Node(key.substring(i));
+                    node.addChild(leaf);
+                    node = leaf;
+                    break;
+                }
+                Node child = node.children[index];
+                int matched = commonPrefix(child.label, key, i);
+                if (matched < child.label.length()) {
+                    // Split the edge; the new middle node keeps the first character, so sibling order holds
+                    Node middle = new Node(child.label.substring(0, matched));
+                    child.label = child.label.substring(matched);
+                    middle.children = new Node[]{child};
+                    middle.top = child.top;
+                    node.children[index] = middle;
+                    child = middle;
+                }
+                node = child;
+                i += matched;
+            }
+            Entry[] own = Arrays.copyOf(node.own, node.own.length + 1);
+            own[own.length - 1] = entry;
+            node.own = own;
+        }
+
+        private void delete(String key, Entry entry) {
+            List<Node> path = pathTo(key);
+            if (path == null) {
+                return;
+            }
+            Node node = path.get(path.size() - 1);
+            node.own = Arrays.stream(node.own).filter(own -> own != entry).toArray(Entry[]::new);
+
+            // Drop nodes that no longer lead anywhere and fold single-child chains back into one edge
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node current = path.get(i);
+                Node parent = path.get(i - 1);
+                if (current.own.length == 0 && current.children.length == 0) {
+                    parent.removeChild(current);
+                } else if (current.own.length == 0 && current.children.length == 1) {
+                    Node only = current.children[0];
+                    current.label = current.label + only.label;
+                    current.children = only.children;
+                    current.own = only.own;
+                    current.top = only.top;
+                }
+            }
+            refreshPath(key);
+        }
+
+        // Every node whose subtree holds one of the entry's keys may rank it differently now
+        private void refreshPaths(Entry entry) {
+            for (String key : entry.keys) {
+                refreshPath(key);
+            }
+        }
+
+        private void refreshPath(String key) {
+            List<Node> path = pathTo(key);
+            if (path == null) {
+                // The key's own node is gone after a delete; refresh the part of the path that remains
+                path = partialPath(key);
+            }
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).refreshTop();
+            }
+        }
+
+        private List<Node> pathTo(String key) {
+            List<Node> path = partialPath(key);
+            int consumed = 0;
+            for (int i = 1; i < path.size(); i++) {
+                consumed += path.get(i).label.length();
+            }
+            return consumed == key.length() ? path : null;
+        }
+
+        private List<Node> partialPath(String key) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int i = 0;
+            while (i < key.length()) {
+                int index = node.childIndex(key.charAt(i));
+                if (index < 0) {
+                    break;
+                }
+                Node child = node.children[index];
+                int matched = commonPrefix(child.label, key, i);
+                if (matched < child.label.length()) {
+                    break;
+                }
+                node = child;
+                path.add(node);
+                i += matched;
+            }
+            return path;
+        }
+
+        private static int commonPrefix(String label, String key, int offset) {
+            int max = Math.min(label.length(), key.length() - offset);
+            int i = 0;
+            while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Book;
+
+// An in-memory view derived from the books collection (search index, facet counts, ...).
+// CatalogProjectionManager builds every projection from one pass over the collection and
+// then keeps them current from BookChangedEvents. upsert and remove must be idempotent
+// because events that arrive during a rebuild are replayed on top of the new state.
+public interface CatalogProjection {
+
+    String name();
+
+    // Starts building a replacement state; nothing is visible to readers until publish()
+    Rebuild startRebuild();
+
+    void upsert(Book book);
+
+    void remove(String bookId);
+
+    boolean isReady();
+
+    interface Rebuild {
+
+        void add(Book book);
+
+        void publish();
+    }
+}
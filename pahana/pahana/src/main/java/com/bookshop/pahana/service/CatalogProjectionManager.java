@@ -0,0 +1,151 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.event.BookChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Builds all CatalogProjections from a single cursor over the books collection once the
+// application is up, then applies every BookChangedEvent to them. Events that arrive while
+// a rebuild is streaming are buffered and replayed after the new state is published.
+@Component
+public class CatalogProjectionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogProjectionManager.class);
+
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final List<CatalogProjection> projections;
+    private final MongoTemplate mongoTemplate;
+    private final TaskExecutor taskExecutor;
+
+    // Guards the rebuilding flag and the buffered events; projections are only written under it
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean rebuilding;
+    private final List<BookChangedEvent> pending = new ArrayList<>();
+
+    public CatalogProjectionManager(List<CatalogProjection> projections, MongoTemplate mongoTemplate,
+                                    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor) {
+        this.projections = projections;
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!projections.isEmpty()) {
+            taskExecutor.execute(this::rebuildWithRetry);
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            if (rebuilding) {
+                pending.add(event);
+            } else {
+                apply(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rebuildWithRetry() {
+        Duration delay = Duration.ofSeconds(5);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                rebuild();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Catalog projection rebuild failed, retrying in {}s: {}", delay.toSeconds(), e.getMessage());
+            }
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = delay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay.multipliedBy(2);
+        }
+    }
+
+    public void rebuild() {
+        lock.lock();
+        try {
+            rebuilding = true;
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            long started = System.nanoTime();
+            List<CatalogProjection.Rebuild> rebuilds = new ArrayList<>(projections.size());
+            projections.forEach(projection -> rebuilds.add(projection.startRebuild()));
+
+            long count = 0;
+            Query query = new Query().cursorBatchSize(CURSOR_BATCH_SIZE);
+            try (Stream<Book> books = mongoTemplate.stream(query, Book.class)) {
+                for (Book book : (Iterable<Book>) books::iterator) {
+                    rebuilds.forEach(rebuild -> rebuild.add(book));
+                    count++;
+                }
+            }
+
+            lock.lock();
+            try {
+                rebuilds.forEach(CatalogProjection.Rebuild::publish);
+                pending.forEach(this::apply);
+                pending.clear();
+            } finally {
+                rebuilding = false;
+                lock.unlock();
+            }
+            log.info("Built {} catalog projections from {} books in {} ms", projections.size(), count,
+                    Duration.ofNanos(System.nanoTime() - started).toMillis());
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                // Keep serving the previous state and let live events reach it again
+                pending.forEach(this::apply);
+                pending.clear();
+                rebuilding = false;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void apply(BookChangedEvent event) {
+        for (CatalogProjection projection : projections) {
+            try {
+                if (event.after() != null) {
+                    projection.upsert(event.after());
+                } else {
+                    projection.remove(event.bookId());
+                }
+            } catch (RuntimeException e) {
+                // A broken projection must not fail the catalog write that triggered the event
+                log.error("Projection {} failed to apply change to book {}", projection.name(), event.bookId(), e);
+            }
+        }
+    }
+}
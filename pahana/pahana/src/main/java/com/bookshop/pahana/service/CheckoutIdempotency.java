@@ -0,0 +1,237 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.PlacedOrder;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.IdempotencyRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Places each order at most once per Idempotency-Key. A bounded in-memory cache answers retries
+// that reach this instance, and makes a duplicate that arrives while the first request is still
+// running wait for its result instead of placing a second order. The idempotency_keys collection
+// (unique _id, TTL on expiresAt) does the same across instances and restarts. Replays never read
+// or write the orders collection. Failed requests are forgotten, so retrying them runs again.
+// A claim is a lease of wait-timeout: if its holder died or lost its completion write, the next
+// request with the key takes it over instead of getting 409 until the record expires.
+@Service
+public class CheckoutIdempotency {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutIdempotency.class);
+
+    static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private record Attempt(String requestHash, CompletableFuture<PlacedOrder> result) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Cache<String, Attempt> attempts;
+    private final Counter replays;
+
+    public CheckoutIdempotency(MongoTemplate mongoTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${checkout.idempotency.ttl:24h}") Duration ttl,
+                               @Value("${checkout.idempotency.max-entries:10000}") long maxEntries,
+                               @Value("${checkout.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.attempts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.replays = Counter.builder("checkout.idempotency.replays")
+                .description("Checkout requests answered from an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    public PlacedOrder placeOnce(String key, Checkout request, Supplier<PlacedOrder> placeOrder) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        // Before placing: the order is re-priced in place
+        String requestHash = fingerprint(request);
+        Attempt mine = new Attempt(requestHash, new CompletableFuture<>());
+        Attempt earlier = attempts.asMap().putIfAbsent(key, mine);
+        if (earlier != null) {
+            checkSameRequest(earlier.requestHash(), requestHash);
+            replays.increment();
+            return await(earlier.result()).replay();
+        }
+        try {
+            PlacedOrder placed = placeOrClaim(key, requestHash, placeOrder);
+            mine.result().complete(placed);
+            return placed;
+        } catch (RuntimeException e) {
+            attempts.asMap().remove(key, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // The shared record decides between instances; without MongoDB the in-memory check still holds
+    private PlacedOrder placeOrClaim(String key, String requestHash, Supplier<PlacedOrder> placeOrder) {
+        while (true) {
+            Instant now = Instant.now();
+            try {
+                // An expired record MongoDB has not removed yet does not count
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(key).and("expiresAt").lte(now)),
+                        IdempotencyRecord.class);
+                mongoTemplate.insert(new IdempotencyRecord(key, requestHash, now, now.plus(ttl)));
+                break;
+            } catch (DuplicateKeyException e) {
+                PlacedOrder earlier = awaitRecord(key, requestHash);
+                if (earlier != null) {
+                    replays.increment();
+                    return earlier;
+                }
+                // The other request failed and released the key; this one may place the order
+            } catch (DataAccessException e) {
+                log.warn("Idempotency key {} only checked on this instance: {}", key, e.getMessage());
+                return placeOrder.get();
+            }
+        }
+
+        PlacedOrder placed;
+        try {
+            placed = placeOrder.get();
+        } catch (RuntimeException e) {
+            forget(key);
+            throw e;
+        }
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key)),
+                    new Update().set("response", withoutCard(placed.order())).set("status", placed.status()),
+                    IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            // An unanswered claim would hold up every retry; this instance still answers them from memory
+            log.warn("Order {} placed, but its idempotency record was not completed: {}",
+                    placed.order().getId(), e.getMessage());
+            forget(key);
+        }
+        return placed;
+    }
+
+    // Another instance holds the key: wait for its response; null once it has given the key up, or
+    // when the claim was already stale on arrival, and the caller may claim it. A claim that goes
+    // stale while this request waits still ends in 409; the client's next retry takes it over.
+    private PlacedOrder awaitRecord(String key, String requestHash) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        boolean arriving = true;
+        while (true) {
+            IdempotencyRecord record = mongoTemplate.findById(key, IdempotencyRecord.class);
+            if (record == null) {
+                return null;
+            }
+            checkSameRequest(record.getRequestHash(), requestHash);
+            if (record.getResponse() != null) {
+                return new PlacedOrder(record.getResponse(), record.getStatus(), true);
+            }
+            if (arriving && releaseIfStale(key)) {
+                log.warn("Idempotency key {} was claimed over {} ago without a response; taking it over", key, waitTimeout);
+                return null;
+            }
+            arriving = false;
+            if (System.nanoTime() > deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still being processed");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+            }
+        }
+    }
+
+    // A concurrent duplicate gets the first request's outcome, failure included
+    private PlacedOrder await(CompletableFuture<PlacedOrder> result) {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+        }
+    }
+
+    // Removes the claim only if it is still unanswered and older than the wait timeout; of several
+    // waiters, one removes it and the claim insert decides which of them places the order
+    private boolean releaseIfStale(String key) {
+        Instant cutoff = Instant.now().minus(waitTimeout);
+        Query stale = Query.query(Criteria.where("_id").is(key).and("response").is(null)
+                .orOperator(Criteria.where("claimedAt").lte(cutoff), Criteria.where("claimedAt").exists(false)));
+        return mongoTemplate.remove(stale, IdempotencyRecord.class).getDeletedCount() > 0;
+    }
+
+    private void forget(String key) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(key)), IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static void checkSameRequest(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String fingerprint(Checkout request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint the request", e);
+        }
+    }
+
+    // Card details are not copied into a second collection
+    private Checkout withoutCard(Checkout order) {
+        Checkout copy = objectMapper.convertValue(order, Checkout.class);
+        copy.setCardNumber(null);
+        copy.setExpiryDate(null);
+        copy.setCvv(null);
+        return copy;
+    }
+}
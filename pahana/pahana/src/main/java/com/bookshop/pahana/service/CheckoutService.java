@@ -1,35 +1,162 @@
 package com.bookshop.pahana.service;
 
+import com.bookshop.pahana.dto.OrderPage;
+import com.bookshop.pahana.entity.Book;
 import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.event.OrderDeletedEvent;
+import com.bookshop.pahana.event.OrderPlacedEvent;
 import com.bookshop.pahana.repository.CheckoutRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CheckoutService {
 
+    private static final Logger log = LoggerFactory.getLogger(CheckoutService.class);
+
+    static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private CheckoutRepository checkoutRepository;
 
-    // Save checkout data in the database
-    public Checkout saveCheckout(Checkout checkout) {
-        return checkoutRepository.save(checkout);
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    // Present only with checkout.ingestion.mode=write-behind
+    @Autowired(required = false)
+    private OrderWriteBehindQueue writeBehindQueue;
+
+    // reject: a client total that differs from the server price fails with 409; correct: it is replaced
+    @Value("${checkout.pricing.on-mismatch:reject}")
+    private String onPriceMismatch;
+
+    // Save checkout data in the database. customerId is the logged-in buyer, if any; only their own
+    // reservation can cover the order.
+    public Checkout saveCheckout(Checkout checkout, String customerId) {
+        validateLines(checkout.getCartItems());
+        Map<String, Book> books = priceOrder(checkout);
+        // One conditional update per tracked book; 409 (with nothing taken) if one has sold out
+        Map<String, Integer> stockTaken = inventoryService.take(InventoryService.quantities(checkout.getCartItems()),
+                inventoryService.claim(customerId, checkout.getReservationId()), books);
+        checkout.setStockTaken(stockTaken.isEmpty() ? null : stockTaken);
+        checkout.setCreatedAt(Instant.now());
+        try {
+            if (writeBehindQueue != null) {
+                // Stored (and OrdersStoredEvent published) by the queue's writer shortly afterwards
+                return writeBehindQueue.submit(checkout);
+            }
+            Checkout savedCheckout = checkoutRepository.save(checkout);
+            eventPublisher.publishEvent(new OrderPlacedEvent(savedCheckout));
+            return savedCheckout;
+        } catch (RuntimeException e) {
+            inventoryService.giveBack(checkout.getStockTaken());
+            throw e;
+        }
+    }
+
+    // True when saveCheckout only queues the order instead of storing it before returning
+    public boolean isWriteBehind() {
+        return writeBehindQueue != null;
     }
 
-    // Fetch all checkout data from the database
-    public List<Checkout> getAllCheckouts() {
-        return checkoutRepository.findAll();
+    // One keyset page of orders, newest first; "after" is the nextCursor of the previous page
+    public OrderPage getCheckoutsPage(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (after != null && !after.isBlank() && !ObjectId.isValid(after)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // One extra order tells whether another page exists without a count
+        List<Checkout> items = checkoutRepository.findPage(after == null || after.isBlank() ? null : after, limit + 1);
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items = items.subList(0, limit);
+        }
+        String nextCursor = hasMore ? items.get(items.size() - 1).getId() : null;
+        return new OrderPage(items, nextCursor, hasMore);
     }
 
+    // Re-prices every line from the catalog with a single multi-get, whatever the cart size.
+    // Titles, authors and unit prices sent by the client are replaced by the catalog values.
+    private Map<String, Book> priceOrder(Checkout checkout) {
+        Set<String> bookIds = new LinkedHashSet<>();
+        for (OrderLine line : checkout.getCartItems()) {
+            bookIds.add(line.bookId());
+        }
+        Map<String, Book> books = bookService.getBooksByIds(bookIds);
+
+        List<OrderLine> priced = new ArrayList<>(checkout.getCartItems().size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderLine line : checkout.getCartItems()) {
+            Book book = books.get(line.bookId());
+            if (book == null || book.getPrice() == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Book is no longer available: " + line.bookId());
+            }
+            priced.add(new OrderLine(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                    book.getPrice(), line.quantity()));
+            total = total.add(BigDecimal.valueOf(book.getPrice()).multiply(BigDecimal.valueOf(line.quantity())));
+        }
+        total = total.setScale(2, RoundingMode.HALF_UP);
+
+        Double claimed = checkout.getTotalPrice();
+        if (claimed != null && BigDecimal.valueOf(claimed).setScale(2, RoundingMode.HALF_UP).compareTo(total) != 0) {
+            if (!"correct".equalsIgnoreCase(onPriceMismatch)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Order total has changed to " + total.toPlainString() + "; please review your cart");
+            }
+            log.info("Corrected order total from {} to {}", claimed, total);
+        }
+        checkout.setCartItems(priced);
+        checkout.setTotalPrice(total.doubleValue());
+        return books;
+    }
+
+    private static void validateLines(List<OrderLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        for (OrderLine line : lines) {
+            if (line == null || line.bookId() == null || line.bookId().isBlank()) {
+                throw new IllegalArgumentException("Every order item needs a book id");
+            }
+            if (line.quantity() < 1) {
+                throw new IllegalArgumentException("Quantity must be at least 1");
+            }
+        }
+    }
 
     // Delete checkout data by ID with error handling
     public void deleteCheckoutById(String id) {  // Accept String id instead of Long
-        if (checkoutRepository.existsById(id)) {  // Check if entity exists
-            checkoutRepository.deleteById(id);
-        } else {
+        Checkout removed = checkoutRepository.removeById(id);
+        if (removed == null) {
             throw new RuntimeException("Order not found with id " + id);  // Custom exception if not found
         }
+        inventoryService.giveBack(removed.getStockTaken());
+        eventPublisher.publishEvent(new OrderDeletedEvent(removed));
     }
 }
@@ -4,23 +4,41 @@
 package com.bookshop.pahana.service;
 
 import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.event.CustomerChangedEvent;
 import com.bookshop.pahana.repository.CustomerRepository;
+import com.bookshop.pahana.repository.OptimisticVersion;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CustomerService {
 
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "email", "contactNumber", "address", "password");
+    // A customer cannot log in or be addressed without these
+    private static final Set<String> REQUIRED_FIELDS = Set.of("name", "email", "password");
+
     private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CustomerService(CustomerRepository customerRepository) {
+    public CustomerService(CustomerRepository customerRepository, ApplicationEventPublisher eventPublisher) {
         this.customerRepository = customerRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public Customers addCustomer(Customers customer) {
-        return customerRepository.save(customer);
+        customer.setVersion(0L);
+        Customers saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(saved.getId()));
+        return saved;
     }
 
     public List<Customers> getAllCustomers() {
@@ -35,12 +53,59 @@ public class CustomerService {
         return customerRepository.findByEmail(email);
     }
 
+    // Replaces the profile fields the edit form shows; with the version it was loaded at, a
+    // concurrent change gives 409 instead of being overwritten
     public Customers updateCustomer(String id, Customers updatedCustomer) {
-        updatedCustomer.setId(id);
-        return customerRepository.save(updatedCustomer);
+        Update update = new Update()
+                .set("name", updatedCustomer.getName())
+                .set("email", updatedCustomer.getEmail())
+                .set("password", updatedCustomer.getPassword())
+                .set("contactNumber", updatedCustomer.getContactNumber());
+        return applyUpdate(id, updatedCustomer.getVersion(), update);
+    }
+
+    // JSON merge patch: only the fields present are written, null removes an optional field
+    public Customers patchCustomer(String id, Map<String, Object> changes) {
+        Map<String, Object> fields = new LinkedHashMap<>(changes);
+        Long expectedVersion = OptimisticVersion.parse(fields.remove(OptimisticVersion.FIELD));
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        Update update = new Update();
+        fields.forEach((field, value) -> {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field cannot be updated: " + field);
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException(field + " must be a string");
+            }
+            if (value == null || ((String) value).isBlank()) {
+                if (REQUIRED_FIELDS.contains(field)) {
+                    throw new IllegalArgumentException(field + " must not be blank");
+                }
+                update.unset(field);
+            } else {
+                update.set(field, value);
+            }
+        });
+        return applyUpdate(id, expectedVersion, update);
+    }
+
+    private Customers applyUpdate(String id, Long expectedVersion, Update update) {
+        Customers saved = customerRepository.updateIfVersion(id, expectedVersion, update);
+        if (saved == null) {
+            if (expectedVersion != null && customerRepository.existsById(id)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Customer has been changed by someone else; reload and try again");
+            }
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found with id: " + id);
+        }
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
+        return saved;
     }
 
     public void deleteCustomer(String id) {
         customerRepository.deleteById(id);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
     }
 }
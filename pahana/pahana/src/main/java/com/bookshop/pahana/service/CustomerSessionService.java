@@ -0,0 +1,144 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.CustomerSummary;
+import com.bookshop.pahana.dto.SessionPrincipal;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.event.CustomerChangedEvent;
+import com.bookshop.pahana.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+// Stateless customer sessions. A token is base64url(JSON principal) + "." + base64url(HMAC-SHA256),
+// so checking one needs no database access. The customer behind a token is looked up through a
+// small bounded cache that is dropped whenever that customer changes.
+@Service
+public class CustomerSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSessionService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String BEARER = "Bearer ";
+
+    private final CustomerRepository customerRepository;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Cache<String, CustomerSummary> principals;
+
+    public CustomerSessionService(CustomerRepository customerRepository, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${auth.token.secret:}") String secret,
+                                  @Value("${auth.token.ttl:12h}") Duration ttl,
+                                  @Value("${auth.principal-cache.max-entries:10000}") long maxEntries,
+                                  @Value("${auth.principal-cache.ttl:5m}") Duration cacheTtl) {
+        this.customerRepository = customerRepository;
+        this.objectMapper = objectMapper;
+        this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+        this.ttl = ttl;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+    }
+
+    private static byte[] secretBytes(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("auth.token.secret is not set; using a random key, so sessions end when the application restarts");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+    public String issueToken(Customers customer) {
+        SessionPrincipal principal = new SessionPrincipal(customer.getId(), customer.getName(), Instant.now().plus(ttl));
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(principal);
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write session token", e);
+        }
+    }
+
+    // The principal of a valid, unexpired "Bearer <token>" header; empty for anything else
+    public Optional<SessionPrincipal> authenticate(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return Optional.empty();
+        }
+        String token = authorization.substring(BEARER.length()).trim();
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payload = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return Optional.empty();
+            }
+            SessionPrincipal principal = objectMapper.readValue(payload, SessionPrincipal.class);
+            if (principal.customerId() == null || principal.expiresAt() == null
+                    || principal.expiresAt().isBefore(Instant.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(principal);
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    // The logged-in customer, from the cache or one lookup by id
+    public Optional<CustomerSummary> getCustomer(SessionPrincipal principal) {
+        CustomerSummary cached = principals.getIfPresent(principal.customerId());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<CustomerSummary> customer = customerRepository.findById(principal.customerId())
+                .map(found -> new CustomerSummary(found.getId(), found.getName(), found.getEmail(),
+                        found.getContactNumber()));
+        customer.ifPresent(summary -> principals.put(summary.id(), summary));
+        return customer;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.customerId() != null) {
+            principals.invalidate(event.customerId());
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.bookshop.pahana.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates the resized, recompressed variants of uploaded covers. New uploads are processed on a
+// small bounded pool; anything the pool drops, and images uploaded before variants existed, are
+// generated on first request. Formats ImageIO cannot decode (e.g. WebP) are served as uploaded.
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    static final String DERIVATIVES_DIR = "derivatives";
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final Path uploadPath;
+    private final ImageStore imageStore;
+    private final ThreadPoolExecutor executor;
+    // One generation per image at a time, shared by the background task and on-demand requests
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageDerivativeService(@Value("${file.upload-dir}") String uploadDir,
+                                  ImageStore imageStore,
+                                  @Value("${images.derivatives.threads:2}") int threads,
+                                  @Value("${images.derivatives.queue-capacity:100}") int queueCapacity,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.uploadPath = Paths.get(uploadDir);
+        this.imageStore = imageStore;
+        AtomicInteger threadCount = new AtomicInteger();
+        // With virtual threads the pool still bounds how many images are resized at once (that part is CPU-bound)
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    String name = "image-derivatives-" + threadCount.incrementAndGet();
+                    if (virtualThreads) {
+                        return Thread.ofVirtual().name(name).unstarted(runnable);
+                    }
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> log.warn("Image derivative queue is full; variants will be generated on first request"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Queue generation of every variant for a freshly stored upload
+    public void generateAsync(String imageName) {
+        executor.execute(() -> {
+            try {
+                generate(imageName);
+            } catch (IOException e) {
+                log.warn("Could not generate variants for {}: {}", imageName, e.getMessage());
+            }
+        });
+    }
+
+    // Path of the requested variant, generating it first if needed; empty when the original
+    // cannot be decoded and should be served as is
+    public Optional<Path> getVariant(String imageName, ImageVariant variant) throws IOException {
+        Path target = variantPath(imageName, variant);
+        if (Files.exists(target)) {
+            return Optional.of(target);
+        }
+        return generate(imageName) ? Optional.of(target) : Optional.empty();
+    }
+
+    public void deleteVariants(String imageName) throws IOException {
+        for (ImageVariant variant : ImageVariant.values()) {
+            Files.deleteIfExists(variantPath(imageName, variant));
+        }
+    }
+
+    private boolean generate(String imageName) throws IOException {
+        CompletableFuture<Boolean> mine = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(imageName, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            boolean generated = writeVariants(imageName);
+            mine.complete(generated);
+            return generated;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(imageName, mine);
+        }
+    }
+
+    private boolean writeVariants(String imageName) throws IOException {
+        Path original = imageStore.resolve(imageName);
+        if (!Files.exists(original)) {
+            throw new IOException("Image not found: " + imageName);
+        }
+        // A deduplicated upload already has its variants
+        if (Arrays.stream(ImageVariant.values()).allMatch(variant -> Files.exists(variantPath(imageName, variant)))) {
+            return true;
+        }
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null) {
+            return false;
+        }
+        for (ImageVariant variant : ImageVariant.values()) {
+            Path target = variantPath(imageName, variant);
+            if (!Files.exists(target)) {
+                writeJpeg(resize(source, variant.maxSide()), target);
+            }
+        }
+        return true;
+    }
+
+    // Mirrors the original's location under the upload directory, so sharded blobs get sharded variants
+    private Path variantPath(String imageName, ImageVariant variant) {
+        Path relative = uploadPath.relativize(imageStore.resolve(imageName));
+        return uploadPath.resolve(DERIVATIVES_DIR).resolve(variant.directoryName())
+                .resolve(relative.resolveSibling(relative.getFileName() + ".jpg"));
+    }
+
+    // Never upscales; alpha is flattened onto white because JPEG has no transparency
+    private static BufferedImage resize(BufferedImage source, int maxSide) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, targetWidth, targetHeight);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // Written to a temporary file first so readers never see a partial image
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "variant", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean await(CompletableFuture<Boolean> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for image variants", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Image variant generation failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
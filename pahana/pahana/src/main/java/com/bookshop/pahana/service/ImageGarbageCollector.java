@@ -0,0 +1,203 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Book;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Keeps the image store and Book.image references consistent.
+// Requests only queue image releases; they are applied here off the request thread. A periodic
+// reconcile streams every referenced name from the books collection and every stored file, reports
+// orphans (files no book uses) and missing files (references without a file) as metrics, and
+// deletes orphans once they have stayed orphaned for the grace period. Deletes are rate limited.
+@Component
+public class ImageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageGarbageCollector.class);
+
+    private static final int MISSING_LOG_LIMIT = 20;
+
+    private final ImageStore imageStore;
+    private final ImageDerivativeService imageDerivativeService;
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final long deleteIntervalNanos;
+
+    private final BlockingQueue<String> pendingReleases = new LinkedBlockingQueue<>();
+    // When each orphan was first seen; only touched by the reconcile, which never runs concurrently
+    private final Map<String, Instant> orphanSince = new HashMap<>();
+    private final AtomicLong orphans = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final Counter deleted;
+    private long nextDeleteAt = System.nanoTime();
+    private final Lock throttleLock = new ReentrantLock();
+
+    public ImageGarbageCollector(ImageStore imageStore, ImageDerivativeService imageDerivativeService,
+                                 MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                                 @Value("${images.gc.enabled:true}") boolean enabled,
+                                 @Value("${images.gc.grace-period:24h}") Duration gracePeriod,
+                                 @Value("${images.gc.max-deletes-per-second:20}") int maxDeletesPerSecond) {
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.deleteIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxDeletesPerSecond);
+
+        Gauge.builder("images.gc.orphans", orphans, AtomicLong::get)
+                .description("Stored images no book refers to, as of the last reconcile")
+                .register(meterRegistry);
+        Gauge.builder("images.gc.missing", missing, AtomicLong::get)
+                .description("Book image references without a stored file, as of the last reconcile")
+                .register(meterRegistry);
+        Gauge.builder("images.gc.pending", pendingReleases, BlockingQueue::size)
+                .description("Image releases queued by requests")
+                .register(meterRegistry);
+        this.deleted = Counter.builder("images.gc.deleted")
+                .description("Images deleted by the garbage collector")
+                .register(meterRegistry);
+    }
+
+    // Called on the request path instead of deleting the file there
+    public void releaseLater(String imageName) {
+        pendingReleases.add(imageName);
+    }
+
+    @Scheduled(fixedDelayString = "${images.gc.release-delay:5s}", initialDelayString = "${images.gc.release-delay:5s}")
+    public void drainReleases() {
+        String name;
+        while ((name = pendingReleases.poll()) != null) {
+            throttle();
+            try {
+                if (imageStore.release(name)) {
+                    imageDerivativeService.deleteVariants(name);
+                    deleted.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Whatever is left behind is found again by the next reconcile
+                log.warn("Could not release image {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${images.gc.interval:1h}", initialDelayString = "${images.gc.initial-delay:10m}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reconcileOnce();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private void reconcileOnce() throws IOException {
+        Instant startedAt = Instant.now();
+        Set<String> referenced = new HashSet<>();
+        Map<String, String> referencedBy = new HashMap<>();
+        Query withImage = Query.query(Criteria.where("image").ne(null));
+        withImage.fields().include("image");
+        try (Stream<Book> books = mongoTemplate.stream(withImage, Book.class)) {
+            books.forEach(book -> {
+                referenced.add(book.getImage());
+                referencedBy.putIfAbsent(book.getImage(), book.getId());
+            });
+        }
+
+        Set<String> stored = new HashSet<>();
+        List<String> orphaned = new ArrayList<>();
+        try (Stream<String> names = imageStore.list()) {
+            names.forEach(name -> {
+                stored.add(name);
+                if (!referenced.contains(name)) {
+                    orphaned.add(name);
+                }
+            });
+        }
+
+        long missingCount = 0;
+        for (String name : referenced) {
+            if (!stored.contains(name)) {
+                if (missingCount++ < MISSING_LOG_LIMIT) {
+                    log.warn("Book {} refers to missing image {}", referencedBy.get(name), name);
+                }
+            }
+        }
+        missing.set(missingCount);
+        orphans.set(orphaned.size());
+        orphanSince.keySet().retainAll(new HashSet<>(orphaned));
+
+        Instant cutoff = startedAt.minus(gracePeriod);
+        int removed = 0;
+        for (String name : orphaned) {
+            Instant since = orphanSince.putIfAbsent(name, startedAt);
+            if (since == null || since.isAfter(cutoff)) {
+                continue;
+            }
+            throttle();
+            if (imageStore.deleteUnreferenced(name, cutoff, this::isReferenced)) {
+                imageDerivativeService.deleteVariants(name);
+                orphanSince.remove(name);
+                deleted.increment();
+                removed++;
+            }
+        }
+        int incomplete = imageStore.deleteIncompleteUploads(cutoff);
+        log.info("Image reconcile: {} stored, {} referenced, {} orphaned, {} missing, {} deleted, {} incomplete uploads removed in {} ms",
+                stored.size(), referenced.size(), orphaned.size(), missingCount, removed, incomplete,
+                Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    private boolean isReferenced(String name) {
+        return mongoTemplate.exists(Query.query(Criteria.where("image").is(name)), Book.class);
+    }
+
+    // Spaces deletes out so a large cleanup does not saturate the disk or MongoDB
+    // A lock rather than synchronized: parking inside a monitor would pin a virtual thread's carrier
+    private void throttle() {
+        throttleLock.lock();
+        try {
+            long now = System.nanoTime();
+            if (nextDeleteAt > now) {
+                LockSupport.parkNanos(nextDeleteAt - now);
+            }
+            nextDeleteAt = Math.max(now, nextDeleteAt) + deleteIntervalNanos;
+        } finally {
+            throttleLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainReleases();
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookshop.pahana.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Storage for uploaded cover images. The names handed out by put() are what Book.image holds:
+// "<sha256>.<ext>". Identical uploads share one blob whatever their extension, and a name never
+// changes its content.
+// Names from before the content-addressed store are still resolved and released.
+public interface ImageStore {
+
+    Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]{1,8}$");
+
+    static boolean isContentAddressed(String name) {
+        return CONTENT_ADDRESSED_NAME.matcher(name).matches();
+    }
+
+    // Stores the content (or finds the identical blob) and takes one reference to it
+    String put(InputStream content, String originalFilename) throws IOException;
+
+    // Drops one reference; true when it was the last one and the blob has been deleted
+    boolean release(String name) throws IOException;
+
+    // Local file backing a name; it may not exist
+    Path resolve(String name);
+
+    // Every stored name; the stream must be closed
+    Stream<String> list() throws IOException;
+
+    // Deletes a blob that no book uses, unless it was stored or re-uploaded after touchedBefore
+    // or isReferenced says otherwise; checked under the same lock put() takes
+    boolean deleteUnreferenced(String name, Instant touchedBefore, Predicate<String> isReferenced) throws IOException;
+
+    // Removes temporary files left by uploads that never finished; returns how many were removed
+    int deleteIncompleteUploads(Instant olderThan) throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.bookshop.pahana.service;
+
+import java.util.Locale;
+
+// Resized cover variants generated from every upload; sizes are the longest side in pixels
+public enum ImageVariant {
+
+    THUMB(240),
+    CARD(480),
+    DETAIL(1200);
+
+    private final int maxSide;
+
+    ImageVariant(int maxSide) {
+        this.maxSide = maxSide;
+    }
+
+    public int maxSide() {
+        return maxSide;
+    }
+
+    public String directoryName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageVariant from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported image size: " + value);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.StockLevel;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.entity.StockReservation;
+import com.bookshop.pahana.event.BookChangedEvent;
+import com.bookshop.pahana.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-book stock for books that track it (Book.stock != null). Every change is one conditional
+// $inc on the book's own document: selling a unit matches only while stock >= quantity, so two
+// buyers of the last copy cannot both get it, and buyers of different books never wait for each
+// other. There is no lock or transaction across books; an order that cannot get every line puts
+// back what it already took.
+// Cached books are not invalidated by sales, so Book.stock in catalog listings may lag behind;
+// getStock() reads the current figure.
+@Service
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration reservationTtl;
+    private final int maxUnitsPerBook;
+    private final int maxUnits;
+    private final Counter soldOut;
+
+    public InventoryService(BookRepository bookRepository, BookService bookService, MongoTemplate mongoTemplate,
+                            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                            @Value("${inventory.reservation.ttl:15m}") Duration reservationTtl,
+                            @Value("${inventory.reservation.max-units-per-book:10}") int maxUnitsPerBook,
+                            @Value("${inventory.reservation.max-units:50}") int maxUnits) {
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.reservationTtl = reservationTtl;
+        this.maxUnitsPerBook = maxUnitsPerBook;
+        this.maxUnits = maxUnits;
+        this.soldOut = Counter.builder("inventory.sold.out")
+                .description("Orders and reservations turned away because a book had too few units")
+                .register(meterRegistry);
+    }
+
+    // Units per book id; a book on several lines is added up
+    public static Map<String, Integer> quantities(List<OrderLine> lines) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderLine line : lines) {
+            quantities.merge(line.bookId(), line.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Takes what an order needs from stock, starting from the units a claimed reservation already
+    // holds: only the difference is taken or put back. "books" tells which books track stock.
+    // Returns the units now held per tracked book, or throws 409 after putting everything back.
+    public Map<String, Integer> take(Map<String, Integer> wanted, Map<String, Integer> held, Map<String, Book> books) {
+        Map<String, Integer> holding = new LinkedHashMap<>(held);
+        Map<String, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : wanted.entrySet()) {
+            String bookId = entry.getKey();
+            Book book = books.get(bookId);
+            if (book == null || book.getStock() == null) {
+                continue;
+            }
+            int quantity = entry.getValue();
+            int missing = quantity - holding.getOrDefault(bookId, 0);
+            if (missing > 0 && !bookRepository.takeStock(bookId, missing)) {
+                giveBack(holding);
+                soldOut.increment();
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Not enough copies in stock: " + book.getTitle());
+            }
+            if (missing < 0) {
+                bookRepository.returnStock(bookId, -missing);
+            }
+            holding.put(bookId, quantity);
+            taken.put(bookId, quantity);
+        }
+        // Reserved books the order no longer contains
+        holding.forEach((bookId, quantity) -> {
+            if (!taken.containsKey(bookId)) {
+                bookRepository.returnStock(bookId, quantity);
+            }
+        });
+        return taken;
+    }
+
+    public void giveBack(Map<String, Integer> taken) {
+        if (taken == null) {
+            return;
+        }
+        taken.forEach((bookId, quantity) -> {
+            if (quantity > 0) {
+                bookRepository.returnStock(bookId, quantity);
+            }
+        });
+    }
+
+    // Holds the cart's tracked books for reservation.ttl; 409 if any of them has too few units.
+    // A customer holds one reservation at a time, so a new one gives back the previous one, and
+    // the caps bound how much stock any one account can keep off the shelf.
+    public StockReservation reserve(String customerId, List<OrderLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("A reservation needs at least one item");
+        }
+        for (OrderLine line : lines) {
+            if (line == null || line.bookId() == null || line.bookId().isBlank() || line.quantity() < 1) {
+                throw new IllegalArgumentException("Every item needs a book id and a quantity of at least 1");
+            }
+        }
+        Map<String, Integer> wanted = quantities(lines);
+        long units = 0;
+        for (int quantity : wanted.values()) {
+            if (quantity > maxUnitsPerBook) {
+                throw new IllegalArgumentException("At most " + maxUnitsPerBook + " copies of a book can be reserved");
+            }
+            units += quantity;
+        }
+        if (units > maxUnits) {
+            throw new IllegalArgumentException("At most " + maxUnits + " copies can be reserved at a time");
+        }
+        cancelFor(customerId);
+        Map<String, Integer> held = take(wanted, Map.of(), bookService.getBooksByIds(wanted.keySet()));
+        StockReservation reservation = new StockReservation(customerId, held, Instant.now().plus(reservationTtl));
+        try {
+            return mongoTemplate.insert(reservation);
+        } catch (DuplicateKeyException e) {
+            giveBack(held);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Another reservation is being made for this account", e);
+        } catch (RuntimeException e) {
+            giveBack(held);
+            throw e;
+        }
+    }
+
+    // Removes the customer's unexpired reservation and returns the units it held, for the order to use.
+    // Unknown, expired or someone else's reservations hold nothing (the sweep puts expired ones back).
+    public Map<String, Integer> claim(String customerId, String reservationId) {
+        if (customerId == null || reservationId == null || reservationId.isBlank()) {
+            return Map.of();
+        }
+        Query query = Query.query(Criteria.where("_id").is(reservationId).and("customerId").is(customerId)
+                .and("expiresAt").gt(Instant.now()));
+        StockReservation reservation = mongoTemplate.findAndRemove(query, StockReservation.class);
+        return reservation == null || reservation.getItems() == null ? Map.of() : reservation.getItems();
+    }
+
+    // Only the customer who made a reservation can give it back early
+    public void cancel(String customerId, String reservationId) {
+        release(Query.query(Criteria.where("_id").is(reservationId).and("customerId").is(customerId)));
+    }
+
+    private void cancelFor(String customerId) {
+        release(Query.query(Criteria.where("customerId").is(customerId)));
+    }
+
+    private void release(Query query) {
+        StockReservation reservation = mongoTemplate.findAndRemove(query, StockReservation.class);
+        if (reservation != null) {
+            giveBack(reservation.getItems());
+        }
+    }
+
+    // Each expired reservation is removed before its units are put back, so an instance that
+    // loses the race for it does nothing and units are never returned twice
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval:30s}")
+    public void releaseExpired() {
+        Query expired = Query.query(Criteria.where("expiresAt").lte(Instant.now()));
+        int released = 0;
+        try {
+            StockReservation reservation;
+            while ((reservation = mongoTemplate.findAndRemove(expired, StockReservation.class)) != null) {
+                giveBack(reservation.getItems());
+                released++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not release expired stock reservations: {}", e.getMessage());
+        }
+        if (released > 0) {
+            log.info("Released {} expired stock reservations", released);
+        }
+    }
+
+    public StockLevel getStock(String bookId) {
+        Query query = Query.query(Criteria.where("_id").is(bookId));
+        query.fields().include("stock");
+        Book book = mongoTemplate.findOne(query, Book.class);
+        if (book == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found with id: " + bookId);
+        }
+        return new StockLevel(bookId, book.getStock());
+    }
+
+    // Sets the count after a stocktake; null stops tracking. Units held by reservations and
+    // open carts are not part of the count.
+    public StockLevel setStock(String bookId, Integer stock) {
+        if (stock != null && stock < 0) {
+            throw new IllegalArgumentException("stock must be >= 0");
+        }
+        Update update = stock == null ? new Update().unset("stock") : new Update().set("stock", stock);
+        Book before = bookRepository.updateIfVersion(bookId, null, update);
+        if (before == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found with id: " + bookId);
+        }
+        Book after = before.copy();
+        after.setStock(stock);
+        after.setVersion((before.getVersion() == null ? 0 : before.getVersion()) + 1);
+        eventPublisher.publishEvent(new BookChangedEvent(before, after));
+        return new StockLevel(bookId, stock);
+    }
+
+    // Delivered (positive) or written-off (negative) units, applied atomically alongside sales
+    public StockLevel adjustStock(String bookId, int delta) {
+        Book before = bookRepository.adjustStock(bookId, delta);
+        if (before == null) {
+            Integer stock = getStock(bookId).stock();
+            throw new ResponseStatusException(HttpStatus.CONFLICT, stock == null
+                    ? "Stock is not tracked for this book; set a count first"
+                    : "Only " + stock + " copies in stock");
+        }
+        Book after = before.copy();
+        after.setStock(before.getStock() + delta);
+        eventPublisher.publishEvent(new BookChangedEvent(before, after));
+        return new StockLevel(bookId, after.getStock());
+    }
+}
@@ -0,0 +1,229 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.ImageBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Image store on the local filesystem. Uploads are hashed while they stream to a temporary file,
+// then moved to uploads/ab/cd/<hash>.<ext> unless a blob with that hash already exists, under
+// whichever extension it was first uploaded with. Reference counts live in the image_blobs
+// collection; the file is deleted when the last reference is released.
+@Service
+public class LocalImageStore implements ImageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalImageStore.class);
+
+    static final String INCOMING_DIR = ".incoming";
+    private static final String DEFAULT_EXTENSION = "bin";
+
+    private final Path uploadPath;
+    private final MongoTemplate mongoTemplate;
+
+    // Serialises put/release of the same blob so a release cannot delete a file that a concurrent
+    // put has just counted. Only covers this process; one instance owns the upload directory.
+    private final Lock[] stripes = new Lock[64];
+
+    public LocalImageStore(@Value("${file.upload-dir}") String uploadDir, MongoTemplate mongoTemplate) {
+        this.uploadPath = Paths.get(uploadDir);
+        this.mongoTemplate = mongoTemplate;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public String put(InputStream content, String originalFilename) throws IOException {
+        Path incoming = uploadPath.resolve(INCOMING_DIR);
+        Files.createDirectories(incoming);
+        Path temp = Files.createTempFile(incoming, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Lock lock = stripe(hash);
+            lock.lock();
+            try {
+                // The same bytes uploaded as .jpg and .jpeg are one blob; the first name stays
+                String name = storedName(hash);
+                if (name == null) {
+                    name = hash + "." + extension(originalFilename);
+                }
+                Path target = resolve(name);
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                mongoTemplate.upsert(Query.query(Criteria.where("_id").is(name)),
+                        new Update().inc("refs", 1).setOnInsert("size", size).currentDate("touchedAt"), ImageBlob.class);
+                return name;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Name of the blob already holding this content: its reference count, or failing that its file
+    private String storedName(String hash) throws IOException {
+        ImageBlob blob = mongoTemplate.findOne(Query.query(Criteria.where("_id").regex("^" + hash + "\\.")),
+                ImageBlob.class);
+        if (blob != null) {
+            return blob.getId();
+        }
+        Path directory = uploadPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, hash + ".*")) {
+            for (Path file : files) {
+                return file.getFileName().toString();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean release(String name) throws IOException {
+        if (!ImageStore.isContentAddressed(name)) {
+            // Legacy uploads got a unique name each, so nothing else can refer to them
+            return Files.deleteIfExists(resolve(name));
+        }
+        Lock lock = stripe(name);
+        lock.lock();
+        try {
+            ImageBlob blob = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(name)),
+                    new Update().inc("refs", -1), FindAndModifyOptions.options().returnNew(true), ImageBlob.class);
+            if (blob == null) {
+                // Never counted (e.g. the count failed after the file was written); the GC decides
+                log.warn("Released image {} has no reference count; leaving the file in place", name);
+                return false;
+            }
+            if (blob.getRefs() > 0) {
+                return false;
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(name).and("refs").lte(0)), ImageBlob.class);
+            Files.deleteIfExists(resolve(name));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Path resolve(String name) {
+        if (!ImageStore.isContentAddressed(name)) {
+            return uploadPath.resolve(name);
+        }
+        // Two levels of 256 directories keep each directory small enough to list and back up
+        return uploadPath.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    @Override
+    public Stream<String> list() throws IOException {
+        if (!Files.isDirectory(uploadPath)) {
+            return Stream.empty();
+        }
+        Path derivatives = uploadPath.resolve(ImageDerivativeService.DERIVATIVES_DIR);
+        Path incoming = uploadPath.resolve(INCOMING_DIR);
+        return Files.walk(uploadPath)
+                .filter(path -> !path.startsWith(derivatives) && !path.startsWith(incoming))
+                .filter(Files::isRegularFile)
+                .map(path -> path.getFileName().toString());
+    }
+
+    @Override
+    public boolean deleteUnreferenced(String name, Instant touchedBefore, Predicate<String> isReferenced)
+            throws IOException {
+        Path file = resolve(name);
+        Lock lock = stripe(name);
+        lock.lock();
+        try {
+            if (!Files.exists(file) || Files.getLastModifiedTime(file).toInstant().isAfter(touchedBefore)) {
+                return false;
+            }
+            Query query = Query.query(Criteria.where("_id").is(name));
+            ImageBlob blob = mongoTemplate.findOne(query, ImageBlob.class);
+            if (blob != null && blob.getTouchedAt() != null && blob.getTouchedAt().isAfter(touchedBefore)) {
+                return false;
+            }
+            if (isReferenced.test(name)) {
+                return false;
+            }
+            mongoTemplate.remove(query, ImageBlob.class);
+            Files.deleteIfExists(file);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int deleteIncompleteUploads(Instant olderThan) throws IOException {
+        Path incoming = uploadPath.resolve(INCOMING_DIR);
+        if (!Files.isDirectory(incoming)) {
+            return 0;
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(incoming)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(olderThan) && Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    // Keyed on the content hash, so every name for the same bytes takes the same lock
+    private Lock stripe(String name) {
+        String key = ImageStore.isContentAddressed(name) ? name.substring(0, name.indexOf('.')) : name;
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private static String extension(String originalFilename) {
+        if (originalFilename == null) {
+            return DEFAULT_EXTENSION;
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,8}") ? extension : DEFAULT_EXTENSION;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
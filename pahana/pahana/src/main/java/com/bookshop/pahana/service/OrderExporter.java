@@ -0,0 +1,161 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.repository.CheckoutRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes orders straight from a MongoDB cursor to an output stream, one order (NDJSON) or one
+// order line (CSV) at a time, so memory use does not depend on how many orders are exported.
+@Service
+public class OrderExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "order_id,created_at,customer_name,email,phone,address,"
+            + "shipping_method,payment_method,book_id,title,author,quantity,unit_price,line_total,order_total";
+
+    private final CheckoutRepository checkoutRepository;
+    private final ObjectWriter orderWriter;
+    private final int batchSize;
+
+    public OrderExporter(CheckoutRepository checkoutRepository, ObjectMapper objectMapper,
+                         @Value("${checkout.export.batch-size:500}") int batchSize) {
+        this.checkoutRepository = checkoutRepository;
+        // Leave out the excluded card fields rather than writing them as nulls; flushing is left
+        // to the buffer instead of happening after every order
+        this.orderWriter = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writerFor(Checkout.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchSize = batchSize;
+    }
+
+    // Accepts a date (2024-05-01) or an ISO timestamp. A date used as the upper bound includes
+    // that whole day, so from=2024-05-01&to=2024-05-31 covers May.
+    public static Instant parseBound(String value, boolean upper) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return (upper ? date.plusDays(1) : date).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+
+    public long writeNdjson(Instant from, Instant to, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Checkout> orders = checkoutRepository.streamPlacedBetween(from, to, batchSize);
+             JsonGenerator json = orderWriter.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (Checkout order : (Iterable<Checkout>) orders::iterator) {
+                orderWriter.writeValue(json, order);
+                json.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long writeCsv(Instant from, Instant to, OutputStream out) throws IOException {
+        long count = 0;
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        csv.write(CSV_HEADER);
+        csv.write("\r\n");
+        try (Stream<Checkout> orders = checkoutRepository.streamPlacedBetween(from, to, batchSize)) {
+            for (Checkout order : (Iterable<Checkout>) orders::iterator) {
+                List<OrderLine> lines = order.getCartItems();
+                if (lines == null || lines.isEmpty()) {
+                    writeRow(csv, order, null);
+                } else {
+                    for (OrderLine line : lines) {
+                        writeRow(csv, order, line);
+                    }
+                }
+                count++;
+            }
+        }
+        csv.flush();
+        return count;
+    }
+
+    private static void writeRow(Writer csv, Checkout order, OrderLine line) throws IOException {
+        text(csv, order.getId()).write(',');
+        Instant placedAt = order.placedAt();
+        text(csv, placedAt == null ? null : placedAt.toString()).write(',');
+        text(csv, order.getName()).write(',');
+        text(csv, order.getEmail()).write(',');
+        text(csv, order.getPhone()).write(',');
+        text(csv, order.getAddress()).write(',');
+        text(csv, order.getShippingMethod()).write(',');
+        text(csv, order.getPaymentMethod()).write(',');
+        if (line != null) {
+            text(csv, line.bookId()).write(',');
+            text(csv, line.title()).write(',');
+            text(csv, line.author()).write(',');
+            csv.write(Integer.toString(line.quantity()));
+            csv.write(',');
+            number(csv, line.unitPrice()).write(',');
+            if (line.unitPrice() != null) {
+                csv.write(BigDecimal.valueOf(line.unitPrice()).multiply(BigDecimal.valueOf(line.quantity()))
+                        .setScale(2, RoundingMode.HALF_UP).toPlainString());
+            }
+            csv.write(',');
+        } else {
+            csv.write(",,,,,,");
+        }
+        number(csv, order.getTotalPrice()).write("\r\n");
+    }
+
+    // RFC 4180 quoting. Text that a spreadsheet would evaluate as a formula gets a leading quote.
+    private static Writer text(Writer csv, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return csv;
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            csv.write(value);
+            return csv;
+        }
+        csv.write('"');
+        csv.write(value.replace("\"", "\"\""));
+        csv.write('"');
+        return csv;
+    }
+
+    private static Writer number(Writer csv, Double value) throws IOException {
+        if (value != null) {
+            csv.write(BigDecimal.valueOf(value).toPlainString());
+        }
+        return csv;
+    }
+}
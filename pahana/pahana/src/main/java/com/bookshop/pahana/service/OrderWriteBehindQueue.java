@@ -0,0 +1,627 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Write-behind order ingestion (checkout.ingestion.mode=write-behind). An accepted order is given
+// its id, appended to a local journal and acknowledged; a single writer thread bulk-inserts the
+// queued orders into MongoDB in batches of up to batch-size, waiting at most flush-interval to fill
+// one. The journal is split into segments that are deleted once every order in them is stored,
+// and whatever is left is replayed on startup. Re-inserting an order that did reach MongoDB before
+// a crash fails on its _id and counts as stored, so replay never duplicates an order.
+// Connection trouble is retried until it clears; an order MongoDB refuses outright (validation,
+// size) is moved to rejected-orders.jsonl with its stock put back, so it cannot stall the writer.
+// Card details are never written to the journal; an order stored from a replay is stored without them.
+@Component
+@ConditionalOnProperty(name = "checkout.ingestion.mode", havingValue = "write-behind")
+public class OrderWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteBehindQueue.class);
+
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String REJECTED_FILE = "rejected-orders.jsonl";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final long MAX_RETRY_DELAY_MS = 5_000;
+    // Stored batches waiting for their event; beyond this the writer publishes them itself
+    private static final int EVENT_BACKLOG = 64;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper journalMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryService inventoryService;
+    private final Path journalDir;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Duration offerTimeout;
+    private final Duration shutdownTimeout;
+    private final int segmentRecords;
+    private final boolean fsync;
+
+    // One permit per queued order: when they run out, submit waits up to offer-timeout, then 503s
+    private final Semaphore capacity;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Group commit: one force() covers every record appended before it started
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Counter rejected;
+    private final ThreadPoolExecutor events;
+    private Segment current;
+    private long nextSegmentNumber;
+    private long appended;
+    private volatile long synced;
+    private volatile boolean accepting;
+    private volatile boolean stopping;
+    private Thread writer;
+
+    // holdsPermit is false for orders replayed from an earlier run's journal
+    private record Entry(Checkout checkout, Segment segment, boolean holdsPermit) {
+    }
+
+    @JsonIgnoreProperties({"cardNumber", "expiryDate", "cvv"})
+    private interface WithoutCard {
+    }
+
+    // One journal file; deleted once sealed (no more appends) and every order in it is stored.
+    // Guarded by a ReentrantLock rather than its monitor: force() and seal() fsync while holding it,
+    // and a virtual thread blocked in a monitor would pin its carrier (JDK 21-23).
+    private static final class Segment {
+        final Path path;
+        final ReentrantLock lock = new ReentrantLock();
+        FileChannel channel;
+        int written;
+        int persisted;
+        boolean sealed;
+        boolean deleted;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+
+        // Returns the number of records now in the segment
+        int markWritten() {
+            lock.lock();
+            try {
+                return ++written;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void markPersisted() {
+            lock.lock();
+            try {
+                persisted++;
+                deleteIfDone();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void force() throws IOException {
+            lock.lock();
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // With fsync the tail is forced first: submitters still waiting on a group commit rely on it
+        void seal(boolean fsync) {
+            lock.lock();
+            try {
+                sealed = true;
+                try {
+                    if (channel != null) {
+                        if (fsync) {
+                            channel.force(false);
+                        }
+                        channel.close();
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not close order journal {}: {}", path, e.getMessage());
+                }
+                channel = null;
+                deleteIfDone();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isDrained() {
+            lock.lock();
+            try {
+                return persisted == written;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deleteIfDone() {
+            if (!sealed || deleted || persisted < written) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(path);
+                deleted = true;
+            } catch (IOException e) {
+                log.warn("Could not delete order journal {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    public OrderWriteBehindQueue(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                                 ApplicationEventPublisher eventPublisher, InventoryService inventoryService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${checkout.ingestion.journal-dir:data/order-journal}") String journalDir,
+                                 @Value("${checkout.ingestion.capacity:10000}") int capacity,
+                                 @Value("${checkout.ingestion.batch-size:500}") int batchSize,
+                                 @Value("${checkout.ingestion.flush-interval:200ms}") Duration flushInterval,
+                                 @Value("${checkout.ingestion.offer-timeout:1s}") Duration offerTimeout,
+                                 @Value("${checkout.ingestion.shutdown-timeout:10s}") Duration shutdownTimeout,
+                                 @Value("${checkout.ingestion.segment-records:10000}") int segmentRecords,
+                                 @Value("${checkout.ingestion.fsync:true}") boolean fsync) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.journalMapper = objectMapper.copy().addMixIn(Checkout.class, WithoutCard.class);
+        this.eventPublisher = eventPublisher;
+        this.inventoryService = inventoryService;
+        this.journalDir = Paths.get(journalDir);
+        this.capacity = new Semaphore(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeout = offerTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.segmentRecords = segmentRecords;
+        this.fsync = fsync;
+        Gauge.builder("orders.write_behind.pending", queue, BlockingQueue::size)
+                .description("Accepted orders not yet stored in MongoDB")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.write_behind.rejected")
+                .description("Accepted orders MongoDB refused to store; kept in " + REJECTED_FILE)
+                .register(meterRegistry);
+        // Listeners run here rather than on the writer, so a slow or failing one cannot stall storing
+        this.events = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(EVENT_BACKLOG),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-events");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(journalDir);
+        replay();
+        writer = new Thread(this::drain, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+        accepting = true;
+    }
+
+    // Journals the order and returns it with its id; it is stored in MongoDB shortly afterwards
+    public Checkout submit(Checkout checkout) {
+        if (!accepting) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order intake is shutting down");
+        }
+        try {
+            if (!capacity.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending orders; please retry");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while queueing the order", e);
+        }
+        checkout.setId(new ObjectId().toHexString());
+        byte[] json;
+        try {
+            json = journalRecord(checkout);
+        } catch (IOException e) {
+            capacity.release();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Could not journal the order", e);
+        }
+        long sequence;
+        appendLock.lock();
+        try {
+            ByteBuffer record = ByteBuffer.wrap(json);
+            Segment segment = currentSegment();
+            while (record.hasRemaining()) {
+                segment.channel.write(record);
+            }
+            int written = segment.markWritten();
+            sequence = ++appended;
+            queue.add(new Entry(checkout, segment, true));
+            if (written >= segmentRecords) {
+                segment.seal(fsync);
+                current = null;
+            }
+        } catch (IOException e) {
+            capacity.release();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Could not journal the order", e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (fsync) {
+            sync(sequence, checkout.getId());
+        }
+        return checkout;
+    }
+
+    // Waits until the record with this sequence number is on disk. Whoever gets the lock forces
+    // everything appended so far, so submitters that arrived meanwhile are usually covered already.
+    private void sync(long sequence, String orderId) {
+        if (synced >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= sequence) {
+                return;
+            }
+            long upTo;
+            Segment segment;
+            appendLock.lock();
+            try {
+                upTo = appended;
+                segment = current;
+            } finally {
+                appendLock.unlock();
+            }
+            // Records in segments sealed since then were forced when they were sealed
+            if (segment != null) {
+                segment.force();
+            }
+            synced = upTo;
+        } catch (IOException e) {
+            // The order is already queued and will be stored; only a crash before that would lose it
+            log.error("Order {} accepted but the journal could not be flushed: {}", orderId, e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private byte[] journalRecord(Checkout checkout) throws IOException {
+        byte[] json = journalMapper.writeValueAsBytes(checkout);
+        byte[] record = new byte[json.length + 1];
+        System.arraycopy(json, 0, record, 0, json.length);
+        record[json.length] = '\n';
+        return record;
+    }
+
+    private Segment currentSegment() throws IOException {
+        if (current == null) {
+            Segment segment = new Segment(journalDir.resolve(String.format("%s%012d%s",
+                    SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX)));
+            segment.channel = FileChannel.open(segment.path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            current = segment;
+        }
+        return current;
+    }
+
+    // Queues the orders of journals left by a previous run; a torn last line from a crash is skipped
+    private void replay() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            segments = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        int replayed = 0;
+        for (Path path : segments) {
+            String name = path.getFileName().toString();
+            long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentNumber = Math.max(nextSegmentNumber, number + 1);
+
+            Segment segment = new Segment(path);
+            List<Checkout> orders = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        orders.add(objectMapper.readValue(line, Checkout.class));
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable record in order journal {}: {}", path, e.getMessage());
+                    }
+                }
+            }
+            segment.written = orders.size();
+            for (Checkout order : orders) {
+                queue.add(new Entry(order, segment, false));
+            }
+            segment.seal(false);
+            replayed += orders.size();
+        }
+        if (replayed > 0) {
+            log.info("Replaying {} journaled orders from {} segments", replayed, segments.size());
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    try {
+                        sealIfIdle();
+                    } catch (RuntimeException e) {
+                        log.error("Order writer could not close the idle journal segment", e);
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    Entry next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    persist(batch);
+                } catch (RuntimeException e) {
+                    // Whatever was not marked stored stays journaled and is replayed on the next start
+                    log.error("Order writer failed on a batch of {} orders", batch.size(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutdown timed out; unsaved orders stay in the journal for the next start
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void persist(List<Entry> batch) throws InterruptedException {
+        List<Checkout> stored = new ArrayList<>(batch.size());
+        Set<String> storedEarlier = new HashSet<>();
+        store(batch, true, stored, storedEarlier);
+        int permits = 0;
+        for (Entry entry : batch) {
+            entry.segment().markPersisted();
+            if (entry.holdsPermit()) {
+                permits++;
+            }
+        }
+        capacity.release(permits);
+        if (!stored.isEmpty()) {
+            OrdersStoredEvent event = new OrdersStoredEvent(stored, storedEarlier);
+            events.execute(() -> publish(event));
+        }
+    }
+
+    // Inserts the entries, retrying transient failures until they clear. A batch MongoDB refuses as a
+    // whole is split into single orders, so only the orders it refuses themselves are rejected.
+    private void store(List<Entry> entries, boolean firstAttempt, List<Checkout> stored, Set<String> storedEarlier)
+            throws InterruptedException {
+        long delayMs = 100;
+        while (true) {
+            Map<Integer, BulkWriteError> errors;
+            try {
+                errors = insert(entries);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    log.warn("Could not store {} queued orders, retrying in {} ms: {}", entries.size(), delayMs, e.getMessage());
+                    Thread.sleep(delayMs);
+                    delayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+                    firstAttempt = false;
+                    continue;
+                }
+                if (entries.size() == 1) {
+                    reject(entries.get(0), e.getMessage());
+                    return;
+                }
+                for (Entry entry : entries) {
+                    store(List.of(entry), false, stored, storedEarlier);
+                }
+                return;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                BulkWriteError error = errors.get(i);
+                if (error == null || error.getCode() == DUPLICATE_KEY) {
+                    stored.add(entry.checkout());
+                    // A replayed order already there on our first try was stored before the restart
+                    if (error != null && firstAttempt && !entry.holdsPermit()) {
+                        storedEarlier.add(entry.checkout().getId());
+                    }
+                } else {
+                    reject(entry, error.getMessage());
+                }
+            }
+            return;
+        }
+    }
+
+    // Unordered bulk insert; returns the write errors by position in the batch
+    private Map<Integer, BulkWriteError> insert(List<Entry> batch) {
+        List<Checkout> checkouts = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            checkouts.add(entry.checkout());
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Checkout.class);
+        operations.insert(checkouts);
+        try {
+            operations.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            return byIndex(e, e.getErrors());
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof MongoBulkWriteException bulk) {
+                return byIndex(e, bulk.getWriteErrors());
+            }
+            throw e;
+        }
+    }
+
+    // No per-order errors means the batch failed as a whole, e.g. on write concern: retry all of it
+    private static Map<Integer, BulkWriteError> byIndex(DataAccessException e, List<BulkWriteError> errors) {
+        if (errors.isEmpty()) {
+            throw new TransientDataAccessResourceException(e.getMessage(), e);
+        }
+        Map<Integer, BulkWriteError> byIndex = new HashMap<>();
+        for (BulkWriteError error : errors) {
+            byIndex.put(error.getIndex(), error);
+        }
+        return byIndex;
+    }
+
+    // Worth retrying: MongoDB unreachable, timing out or between primaries
+    static boolean isTransient(RuntimeException e) {
+        if (e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoSocketException || cause instanceof MongoTimeoutException) {
+                return true;
+            }
+            if (cause instanceof MongoException mongo && (mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                    || mongo.hasErrorLabel("RetryableWriteError"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The order will never be stored: keep it for a person to look at and release its stock
+    private void reject(Entry entry, String reason) {
+        Checkout checkout = entry.checkout();
+        rejected.increment();
+        log.error("Order {} was accepted but MongoDB refused to store it; moved to {}: {}",
+                checkout.getId(), REJECTED_FILE, reason);
+        try {
+            ObjectNode record = journalMapper.createObjectNode();
+            record.put("rejectedAt", Instant.now().toString());
+            record.put("reason", reason);
+            record.set("order", journalMapper.valueToTree(checkout));
+            byte[] line = (journalMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(journalDir.resolve(REJECTED_FILE), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Could not record rejected order {}: {}", checkout.getId(), e.getMessage());
+        }
+        try {
+            inventoryService.giveBack(checkout.getStockTaken());
+        } catch (RuntimeException e) {
+            log.error("Stock of rejected order {} not put back ({}): {}", checkout.getId(),
+                    checkout.getStockTaken(), e.getMessage());
+        }
+    }
+
+    private void publish(OrdersStoredEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.error("A listener failed on {} stored orders", event.checkouts().size(), e);
+        }
+    }
+
+    // Closes the current segment once everything in it is stored, so its file can go
+    private void sealIfIdle() {
+        appendLock.lock();
+        try {
+            if (current != null && current.isDrained()) {
+                current.seal(fsync);
+                current = null;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        stopping = true;
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.warn("{} orders not yet stored; they stay journaled until the next start", queue.size());
+            writer.interrupt();
+        }
+        events.shutdown();
+        if (!events.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Stored orders still waiting for their event at shutdown");
+        }
+        appendLock.lock();
+        try {
+            if (current != null) {
+                current.seal(fsync);
+                current = null;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
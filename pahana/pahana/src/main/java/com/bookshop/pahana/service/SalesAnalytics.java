@@ -0,0 +1,411 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.SalesFigures;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.entity.SalesRollup;
+import com.bookshop.pahana.event.OrderDeletedEvent;
+import com.bookshop.pahana.event.OrderPlacedEvent;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Sales figures per day, book, category, shipping and payment method, kept in the small
+// sales_rollups collection. Every placed or deleted order adds or subtracts its share with one
+// bulk $inc, so dashboard queries read a handful of documents however many orders there are.
+// rebuild() recomputes everything from the checkouts collection.
+// Each counted order leaves its id in sales_rollup_orders, so an order announced twice (e.g. again
+// after a journal replay) is counted once, and deleting an order only subtracts what was added.
+@Service
+public class SalesAnalytics {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesAnalytics.class);
+
+    public static final String DAY = "day";
+    public static final String BOOK = "book";
+    public static final String CATEGORY = "category";
+    public static final String SHIPPING = "shipping";
+    public static final String PAYMENT = "payment";
+    private static final String TOTAL = "total";
+    static final String COUNTED_ORDERS = "sales_rollup_orders";
+    private static final int DUPLICATE_KEY = 11000;
+
+    static final String UNKNOWN = "unknown";
+    static final int MAX_DAYS = 366;
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final BookService bookService;
+    private final ZoneId zone;
+    private final Counter failures;
+
+    public SalesAnalytics(MongoTemplate mongoTemplate, BookService bookService, MeterRegistry meterRegistry,
+                          @Value("${analytics.time-zone:UTC}") ZoneId zone) {
+        this.mongoTemplate = mongoTemplate;
+        this.bookService = bookService;
+        this.zone = zone;
+        this.failures = Counter.builder("analytics.rollup.failures")
+                .description("Orders whose rollup update failed; fixed by --rebuild-sales-rollups")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        record(List.of(event.checkout()), 1);
+    }
+
+    // A whole write-behind batch costs one marker insert, one book lookup and one rollup update
+    @EventListener
+    public void onOrdersStored(OrdersStoredEvent event) {
+        record(event.checkouts(), 1);
+    }
+
+    @EventListener
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        record(List.of(event.checkout()), -1);
+    }
+
+    // The orders themselves are already stored or removed, so a failure here only leaves the figures behind
+    private void record(List<Checkout> orders, int sign) {
+        List<Checkout> changed = List.of();
+        try {
+            changed = sign > 0 ? markCounted(orders) : unmarkCounted(orders);
+            if (changed.isEmpty()) {
+                return;
+            }
+            Map<String, String> categories = categoriesOf(changed);
+            Map<String, Tally> tallies = new LinkedHashMap<>();
+            for (Checkout order : changed) {
+                tallies(order, categories).forEach((id, tally) -> tallies.merge(id, tally, Tally::add));
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+            tallies.forEach((id, tally) -> {
+                Update update = new Update()
+                        .setOnInsert("dimension", tally.dimension)
+                        .setOnInsert("key", tally.key)
+                        .inc("orders", sign * tally.orders)
+                        .inc("units", sign * tally.units)
+                        .inc("revenueCents", sign * tally.cents);
+                if (sign > 0 && tally.label != null) {
+                    update.set("label", tally.label);
+                }
+                bulk.upsert(Query.query(Criteria.where("_id").is(id)), update);
+            });
+            bulk.execute();
+        } catch (RuntimeException e) {
+            failures.increment(orders.size());
+            log.warn("Sales rollups not updated for {} orders (first {}): {}", orders.size(), orders.get(0).getId(),
+                    e.getMessage());
+            if (sign > 0) {
+                forgetCounted(changed);
+            }
+        }
+    }
+
+    // Takes back the markers of orders whose $inc did not run, so announcing them again counts them
+    private void forgetCounted(List<Checkout> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<String> ids = orders.stream().map(Checkout::getId).toList();
+        try {
+            // Straight to the driver, as in unmarkCounted
+            mongoTemplate.getCollection(COUNTED_ORDERS).deleteMany(new Document("_id", new Document("$in", ids)));
+        } catch (RuntimeException e) {
+            log.warn("Counted markers of {} orders not removed; only a rebuild will count them: {}", ids.size(),
+                    e.getMessage());
+        }
+    }
+
+    // The orders not counted yet; each one's marker is inserted in the same step
+    private List<Checkout> markCounted(List<Checkout> orders) {
+        List<Document> markers = new ArrayList<>(orders.size());
+        for (Checkout order : orders) {
+            markers.add(new Document("_id", order.getId()));
+        }
+        Set<Integer> counted = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COUNTED_ORDERS).insert(markers).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                counted.add(error.getIndex());
+            }
+        }
+        List<Checkout> fresh = new ArrayList<>(orders.size() - counted.size());
+        for (int i = 0; i < orders.size(); i++) {
+            if (!counted.contains(i)) {
+                fresh.add(orders.get(i));
+            }
+        }
+        return fresh;
+    }
+
+    // The orders that were counted; only those have anything to subtract
+    private List<Checkout> unmarkCounted(List<Checkout> orders) {
+        List<Checkout> counted = new ArrayList<>(orders.size());
+        for (Checkout order : orders) {
+            // Straight to the driver: a mapped query would turn the hex id into an ObjectId
+            if (mongoTemplate.getCollection(COUNTED_ORDERS).deleteOne(new Document("_id", order.getId()))
+                    .getDeletedCount() > 0) {
+                counted.add(order);
+            }
+        }
+        return counted;
+    }
+
+    // Orders placed before lines carried a category are grouped by the book's current category
+    private Map<String, String> categoriesOf(List<Checkout> orders) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (Checkout order : orders) {
+            for (OrderLine line : lines(order)) {
+                if (line.category() == null && line.bookId() != null) {
+                    missing.add(line.bookId());
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> categories = new HashMap<>();
+        bookService.getBooksByIds(missing).forEach((id, book) -> {
+            if (book.getCategory() != null) {
+                categories.put(id, book.getCategory());
+            }
+        });
+        return categories;
+    }
+
+    // Recomputes every rollup from the orders. Meant for a stopped application
+    // (--rebuild-sales-rollups); orders placed while it runs may be counted twice or not at all.
+    public long rebuild() {
+        Map<String, String> categories = new HashMap<>();
+        Query books = Query.query(Criteria.where("category").ne(null));
+        books.fields().include("category");
+        try (Stream<Book> stream = mongoTemplate.stream(books, Book.class)) {
+            stream.forEach(book -> categories.put(book.getId(), book.getCategory()));
+        }
+
+        Map<String, Tally> totals = new HashMap<>();
+        long orders = 0;
+        mongoTemplate.remove(new Query(), COUNTED_ORDERS);
+        List<Document> counted = new ArrayList<>(BATCH_SIZE);
+        Query all = new Query().with(Sort.by("_id")).cursorBatchSize(BATCH_SIZE);
+        all.fields().include("cartItems", "shippingMethod", "paymentMethod", "totalPrice", "createdAt");
+        long skipped = 0;
+        try (Stream<Document> stream = mongoTemplate.stream(all, Document.class, mongoTemplate.getCollectionName(Checkout.class))) {
+            for (Document raw : (Iterable<Document>) stream::iterator) {
+                Checkout order;
+                Map<String, Tally> tallies;
+                try {
+                    order = mongoTemplate.getConverter().read(Checkout.class, raw);
+                    tallies = tallies(order, categories);
+                } catch (RuntimeException e) {
+                    skipped++;
+                    log.warn("Rollup rebuild skipped unreadable order {}: {}", raw.get("_id"), e.getMessage());
+                    continue;
+                }
+                tallies.forEach((id, tally) -> totals.merge(id, tally, Tally::add));
+                orders++;
+                counted.add(new Document("_id", order.getId()));
+                if (counted.size() == BATCH_SIZE) {
+                    mongoTemplate.insert(counted, COUNTED_ORDERS);
+                    counted.clear();
+                }
+            }
+        }
+        if (!counted.isEmpty()) {
+            mongoTemplate.insert(counted, COUNTED_ORDERS);
+        }
+
+        List<Map.Entry<String, Tally>> entries = new ArrayList<>(totals.entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+            for (Map.Entry<String, Tally> entry : entries.subList(from, Math.min(entries.size(), from + BATCH_SIZE))) {
+                Tally tally = entry.getValue();
+                bulk.upsert(Query.query(Criteria.where("_id").is(entry.getKey())), new Update()
+                        .set("dimension", tally.dimension)
+                        .set("key", tally.key)
+                        .set("label", tally.label)
+                        .set("orders", tally.orders)
+                        .set("units", tally.units)
+                        .set("revenueCents", tally.cents));
+            }
+            bulk.execute();
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").nin(totals.keySet())), SalesRollup.class);
+        log.info("Sales rollups rebuilt from {} orders into {} rollups ({} unreadable orders skipped)",
+                orders, totals.size(), skipped);
+        return orders;
+    }
+
+    public SalesFigures getTotals() {
+        SalesRollup total = mongoTemplate.findById(TOTAL, SalesRollup.class);
+        return total == null ? new SalesFigures(TOTAL, null, 0, 0, money(0)) : figures(total);
+    }
+
+    // One entry per day in [from, to], days without sales included as zeros
+    public List<SalesFigures> getDaily(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("At most " + MAX_DAYS + " days can be requested");
+        }
+        // ISO dates sort like the days they name, so the ids form a range
+        Query query = Query.query(Criteria.where("_id").gte(id(DAY, from.toString())).lte(id(DAY, to.toString())));
+        Map<String, SalesRollup> found = new HashMap<>();
+        for (SalesRollup rollup : mongoTemplate.find(query, SalesRollup.class)) {
+            found.put(rollup.getKey(), rollup);
+        }
+        List<SalesFigures> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            SalesRollup rollup = found.get(day.toString());
+            days.add(rollup == null ? new SalesFigures(day.toString(), null, 0, 0, money(0)) : figures(rollup));
+        }
+        return days;
+    }
+
+    // Highest revenue first; values whose orders have all been deleted are left out
+    public List<SalesFigures> getTop(String dimension, int limit) {
+        Query query = Query.query(Criteria.where("dimension").is(dimension).and("orders").gt(0))
+                .with(Sort.by(Sort.Direction.DESC, "revenueCents"))
+                .limit(limit);
+        return mongoTemplate.find(query, SalesRollup.class).stream().map(SalesAnalytics::figures).toList();
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+
+    // What one order adds to each rollup, keyed by rollup id
+    private Map<String, Tally> tallies(Checkout order, Map<String, String> categories) {
+        Map<String, Tally> tallies = new LinkedHashMap<>();
+        long units = 0;
+        long lineCents = 0;
+        for (OrderLine line : lines(order)) {
+            long cents = cents(line.unitPrice(), line.quantity());
+            units += line.quantity();
+            lineCents += cents;
+            if (line.bookId() != null) {
+                tally(tallies, BOOK, line.bookId(), line.title()).addLine(line.quantity(), cents);
+            }
+            String category = line.category() != null ? line.category() : categories.get(line.bookId());
+            tally(tallies, CATEGORY, orUnknown(category), null).addLine(line.quantity(), cents);
+        }
+        long orderCents = order.getTotalPrice() != null ? cents(order.getTotalPrice(), 1) : lineCents;
+        Instant placedAt = order.placedAt();
+        String day = placedAt == null ? UNKNOWN : LocalDate.ofInstant(placedAt, zone).toString();
+
+        List<Tally> orderLevel = List.of(
+                tally(tallies, TOTAL, null, null),
+                tally(tallies, DAY, day, null),
+                tally(tallies, SHIPPING, orUnknown(order.getShippingMethod()), null),
+                tally(tallies, PAYMENT, orUnknown(order.getPaymentMethod()), null));
+        for (Tally tally : orderLevel) {
+            tally.units += units;
+            tally.cents += orderCents;
+        }
+        // Every rollup an order touches counts it once, however many of its lines fall there
+        tallies.values().forEach(tally -> tally.orders = 1);
+        return tallies;
+    }
+
+    private static Tally tally(Map<String, Tally> tallies, String dimension, String key, String label) {
+        return tallies.computeIfAbsent(id(dimension, key), id -> new Tally(dimension, key, label));
+    }
+
+    private static List<OrderLine> lines(Checkout order) {
+        if (order.getCartItems() == null) {
+            return List.of();
+        }
+        return order.getCartItems().stream().filter(line -> line != null).toList();
+    }
+
+    private static String id(String dimension, String key) {
+        return key == null ? dimension : dimension + ":" + key;
+    }
+
+    private static String orUnknown(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value;
+    }
+
+    private static long cents(Double amount, int quantity) {
+        if (amount == null) {
+            return 0;
+        }
+        return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(quantity))
+                .movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static SalesFigures figures(SalesRollup rollup) {
+        return new SalesFigures(rollup.getKey(), rollup.getLabel(), rollup.getOrders(), rollup.getUnits(),
+                money(rollup.getRevenueCents()));
+    }
+
+    private static final class Tally {
+        final String dimension;
+        final String key;
+        final String label;
+        long orders;
+        long units;
+        long cents;
+
+        Tally(String dimension, String key, String label) {
+            this.dimension = dimension;
+            this.key = key;
+            this.label = label;
+        }
+
+        void addLine(int quantity, long lineCents) {
+            units += quantity;
+            cents += lineCents;
+        }
+
+        // Merges another order's tally during a rebuild; the later order's label wins
+        Tally add(Tally other) {
+            Tally sum = new Tally(dimension, key, other.label != null ? other.label : label);
+            sum.orders = orders + other.orders;
+            sum.units = units + other.units;
+            sum.cents = cents + other.cents;
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.bookshop.pahana.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Shared tokenizer for the in-memory catalog indexes: lower-cases, strips Latin accents and
+// splits on anything that is not part of a word. Index and query text must go through the same path.
+public final class TextAnalyzer {
+
+    // Only the generic combining accents (U+0300..U+036F) are dropped; Sinhala and Tamil vowel
+    // signs are combining marks too but carry meaning, so they stay part of the token.
+    private static final Pattern LATIN_ACCENTS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    private TextAnalyzer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = LATIN_ACCENTS.matcher(decomposed).replaceAll("");
+        return Normalizer.normalize(stripped, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            if (isWordPart(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            tokens.add(folded.substring(start));
+        }
+        return tokens;
+    }
+
+    // Tokens joined by single spaces, so "Philosopher's  Stone" and "philosopher s stone" compare equal
+    public static String normalize(String text) {
+        return String.join(" ", tokenize(text));
+    }
+
+    static boolean isWordPart(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        // Vowel signs and virama, plus the zero-width joiner used in Sinhala conjuncts
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || codePoint == 0x200D;
+    }
+}
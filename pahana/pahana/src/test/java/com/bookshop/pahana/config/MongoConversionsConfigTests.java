@@ -0,0 +1,58 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoConversionsConfigTests {
+
+    private InMemoryMongo mongo;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void compactLinesRoundTrip() {
+        Checkout order = new Checkout();
+        order.setCartItems(List.of(new OrderLine("b1", "Madol Doova", "Martin Wickramasinghe", "Fiction", 950.0, 2)));
+
+        Checkout stored = mongo.template().insert(order);
+
+        assertThat(mongo.template().findById(stored.getId(), Checkout.class).getCartItems())
+                .containsExactly(new OrderLine("b1", "Madol Doova", "Martin Wickramasinghe", "Fiction", 950.0, 2));
+    }
+
+    @Test
+    void legacyEmbeddedBooksReadAsSingleLines() {
+        ObjectId bookId = new ObjectId();
+        ObjectId orderId = new ObjectId();
+        mongo.template().getCollection("checkouts").insertOne(new Document("_id", orderId)
+                .append("cartItems", List.of(
+                        new Document("_id", bookId).append("title", "Gamperaliya").append("author", "Martin Wickramasinghe")
+                                .append("category", "Fiction").append("price", 1100).append("description", "..."),
+                        new Document("bookId", "b2").append("title", "Viragaya").append("unitPrice", 800.0)
+                                .append("quantity", 3))));
+
+        Checkout order = mongo.template().findById(orderId.toHexString(), Checkout.class);
+
+        assertThat(order.getCartItems()).containsExactly(
+                new OrderLine(bookId.toHexString(), "Gamperaliya", "Martin Wickramasinghe", "Fiction", 1100.0, 1),
+                new OrderLine("b2", "Viragaya", null, null, 800.0, 3));
+    }
+}
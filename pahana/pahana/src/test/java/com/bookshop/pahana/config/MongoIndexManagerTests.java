@@ -0,0 +1,76 @@
+package com.bookshop.pahana.config;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.config.MongoIndexManager.IndexState;
+import com.bookshop.pahana.config.MongoIndexManager.Status;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MongoIndexManagerTests {
+
+    private InMemoryMongo mongo;
+    private MongoIndexManager manager;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        manager = new MongoIndexManager(mongo.template(),
+                (MongoMappingContext) mongo.template().getConverter().getMappingContext(),
+                new SyncTaskExecutor(), mock(ConfigurableApplicationContext.class), "warn", false);
+        // What the earlier release created for login lookups
+        mongo.template().getCollection("customers").createIndex(new Document("email", 1),
+                new IndexOptions().name("email").sparse(true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void theUniqueEmailIndexReplacesThePlainOne() {
+        List<IndexState> states = manager.provision();
+
+        assertThat(state(states, "customers", "email_unique").status()).isEqualTo(Status.CREATED);
+        assertThat(state(states, "customers", "email").status()).isEqualTo(Status.DROPPED);
+        assertThat(indexNames("customers")).contains("email_unique").doesNotContain("email");
+        assertThat(manager.provision()).filteredOn(state -> state.collection().equals("customers"))
+                .extracting(IndexState::status).containsOnly(Status.OK);
+    }
+
+    @Test
+    void thePlainIndexStaysWhileDuplicateEmailsBlockTheUniqueOne() {
+        mongo.template().getCollection("customers").insertMany(List.of(
+                new Document("email", "jane@example.com"), new Document("email", "jane@example.com")));
+
+        List<IndexState> states = manager.provision();
+
+        assertThat(state(states, "customers", "email_unique").status()).isEqualTo(Status.DRIFT);
+        assertThat(state(states, "customers", "email").status()).isEqualTo(Status.UNDECLARED);
+        assertThat(indexNames("customers")).contains("email").doesNotContain("email_unique");
+    }
+
+    private static IndexState state(List<IndexState> states, String collection, String name) {
+        return states.stream()
+                .filter(state -> state.collection().equals(collection) && state.name().equals(name))
+                .findFirst().orElseThrow();
+    }
+
+    private List<String> indexNames(String collection) {
+        List<String> names = new ArrayList<>();
+        mongo.template().getCollection(collection).listIndexes().forEach(index -> names.add(index.getString("name")));
+        return names;
+    }
+}
@@ -0,0 +1,66 @@
+package com.bookshop.pahana.dto;
+
+import com.bookshop.pahana.entity.Book;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookCursorTests {
+
+    @Test
+    void titlesSurviveTheRoundTripEvenWithTheSeparatorInThem() {
+        BookCursor cursor = new BookCursor(BookSort.TITLE, false, "Rock | Roll: ගමන", "66a0c0ffee00000000000001");
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("+", "/", "=");
+        assertThat(BookCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void pricesAndMissingValuesKeepTheirType() {
+        BookCursor price = new BookCursor(BookSort.PRICE, true, 1250.5, "b1");
+        BookCursor missing = new BookCursor(BookSort.PRICE, false, null, "b2");
+
+        assertThat(BookCursor.decode(price.encode())).isEqualTo(price);
+        assertThat(BookCursor.decode(price.encode()).value()).isInstanceOf(Double.class);
+        assertThat(BookCursor.decode(missing.encode())).isEqualTo(missing);
+    }
+
+    @Test
+    void afterTakesTheValueOfTheSortField() {
+        Book book = new Book();
+        book.setId("b1");
+        book.setTitle("Madol Doova");
+        book.setPrice(950.0);
+
+        assertThat(BookCursor.after(book, BookSort.PRICE, false).value()).isEqualTo(950.0);
+        assertThat(BookCursor.after(book, BookSort.TITLE, true))
+                .isEqualTo(new BookCursor(BookSort.TITLE, true, "Madol Doova", "b1"));
+    }
+
+    @Test
+    void malformedTokensAreRejectedAsInvalid() {
+        for (String token : new String[]{
+                "not base64!",
+                raw("2|TITLE|a|b1|sMadol"),
+                raw("1|TITLE|a||sMadol"),
+                raw("1|TITLE|a|b1|"),
+                raw("1|RATING|a|b1|s5"),
+                raw("1|PRICE|a|b1|dcheap"),
+                raw("1|PRICE|a|b1|x1"),
+                raw("1|TITLE|a|b1")}) {
+            assertThatThrownBy(() -> BookCursor.decode(token)).as(token)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    private static String raw(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
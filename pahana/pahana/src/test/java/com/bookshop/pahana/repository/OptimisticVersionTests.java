@@ -0,0 +1,80 @@
+package com.bookshop.pahana.repository;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Customers;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimisticVersionTests {
+
+    private InMemoryMongo mongo;
+    private CustomerRepositoryImpl customers;
+    private BookRepositoryImpl books;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        customers = new CustomerRepositoryImpl(mongo.template());
+        books = new BookRepositoryImpl(mongo.template());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void aDocumentWrittenBeforeVersioningCountsAsVersionZero() {
+        String id = new ObjectId().toHexString();
+        mongo.template().getCollection("customers").insertOne(new Document("_id", new ObjectId(id)).append("name", "Jane"));
+
+        Customers updated = customers.updateIfVersion(id, 0L, new Update().set("name", "Jane Reader"));
+
+        assertThat(updated.getName()).isEqualTo("Jane Reader");
+        assertThat(updated.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void aStaleVersionChangesNothing() {
+        Customers customer = new Customers();
+        customer.setName("Jane");
+        customer.setVersion(3L);
+        String id = mongo.template().insert(customer).getId();
+
+        assertThat(customers.updateIfVersion(id, 2L, new Update().set("name", "Overwritten"))).isNull();
+        assertThat(customers.updateIfVersion(id, 3L, new Update().set("name", "Jane Reader")).getVersion()).isEqualTo(4);
+        assertThat(customers.updateIfVersion(id, null, new Update().set("name", "Anyone")).getVersion()).isEqualTo(5);
+        assertThat(mongo.template().findById(id, Customers.class).getName()).isEqualTo("Anyone");
+    }
+
+    @Test
+    void bookUpdatesReturnTheBeforeImageAndBumpTheVersion() {
+        Book book = new Book();
+        book.setTitle("Madol Doova");
+        book.setVersion(0L);
+        String id = mongo.template().insert(book).getId();
+
+        Book before = books.updateIfVersion(id, 0L, new Update().set("title", "Madol Doova (2nd ed.)"));
+
+        assertThat(before.getTitle()).isEqualTo("Madol Doova");
+        assertThat(mongo.template().findById(id, Book.class).getVersion()).isEqualTo(1);
+        assertThat(books.updateIfVersion(id, 0L, new Update().set("title", "Lost"))).isNull();
+    }
+
+    @Test
+    void onlyNonNegativeNumbersAreVersions() {
+        assertThat(OptimisticVersion.parse(null)).isNull();
+        assertThat(OptimisticVersion.parse(7)).isEqualTo(7L);
+        assertThat(OptimisticVersion.parse(7.0)).isEqualTo(7L);
+        assertThatThrownBy(() -> OptimisticVersion.parse("7")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OptimisticVersion.parse(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
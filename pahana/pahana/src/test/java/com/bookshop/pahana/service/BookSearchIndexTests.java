@@ -0,0 +1,88 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookSearchResult;
+import com.bookshop.pahana.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTests {
+
+    private final BookSearchIndex index = new BookSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        CatalogProjection.Rebuild rebuild = index.startRebuild();
+        rebuild.add(book("1", "The Village in the Jungle", "Leonard Woolf", "A novel set in a Sri Lankan village."));
+        rebuild.add(book("2", "Madol Doova", "Martin Wickramasinghe", "An island adventure; not about any jungle."));
+        rebuild.add(book("3", "Gamperaliya", "Martin Wickramasinghe", "A village family across generations."));
+        rebuild.add(book("4", "Jungle Tales", "Anon", "Stories from the jungle and the village."));
+        rebuild.publish();
+    }
+
+    @Test
+    void aTitleMatchOutranksTheSameWordInADescription() {
+        BookSearchResult result = index.search("jungle", 0, 10);
+
+        assertThat(ids(result)).containsExactly("4", "1", "2");
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.hits().get(0).score()).isGreaterThan(result.hits().get(2).score());
+    }
+
+    @Test
+    void scoresAddUpAcrossQueryTerms() {
+        BookSearchResult result = index.search("village jungle", 0, 10);
+
+        assertThat(result.total()).isEqualTo(4);
+        assertThat(ids(result).subList(0, 2)).containsExactlyInAnyOrder("1", "4");
+        assertThat(ids(result)).endsWith("2");
+    }
+
+    @Test
+    void pagesSliceTheRankingAndPagesPastTheEndAreEmpty() {
+        BookSearchResult first = index.search("village jungle", 0, 2);
+        BookSearchResult second = index.search("village jungle", 1, 2);
+        BookSearchResult beyond = index.search("village jungle", 2, 2);
+
+        assertThat(ids(first)).hasSize(2);
+        assertThat(ids(second)).hasSize(2).doesNotContainAnyElementsOf(ids(first));
+        assertThat(beyond.hits()).isEmpty();
+        assertThat(beyond.total()).isEqualTo(4);
+    }
+
+    @Test
+    void aPageNumberWhoseOffsetOverflowsAnIntIsJustEmpty() {
+        BookSearchResult result = index.search("jungle", 107_374_183, 20);
+
+        assertThat(result.hits()).isEmpty();
+        assertThat(result.total()).isEqualTo(3);
+
+        assertThat(index.search("jungle", Integer.MAX_VALUE, 100).hits()).isEmpty();
+    }
+
+    @Test
+    void updatedAndRemovedBooksLeaveTheIndex() {
+        index.remove("4");
+        index.upsert(book("2", "Madol Doova", "Martin Wickramasinghe", "An island adventure."));
+
+        assertThat(ids(index.search("jungle", 0, 10))).containsExactly("1");
+        assertThat(index.search("unknownword", 0, 10).total()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    private static List<String> ids(BookSearchResult result) {
+        return result.hits().stream().map(hit -> hit.book().getId()).toList();
+    }
+
+    private static Book book(String id, String title, String author, String description) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDescription(description);
+        return book;
+    }
+}
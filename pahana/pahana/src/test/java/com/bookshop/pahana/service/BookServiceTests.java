@@ -0,0 +1,120 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.event.BookChangedEvent;
+import com.bookshop.pahana.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BookServiceTests {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ImageStore imageStore = mock(ImageStore.class);
+    private final ImageGarbageCollector imageGarbageCollector = mock(ImageGarbageCollector.class);
+    private final BookService bookService = new BookService(bookRepository, mock(BookCache.class),
+            mock(BookSearchIndex.class), mock(BookSuggester.class), mock(BookFacetIndex.class), imageStore,
+            mock(ImageDerivativeService.class), imageGarbageCollector, eventPublisher,
+            new SimpleMeterRegistry());
+
+    @Test
+    void patchReturnsAndPublishesTheBookAsItIsNow() {
+        Book before = new Book();
+        before.setId("b1");
+        before.setTitle("Madol Doova");
+        before.setPrice(950.0);
+        before.setPublisher("Sarasa");
+        before.setVersion(4L);
+        when(bookRepository.updateIfVersion(eq("b1"), eq(4L), any())).thenReturn(before);
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("price", 1000);
+        changes.put("publisher", null);
+        changes.put("version", 4);
+
+        Book after = bookService.patchBook("b1", changes);
+
+        assertThat(after.getPrice()).isEqualTo(1000.0);
+        assertThat(after.getPublisher()).isNull();
+        assertThat(after.getTitle()).isEqualTo("Madol Doova");
+        assertThat(after.getVersion()).isEqualTo(5);
+        verify(bookRepository).updateIfVersion("b1", 4L, new Update().set("price", 1000.0).unset("publisher"));
+        ArgumentCaptor<BookChangedEvent> event = ArgumentCaptor.forClass(BookChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().before()).isSameAs(before);
+        assertThat(event.getValue().after()).isSameAs(after);
+    }
+
+    @Test
+    void invalidPatchesAreRejectedBeforeAnythingIsWritten() {
+        Map<String, Object> clearTitle = new HashMap<>();
+        clearTitle.put("title", null);
+        for (Map<String, Object> changes : new Map[]{
+                Map.of(),
+                Map.of("version", 0),
+                Map.of("image", "other.jpg"),
+                Map.of("stock", 5),
+                Map.of("price", -1),
+                Map.of("price", "cheap"),
+                Map.of("author", 7),
+                Map.of("title", "  "),
+                clearTitle,
+                Map.of("title", "New", "version", "4")}) {
+            assertThatThrownBy(() -> bookService.patchBook("b1", changes)).as(changes.toString())
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        verifyNoInteractions(bookRepository, eventPublisher);
+    }
+
+    @Test
+    void reuploadingTheSameImageReleasesTheExtraReference() throws IOException {
+        Book before = new Book();
+        before.setId("b1");
+        before.setTitle("Madol Doova");
+        before.setImage("cover.jpg");
+        when(bookRepository.updateIfVersion(eq("b1"), any(), any())).thenReturn(before);
+        when(imageStore.put(any(), any())).thenReturn("cover.jpg");
+
+        Book after = bookService.updateBook("b1", before.copy(),
+                new MockMultipartFile("image", "cover.jpg", "image/jpeg", new byte[]{1, 2, 3}), null);
+        assertThat(after.getImage()).isEqualTo("cover.jpg");
+        verify(imageGarbageCollector).releaseLater("cover.jpg");
+
+        // Without an upload the image keeps its single reference
+        bookService.updateBook("b1", before.copy(), null, null);
+        verify(imageGarbageCollector).releaseLater(anyString());
+    }
+
+    @Test
+    void aStaleVersionIsAConflictAndAnUnknownIdIsNotFound() {
+        when(bookRepository.updateIfVersion(anyString(), any(), any())).thenReturn(null);
+        when(bookRepository.existsById("b1")).thenReturn(true);
+
+        assertThatThrownBy(() -> bookService.patchBook("b1", Map.of("title", "New", "version", 3)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThatThrownBy(() -> bookService.patchBook("b2", Map.of("title", "New", "version", 3)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verifyNoInteractions(eventPublisher);
+    }
+}
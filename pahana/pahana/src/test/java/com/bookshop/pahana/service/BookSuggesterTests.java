@@ -0,0 +1,129 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.BookSuggestion;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.event.OrderPlacedEvent;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.bookshop.pahana.repository.CheckoutRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSuggesterTests {
+
+    private final CheckoutRepository checkoutRepository = mock(CheckoutRepository.class);
+    private BookSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        when(checkoutRepository.countUnitsByBook()).thenReturn(new HashMap<>(Map.of("b3", 5L)));
+        suggester = new BookSuggester(checkoutRepository);
+        CatalogProjection.Rebuild rebuild = suggester.startRebuild();
+        rebuild.add(book("b1", "Madol Doova", "Martin Wickramasinghe"));
+        rebuild.add(book("b2", "Magic Mountain", "Thomas Mann"));
+        rebuild.add(book("b3", "Gamperaliya", "Martin Wickramasinghe"));
+        rebuild.publish();
+    }
+
+    @Test
+    void prefixesMatchTheStartOfAnyWordRankedByUnitsSold() {
+        assertThat(texts(suggester.suggest("ma", 10)))
+                .containsExactly("Martin Wickramasinghe", "Madol Doova", "Thomas Mann", "Magic Mountain")
+                .doesNotContain("Gamperaliya");
+        assertThat(texts(suggester.suggest("MOUNT", 10))).containsExactly("Magic Mountain");
+        assertThat(suggester.suggest("wick", 10)).singleElement()
+                .isEqualTo(new BookSuggestion("Martin Wickramasinghe", BookSuggestion.AUTHOR, null));
+        assertThat(suggester.suggest("mx", 10)).isEmpty();
+        assertThat(suggester.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void limitTakesTheBestSuggestions() {
+        assertThat(texts(suggester.suggest("m", 2))).containsExactly("Martin Wickramasinghe", "Madol Doova");
+    }
+
+    @Test
+    void salesMoveASuggestionUpAndAlreadyCountedOrdersAreSkipped() {
+        suggester.onOrderPlaced(new OrderPlacedEvent(order("o1", "b2", 3)));
+        assertThat(texts(suggester.suggest("mag", 10))).containsExactly("Magic Mountain");
+        assertThat(texts(suggester.suggest("ma", 10)))
+                .containsExactly("Martin Wickramasinghe", "Thomas Mann", "Magic Mountain", "Madol Doova");
+
+        suggester.onOrdersStored(new OrdersStoredEvent(List.of(order("o2", "b1", 50)), Set.of("o2")));
+        assertThat(texts(suggester.suggest("ma", 10)))
+                .containsExactly("Martin Wickramasinghe", "Thomas Mann", "Magic Mountain", "Madol Doova");
+
+        suggester.onOrdersStored(new OrdersStoredEvent(List.of(order("o3", "b1", 4)), Set.of()));
+        assertThat(texts(suggester.suggest("ma", 10)))
+                .containsExactly("Martin Wickramasinghe", "Madol Doova", "Thomas Mann", "Magic Mountain");
+    }
+
+    @Test
+    void salesDuringARebuildAreCarriedOntoTheNewTrie() {
+        CatalogProjection.Rebuild rebuild = suggester.startRebuild();
+        rebuild.add(book("b1", "Madol Doova", "Martin Wickramasinghe"));
+        rebuild.add(book("b2", "Magic Mountain", "Thomas Mann"));
+        suggester.onOrderPlaced(new OrderPlacedEvent(order("o1", "b2", 9)));
+        rebuild.publish();
+
+        assertThat(texts(suggester.suggest("ma", 2))).containsExactly("Thomas Mann", "Magic Mountain");
+    }
+
+    @Test
+    void removedAndRenamedBooksLeaveTheTrie() {
+        suggester.remove("b3");
+        assertThat(suggester.suggest("gam", 10)).isEmpty();
+        assertThat(suggester.suggest("martin", 10)).extracting(BookSuggestion::text)
+                .containsExactly("Martin Wickramasinghe");
+
+        suggester.upsert(book("b1", "Viragaya", "Martin Wickramasinghe"));
+        assertThat(suggester.suggest("madol", 10)).isEmpty();
+        assertThat(suggester.suggest("vir", 10)).singleElement()
+                .isEqualTo(new BookSuggestion("Viragaya", BookSuggestion.TITLE, "b1"));
+
+        suggester.remove("b1");
+        assertThat(suggester.suggest("martin", 10)).isEmpty();
+        assertThat(texts(suggester.suggest("m", 10))).containsExactly("Thomas Mann", "Magic Mountain");
+    }
+
+    @Test
+    void prefixesLongerThanTheIndexedKeysAreCheckedAgainstTheFullText() {
+        suggester.upsert(book("b4", "The Adventures of Sherlock Holmes", "Arthur Conan Doyle"));
+        suggester.upsert(book("b5", "The Adventures of Sherlock Holmes Returned", "Arthur Conan Doyle"));
+
+        assertThat(texts(suggester.suggest("adventures of sherlock holmes returned", 10)))
+                .containsExactly("The Adventures of Sherlock Holmes Returned");
+        assertThat(texts(suggester.suggest("adventures of sherlock holmes", 10)))
+                .containsExactlyInAnyOrder("The Adventures of Sherlock Holmes",
+                        "The Adventures of Sherlock Holmes Returned");
+    }
+
+    private static List<String> texts(List<BookSuggestion> suggestions) {
+        return suggestions.stream().map(BookSuggestion::text).toList();
+    }
+
+    private static Book book(String id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+
+    private static Checkout order(String id, String bookId, int quantity) {
+        Checkout checkout = new Checkout();
+        checkout.setId(id);
+        checkout.setCartItems(List.of(new OrderLine(bookId, "Title", "Author", "Fiction", 100.0, quantity)));
+        return checkout;
+    }
+}
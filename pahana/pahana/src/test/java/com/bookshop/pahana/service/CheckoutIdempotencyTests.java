@@ -0,0 +1,156 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.dto.PlacedOrder;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.IdempotencyRecord;
+import com.bookshop.pahana.entity.OrderLine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+class CheckoutIdempotencyTests {
+
+    private static final Duration WAIT = Duration.ofMillis(300);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AtomicInteger placed = new AtomicInteger();
+    private InMemoryMongo mongo;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void aRetryIsAnsweredWithTheFirstResponse() {
+        CheckoutIdempotency idempotency = idempotency(mongo.template());
+
+        PlacedOrder first = idempotency.placeOnce("key-1", request(), this::placeOrder);
+        PlacedOrder retry = idempotency.placeOnce("key-1", request(), this::placeOrder);
+
+        assertThat(placed).hasValue(1);
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.order().getId()).isEqualTo(first.order().getId());
+    }
+
+    @Test
+    void anotherInstanceReplaysFromTheSharedRecordWithoutCardDetails() {
+        PlacedOrder first = idempotency(mongo.template()).placeOnce("key-2", request(), this::placeOrder);
+
+        PlacedOrder retry = idempotency(mongo.template()).placeOnce("key-2", request(), this::placeOrder);
+
+        assertThat(placed).hasValue(1);
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.status()).isEqualTo(201);
+        assertThat(retry.order().getId()).isEqualTo(first.order().getId());
+        assertThat(retry.order().getCvv()).isNull();
+    }
+
+    @Test
+    void theSameKeyWithADifferentBodyIsRejected() {
+        CheckoutIdempotency idempotency = idempotency(mongo.template());
+        idempotency.placeOnce("key-3", request(), this::placeOrder);
+        Checkout different = request();
+        different.setAddress("Somewhere else");
+
+        assertThatThrownBy(() -> idempotency.placeOnce("key-3", different, this::placeOrder))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(placed).hasValue(1);
+    }
+
+    @Test
+    void aClaimStillInFlightOnAnotherInstanceAnswers409AfterTheWait() throws Exception {
+        mongo.template().insert(new IdempotencyRecord("key-4", fingerprint(request()), Instant.now(),
+                Instant.now().plus(Duration.ofHours(1))));
+
+        assertThatThrownBy(() -> idempotency(mongo.template()).placeOnce("key-4", request(), this::placeOrder))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(placed).hasValue(0);
+    }
+
+    @Test
+    void aStaleClaimWithoutResponseIsTakenOver() throws Exception {
+        mongo.template().insert(new IdempotencyRecord("key-5", fingerprint(request()),
+                Instant.now().minus(Duration.ofMinutes(5)), Instant.now().plus(Duration.ofHours(1))));
+
+        PlacedOrder result = idempotency(mongo.template()).placeOnce("key-5", request(), this::placeOrder);
+
+        assertThat(result.replayed()).isFalse();
+        assertThat(placed).hasValue(1);
+        IdempotencyRecord record = mongo.template().findById("key-5", IdempotencyRecord.class);
+        assertThat(record.getResponse().getId()).isEqualTo(result.order().getId());
+    }
+
+    @Test
+    void aClaimWhoseCompletionWriteFailedIsReleased() {
+        MongoTemplate failingUpdates = spy(mongo.template());
+        doThrow(new DataAccessResourceFailureException("connection reset"))
+                .when(failingUpdates).updateFirst(any(), any(), eq(IdempotencyRecord.class));
+
+        idempotency(failingUpdates).placeOnce("key-6", request(), this::placeOrder);
+
+        assertThat(mongo.template().findById("key-6", IdempotencyRecord.class)).isNull();
+    }
+
+    private CheckoutIdempotency idempotency(MongoTemplate mongoTemplate) {
+        return new CheckoutIdempotency(mongoTemplate, objectMapper, new SimpleMeterRegistry(),
+                Duration.ofHours(24), 100, WAIT);
+    }
+
+    private PlacedOrder placeOrder() {
+        return placeOrder(request());
+    }
+
+    private PlacedOrder placeOrder(Checkout checkout) {
+        placed.incrementAndGet();
+        checkout.setId(new ObjectId().toHexString());
+        return new PlacedOrder(checkout, 201, false);
+    }
+
+    // The same fingerprint CheckoutIdempotency takes of a request body
+    private String fingerprint(Checkout request) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(objectMapper.writeValueAsBytes(request)));
+    }
+
+    private static Checkout request() {
+        Checkout checkout = new Checkout();
+        checkout.setName("Jane Reader");
+        checkout.setAddress("12 Galle Road, Colombo");
+        checkout.setCartItems(List.of(new OrderLine("book-1", "Madol Doova", null, null, 950.0, 1)));
+        checkout.setCardNumber("4111111111111111");
+        checkout.setCvv("123");
+        return checkout;
+    }
+}
@@ -0,0 +1,82 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.event.CustomerChangedEvent;
+import com.bookshop.pahana.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CustomerServiceTests {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final CustomerService customerService = new CustomerService(customerRepository, eventPublisher);
+
+    @Test
+    void patchWritesOnlyTheFieldsGivenAndUnsetsClearedOptionalOnes() {
+        Customers saved = new Customers();
+        when(customerRepository.updateIfVersion(eq("c1"), eq(2L), any())).thenReturn(saved);
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", "Jane Reader");
+        changes.put("address", null);
+        changes.put("version", 2);
+
+        assertThat(customerService.patchCustomer("c1", changes)).isSameAs(saved);
+
+        verify(customerRepository).updateIfVersion("c1", 2L, new Update().set("name", "Jane Reader").unset("address"));
+        verify(eventPublisher).publishEvent(new CustomerChangedEvent("c1"));
+    }
+
+    @Test
+    void invalidPatchesAreRejectedBeforeAnythingIsWritten() {
+        for (Map<String, Object> changes : new Map[]{
+                Map.of(),
+                Map.of("version", 1),
+                Map.of("id", "other"),
+                Map.of("name", 42),
+                Map.of("email", " "),
+                Map.of("name", "Jane", "version", "1"),
+                Map.of("name", "Jane", "version", -1)}) {
+            assertThatThrownBy(() -> customerService.patchCustomer("c1", changes)).as(changes.toString())
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        Map<String, Object> clearPassword = new HashMap<>();
+        clearPassword.put("password", null);
+        assertThatThrownBy(() -> customerService.patchCustomer("c1", clearPassword))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(customerRepository, eventPublisher);
+    }
+
+    @Test
+    void aStaleVersionIsAConflictAndAnUnknownIdIsNotFound() {
+        when(customerRepository.updateIfVersion(anyString(), any(), any())).thenReturn(null);
+        when(customerRepository.existsById("c1")).thenReturn(true);
+
+        assertThatThrownBy(() -> customerService.patchCustomer("c1", Map.of("name", "Jane", "version", 1)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThatThrownBy(() -> customerService.patchCustomer("c1", Map.of("name", "Jane")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThatThrownBy(() -> customerService.patchCustomer("c2", Map.of("name", "Jane", "version", 1)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,119 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.dto.CustomerSummary;
+import com.bookshop.pahana.dto.SessionPrincipal;
+import com.bookshop.pahana.entity.Customers;
+import com.bookshop.pahana.event.CustomerChangedEvent;
+import com.bookshop.pahana.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerSessionServiceTests {
+
+    private static final String SECRET = "test-secret";
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final CustomerSessionService sessions = sessions(SECRET, Duration.ofHours(12));
+
+    @Test
+    void anIssuedTokenAuthenticatesAsItsCustomer() {
+        String token = sessions.issueToken(customer("c1", "Jane Reader"));
+
+        Optional<SessionPrincipal> principal = sessions.authenticate("Bearer " + token);
+
+        assertThat(principal).isPresent();
+        assertThat(principal.get().customerId()).isEqualTo("c1");
+        assertThat(principal.get().name()).isEqualTo("Jane Reader");
+        assertThat(principal.get().expiresAt()).isAfter(Instant.now().plus(Duration.ofHours(11)));
+    }
+
+    @Test
+    void aTamperedPayloadOrSignatureIsRejected() {
+        String token = sessions.issueToken(customer("c1", "Jane Reader"));
+        int dot = token.indexOf('.');
+        String signature = token.substring(dot + 1);
+        String otherPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"customerId\":\"c2\",\"name\":\"Jane Reader\",\"expiresAt\":\"2099-01-01T00:00:00Z\"}"
+                        .getBytes(StandardCharsets.UTF_8));
+        // The first character, as the last one also holds padding bits
+        String flipped = (signature.charAt(0) == 'A' ? "B" : "A") + signature.substring(1);
+
+        assertThat(sessions.authenticate("Bearer " + otherPayload + "." + signature)).isEmpty();
+        assertThat(sessions.authenticate("Bearer " + token.substring(0, dot + 1) + flipped)).isEmpty();
+        assertThat(sessions(SECRET + "-rotated", Duration.ofHours(12)).authenticate("Bearer " + token)).isEmpty();
+    }
+
+    @Test
+    void anExpiredTokenIsRejected() {
+        String token = sessions(SECRET, Duration.ofSeconds(-1)).issueToken(customer("c1", "Jane Reader"));
+
+        assertThat(sessions.authenticate("Bearer " + token)).isEmpty();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        String token = sessions.issueToken(customer("c1", "Jane Reader"));
+
+        assertThat(sessions.authenticate("Bearer " + token.replace(".", ""))).isEmpty();
+        assertThat(sessions.authenticate("Bearer not*base64." + token.substring(token.indexOf('.') + 1))).isEmpty();
+        assertThat(sessions.authenticate("Bearer " + token + "!")).isEmpty();
+        assertThat(sessions.authenticate("Bearer ")).isEmpty();
+    }
+
+    @Test
+    void onlyBearerHeadersAreAccepted() {
+        String token = sessions.issueToken(customer("c1", "Jane Reader"));
+
+        assertThat(sessions.authenticate(null)).isEmpty();
+        assertThat(sessions.authenticate(token)).isEmpty();
+        assertThat(sessions.authenticate("Basic " + token)).isEmpty();
+        assertThat(sessions.authenticate("bearer " + token)).isEmpty();
+    }
+
+    @Test
+    void theCachedCustomerIsDroppedWhenTheCustomerChanges() {
+        when(customerRepository.findById("c1"))
+                .thenReturn(Optional.of(customer("c1", "Jane Reader")))
+                .thenReturn(Optional.of(customer("c1", "Jane Writer")));
+        SessionPrincipal principal = sessions.authenticate("Bearer " + sessions.issueToken(customer("c1", "Jane Reader")))
+                .orElseThrow();
+
+        assertThat(sessions.getCustomer(principal)).map(CustomerSummary::name).contains("Jane Reader");
+        assertThat(sessions.getCustomer(principal)).map(CustomerSummary::name).contains("Jane Reader");
+        verify(customerRepository, times(1)).findById("c1");
+
+        sessions.onCustomerChanged(new CustomerChangedEvent("c2"));
+        assertThat(sessions.getCustomer(principal)).map(CustomerSummary::name).contains("Jane Reader");
+        sessions.onCustomerChanged(new CustomerChangedEvent("c1"));
+        assertThat(sessions.getCustomer(principal)).map(CustomerSummary::name).contains("Jane Writer");
+        verify(customerRepository, times(2)).findById("c1");
+    }
+
+    private CustomerSessionService sessions(String secret, Duration ttl) {
+        return new CustomerSessionService(customerRepository, objectMapper, new SimpleMeterRegistry(), secret, ttl,
+                100, Duration.ofMinutes(5));
+    }
+
+    private static Customers customer(String id, String name) {
+        Customers customer = new Customers();
+        customer.setId(id);
+        customer.setName(name);
+        customer.setEmail(id + "@example.com");
+        customer.setContactNumber("0771234567");
+        return customer;
+    }
+}
@@ -0,0 +1,195 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.entity.Book;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.entity.StockReservation;
+import com.bookshop.pahana.repository.BookRepository;
+import com.bookshop.pahana.repository.BookRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTests {
+
+    private InMemoryMongo mongo;
+    private InventoryService inventory;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongo.template().indexOps(StockReservation.class)
+                .createIndex(new Index("customerId", Sort.Direction.ASC)
+                        .named("customerId_unique").unique().sparse());
+        BookRepository bookRepository = new MongoRepositoryFactory(mongo.template())
+                .getRepository(BookRepository.class, RepositoryFragments.just(new BookRepositoryImpl(mongo.template())));
+        BookService bookService = mock(BookService.class);
+        when(bookService.getBooksByIds(any())).thenAnswer(invocation -> {
+            Map<String, Book> books = new HashMap<>();
+            bookRepository.findAllById(invocation.<Collection<String>>getArgument(0))
+                    .forEach(book -> books.put(book.getId(), book));
+            return books;
+        });
+        inventory = new InventoryService(bookRepository, bookService, mongo.template(),
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), Duration.ofMinutes(15), 5, 8);
+        book("hot", 3);
+        book("cold", 10);
+        book("untracked", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void anOrderTakesWhatItNeedsAndGivesItAllBackWhenABookRunsShort() {
+        Map<String, Book> books = books();
+
+        Map<String, Integer> taken = inventory.take(Map.of("cold", 4, "untracked", 2), Map.of(), books);
+
+        assertThat(taken).isEqualTo(Map.of("cold", 4));
+        assertThat(stock("cold")).isEqualTo(6);
+        assertThatThrownBy(() -> inventory.take(orderedMap("cold", 2, "hot", 4), Map.of(), books))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(stock("cold")).isEqualTo(6);
+        assertThat(stock("hot")).isEqualTo(3);
+
+        inventory.giveBack(taken);
+        assertThat(stock("cold")).isEqualTo(10);
+    }
+
+    @Test
+    void aClaimedReservationCoversTheOrderAndOnlyTheDifferenceMoves() {
+        StockReservation reservation = inventory.reserve("c1", List.of(line("hot", 2), line("cold", 3)));
+        assertThat(stock("hot")).isEqualTo(1);
+        assertThat(stock("cold")).isEqualTo(7);
+
+        Map<String, Integer> held = inventory.claim("c1", reservation.getId());
+        Map<String, Integer> taken = inventory.take(Map.of("hot", 3), held, books());
+
+        assertThat(taken).isEqualTo(Map.of("hot", 3));
+        assertThat(stock("hot")).isZero();
+        assertThat(stock("cold")).isEqualTo(10);
+        assertThat(inventory.claim("c1", reservation.getId())).isEmpty();
+    }
+
+    @Test
+    void anExpiredReservationIsPutBackOnceAndCannotBeClaimed() {
+        StockReservation reservation = inventory.reserve("c1", List.of(line("hot", 2)));
+        mongo.template().getCollection("stock_reservations").updateOne(
+                new Document("_id", new ObjectId(reservation.getId())),
+                new Document("$set", new Document("expiresAt", Date.from(Instant.now().minusSeconds(1)))));
+
+        assertThat(inventory.claim("c1", reservation.getId())).isEmpty();
+        inventory.releaseExpired();
+        inventory.releaseExpired();
+
+        assertThat(stock("hot")).isEqualTo(3);
+        assertThat(mongo.template().count(new Query(), StockReservation.class)).isZero();
+    }
+
+    @Test
+    void aNewReservationReplacesTheCustomersPreviousOne() {
+        StockReservation first = inventory.reserve("c1", List.of(line("hot", 2)));
+        inventory.reserve("c2", List.of(line("hot", 1)));
+
+        StockReservation second = inventory.reserve("c1", List.of(line("cold", 1)));
+
+        assertThat(second.getId()).isNotEqualTo(first.getId());
+        assertThat(inventory.claim("c1", first.getId())).isEmpty();
+        assertThat(stock("hot")).isEqualTo(2);
+        assertThat(stock("cold")).isEqualTo(9);
+    }
+
+    @Test
+    void anotherCustomerCannotClaimAReservation() {
+        StockReservation reservation = inventory.reserve("c1", List.of(line("hot", 2)));
+
+        assertThat(inventory.claim("c2", reservation.getId())).isEmpty();
+        assertThat(inventory.claim(null, reservation.getId())).isEmpty();
+        assertThat(stock("hot")).isEqualTo(1);
+
+        assertThat(inventory.claim("c1", reservation.getId())).isEqualTo(Map.of("hot", 2));
+    }
+
+    @Test
+    void onlyTheOwnerCanCancelAReservation() {
+        StockReservation reservation = inventory.reserve("c1", List.of(line("hot", 2)));
+
+        inventory.cancel("c2", reservation.getId());
+        assertThat(stock("hot")).isEqualTo(1);
+
+        inventory.cancel("c1", reservation.getId());
+        assertThat(stock("hot")).isEqualTo(3);
+    }
+
+    @Test
+    void reservationsAreCappedPerBookAndInTotal() {
+        assertThatThrownBy(() -> inventory.reserve("c1", List.of(line("cold", 3), line("cold", 3))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("5 copies of a book");
+        assertThatThrownBy(() -> inventory.reserve("c1", List.of(line("cold", 5), line("hot", 2), line("untracked", 2))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("8 copies");
+        assertThatThrownBy(() -> inventory.reserve("c1", List.of(line("cold", 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(stock("cold")).isEqualTo(10);
+        assertThat(mongo.template().count(new Query(), StockReservation.class)).isZero();
+    }
+
+    private void book(String id, Integer stock) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title " + id);
+        book.setStock(stock);
+        mongo.template().insert(book);
+    }
+
+    private Map<String, Book> books() {
+        Map<String, Book> books = new HashMap<>();
+        mongo.template().findAll(Book.class).forEach(book -> books.put(book.getId(), book));
+        return books;
+    }
+
+    private Integer stock(String id) {
+        return mongo.template().findById(id, Book.class).getStock();
+    }
+
+    private static Map<String, Integer> orderedMap(String firstId, int first, String secondId, int second) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put(firstId, first);
+        map.put(secondId, second);
+        return map;
+    }
+
+    private static OrderLine line(String bookId, int quantity) {
+        return new OrderLine(bookId, null, null, null, null, quantity);
+    }
+}
@@ -0,0 +1,80 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.entity.ImageBlob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalImageStoreTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private InMemoryMongo mongo;
+    private LocalImageStore store;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        store = new LocalImageStore(uploadDir.toString(), mongo.template());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void theSameBytesUnderAnotherExtensionShareTheFirstBlob() throws Exception {
+        String first = store.put(content("cover"), "front.jpg");
+        String second = store.put(content("cover"), "front.JPEG");
+
+        assertThat(second).isEqualTo(first).endsWith(".jpg");
+        assertThat(storedFiles()).containsExactly(first);
+        assertThat(mongo.template().findById(first, ImageBlob.class).getRefs()).isEqualTo(2);
+
+        assertThat(store.release(second)).isFalse();
+        assertThat(store.release(first)).isTrue();
+        assertThat(storedFiles()).isEmpty();
+    }
+
+    @Test
+    void aFileWhoseCountWasLostIsStillReused() throws Exception {
+        String first = store.put(content("cover"), "front.png");
+        mongo.template().remove(mongo.template().findById(first, ImageBlob.class));
+
+        String second = store.put(content("cover"), "front.webp");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(storedFiles()).containsExactly(first);
+    }
+
+    @Test
+    void differentBytesGetDifferentBlobs() throws Exception {
+        String first = store.put(content("cover"), "front.jpg");
+        String second = store.put(content("back"), "front.jpg");
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(storedFiles()).containsExactlyInAnyOrder(first, second);
+    }
+
+    private List<String> storedFiles() throws Exception {
+        try (Stream<String> names = store.list()) {
+            return names.toList();
+        }
+    }
+
+    private static ByteArrayInputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
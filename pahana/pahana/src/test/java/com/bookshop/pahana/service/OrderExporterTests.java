@@ -0,0 +1,92 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.repository.CheckoutRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderExporterTests {
+
+    private static final String HEADER = "order_id,created_at,customer_name,email,phone,address,"
+            + "shipping_method,payment_method,book_id,title,author,quantity,unit_price,line_total,order_total";
+
+    private final CheckoutRepository checkoutRepository = mock(CheckoutRepository.class);
+    private final OrderExporter exporter = new OrderExporter(checkoutRepository,
+            Jackson2ObjectMapperBuilder.json().build(), 100);
+
+    @Test
+    void fieldsWithSeparatorsQuotesOrLineBreaksAreQuoted() throws Exception {
+        Checkout order = order("o1");
+        order.setName("Perera, Nimal");
+        order.setAddress("12 \"Lake View\"\nKandy");
+        order.setCartItems(List.of(new OrderLine("b1", "Rock, Paper", "Anon", "Fiction", 1250.5, 2)));
+
+        assertThat(csv(order)).containsExactly(HEADER,
+                "o1,2026-05-01T10:00:00Z,\"Perera, Nimal\",jane@example.com,0771234567,"
+                        + "\"12 \"\"Lake View\"\"\nKandy\",standard,cash,b1,\"Rock, Paper\",Anon,2,1250.5,2501.00,2501.0");
+    }
+
+    @Test
+    void textThatASpreadsheetWouldEvaluateIsDefused() throws Exception {
+        Checkout order = order("o2");
+        order.setName("=HYPERLINK(\"http://x\")");
+        order.setPhone("+94771234567");
+        order.setAddress("-1");
+        order.setEmail("@sum");
+        order.setCartItems(List.of());
+
+        assertThat(csv(order)).containsExactly(HEADER,
+                "o2,2026-05-01T10:00:00Z,\"'=HYPERLINK(\"\"http://x\"\")\",'@sum,'+94771234567,'-1,standard,cash,,,,,,,2501.0");
+    }
+
+    @Test
+    void everyLineGetsARowAndMissingValuesStayEmpty() throws Exception {
+        Checkout order = order("o3");
+        order.setName(null);
+        order.setCartItems(List.of(
+                new OrderLine("b1", "Madol Doova", null, null, 950.0, 1),
+                new OrderLine("b2", "Viragaya", null, null, null, 3)));
+
+        assertThat(csv(order)).containsExactly(HEADER,
+                "o3,2026-05-01T10:00:00Z,,jane@example.com,0771234567,Colombo,standard,cash,b1,Madol Doova,,1,950.0,950.00,2501.0",
+                "o3,2026-05-01T10:00:00Z,,jane@example.com,0771234567,Colombo,standard,cash,b2,Viragaya,,3,,,2501.0");
+    }
+
+    private List<String> csv(Checkout... orders) throws Exception {
+        when(checkoutRepository.streamPlacedBetween(any(), any(), anyInt())).thenReturn(Stream.of(orders));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exporter.writeCsv(null, null, out)).isEqualTo(orders.length);
+
+        String written = out.toString(StandardCharsets.UTF_8);
+        assertThat(written).endsWith("\r\n");
+        return List.of(written.split("\r\n"));
+    }
+
+    private static Checkout order(String id) {
+        Checkout checkout = new Checkout();
+        checkout.setId(id);
+        checkout.setCreatedAt(Instant.parse("2026-05-01T10:00:00Z"));
+        checkout.setName("Jane Reader");
+        checkout.setEmail("jane@example.com");
+        checkout.setPhone("0771234567");
+        checkout.setAddress("Colombo");
+        checkout.setShippingMethod("standard");
+        checkout.setPaymentMethod("cash");
+        checkout.setTotalPrice(2501.0);
+        return checkout;
+    }
+}
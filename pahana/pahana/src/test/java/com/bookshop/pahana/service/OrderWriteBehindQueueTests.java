@@ -0,0 +1,211 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderWriteBehindQueueTests {
+
+    @TempDir
+    Path journalDir;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<OrdersStoredEvent> events = new CopyOnWriteArrayList<>();
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private InMemoryMongo mongo;
+    private OrderWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.shutdown();
+        }
+        if (mongo != null) {
+            mongo.close();
+        }
+    }
+
+    @Test
+    void replayStoresJournaledOrdersOnceAndPublishesThoseStoredBeforeTheRestart() throws Exception {
+        mongo = new InMemoryMongo();
+        Checkout storedBeforeCrash = order();
+        storedBeforeCrash.setId(new ObjectId().toHexString());
+        mongo.template().insert(storedBeforeCrash);
+        Checkout notYetStored = order();
+        notYetStored.setId(new ObjectId().toHexString());
+        Path segment = journalDir.resolve("orders-000000000007.journal");
+        Files.writeString(segment, objectMapper.writeValueAsString(storedBeforeCrash) + "\n"
+                + objectMapper.writeValueAsString(notYetStored) + "\n"
+                + "{\"id\":\"torn", StandardCharsets.UTF_8);
+
+        queue = queue(mongo.template());
+        queue.start();
+
+        awaitTrue(() -> storedIds().size() == 2);
+        assertThat(storedIds()).containsExactlyInAnyOrder(storedBeforeCrash.getId(), notYetStored.getId());
+        assertThat(mongo.template().count(new Query(), Checkout.class))
+                .isEqualTo(2);
+        assertThat(events).singleElement()
+                .satisfies(event -> assertThat(event.storedEarlier()).containsExactly(storedBeforeCrash.getId()));
+        awaitTrue(() -> !Files.exists(segment));
+    }
+
+    @Test
+    void submittedOrdersAreStoredAndNewSegmentsContinueTheNumbering() throws Exception {
+        mongo = new InMemoryMongo();
+        Files.writeString(journalDir.resolve("orders-000000000041.journal"), "", StandardCharsets.UTF_8);
+        queue = queue(mongo.template());
+        queue.start();
+
+        Checkout placed = queue.submit(order());
+
+        assertThat(placed.getId()).isNotNull();
+        assertThat(journalFiles()).contains("orders-000000000042.journal");
+        awaitTrue(() -> storedIds().contains(placed.getId()));
+        assertThat(events).singleElement().satisfies(event -> assertThat(event.storedEarlier()).isEmpty());
+    }
+
+    @Test
+    void journalNeverContainsCardDetails() throws Exception {
+        MongoTemplate unreachable = mock(MongoTemplate.class);
+        BulkOperations operations = mock(BulkOperations.class);
+        when(unreachable.bulkOps(any(BulkOperations.BulkMode.class), eq(Checkout.class))).thenReturn(operations);
+        when(operations.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+        queue = queue(unreachable);
+        queue.start();
+
+        Checkout placed = queue.submit(order());
+
+        String journal = Files.readString(journalDir.resolve("orders-000000000000.journal"));
+        assertThat(journal).contains(placed.getId()).contains("Jane Reader")
+                .doesNotContain("4111111111111111").doesNotContain("12/30").doesNotContain("\"cvv\"");
+        assertThat(placed.getCvv()).isEqualTo("123");
+    }
+
+    @Test
+    void transientFailuresAreRetriedUntilTheBatchIsStored() throws Exception {
+        MongoTemplate flaky = mock(MongoTemplate.class);
+        BulkOperations operations = mock(BulkOperations.class);
+        when(flaky.bulkOps(any(BulkOperations.BulkMode.class), eq(Checkout.class))).thenReturn(operations);
+        when(operations.execute())
+                .thenThrow(new DataAccessResourceFailureException("primary stepped down"))
+                .thenReturn(null);
+        queue = queue(flaky);
+        queue.start();
+
+        Checkout placed = queue.submit(order());
+
+        awaitTrue(() -> !events.isEmpty());
+        assertThat(events.get(0).checkouts()).extracting(Checkout::getId).containsExactly(placed.getId());
+        verify(operations, timeout(1000).times(2)).execute();
+    }
+
+    @Test
+    void refusedOrderIsRejectedWithItsStockReturnedAndTheWriterKeepsDraining() throws Exception {
+        MongoTemplate strict = mock(MongoTemplate.class);
+        BulkOperations operations = mock(BulkOperations.class);
+        when(strict.bulkOps(any(BulkOperations.BulkMode.class), eq(Checkout.class))).thenReturn(operations);
+        when(operations.execute())
+                .thenThrow(refused(0, 121, "Document failed validation"))
+                .thenReturn(null);
+        queue = queue(strict);
+        queue.start();
+
+        Checkout refused = order();
+        refused.setStockTaken(Map.of("book-1", 2));
+        queue.submit(refused);
+        verify(inventoryService, timeout(5000)).giveBack(Map.of("book-1", 2));
+        Checkout next = queue.submit(order());
+
+        awaitTrue(() -> !events.isEmpty());
+        assertThat(events).singleElement()
+                .satisfies(event -> assertThat(event.checkouts()).extracting(Checkout::getId).containsExactly(next.getId()));
+        String rejected = Files.readString(journalDir.resolve("rejected-orders.jsonl"));
+        assertThat(rejected).contains(refused.getId()).contains("Document failed validation")
+                .doesNotContain("\"cvv\"");
+    }
+
+    private OrderWriteBehindQueue queue(MongoTemplate mongoTemplate) {
+        return new OrderWriteBehindQueue(mongoTemplate, objectMapper,
+                event -> events.add((OrdersStoredEvent) event), inventoryService, new SimpleMeterRegistry(),
+                journalDir.toString(), 100, 50, Duration.ofMillis(20), Duration.ofSeconds(1), Duration.ofSeconds(1),
+                1000, true);
+    }
+
+    private Set<String> storedIds() {
+        return Set.copyOf(mongo.template().findAll(Checkout.class).stream().map(Checkout::getId).toList());
+    }
+
+    private List<String> journalFiles() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+
+    private static BulkOperationException refused(int index, int code, String message) {
+        BulkWriteError error = new BulkWriteError(code, message, new BsonDocument(), index);
+        MongoBulkWriteException source = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(error), null, new ServerAddress(), Set.of());
+        return new BulkOperationException(message, source);
+    }
+
+    private static Checkout order() {
+        Checkout checkout = new Checkout();
+        checkout.setName("Jane Reader");
+        checkout.setEmail("jane@example.com");
+        checkout.setCartItems(List.of(new OrderLine("book-1", "Madol Doova", "Martin Wickramasinghe", "Fiction", 950.0, 2)));
+        checkout.setTotalPrice(1900.0);
+        checkout.setPaymentMethod("card");
+        checkout.setCardNumber("4111111111111111");
+        checkout.setExpiryDate("12/30");
+        checkout.setCvv("123");
+        checkout.setCreatedAt(Instant.now());
+        return checkout;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
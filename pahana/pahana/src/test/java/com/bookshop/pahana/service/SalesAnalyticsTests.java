@@ -0,0 +1,129 @@
+package com.bookshop.pahana.service;
+
+import com.bookshop.pahana.InMemoryMongo;
+import com.bookshop.pahana.dto.SalesFigures;
+import com.bookshop.pahana.entity.Checkout;
+import com.bookshop.pahana.entity.OrderLine;
+import com.bookshop.pahana.entity.SalesRollup;
+import com.bookshop.pahana.event.OrderDeletedEvent;
+import com.bookshop.pahana.event.OrderPlacedEvent;
+import com.bookshop.pahana.event.OrdersStoredEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class SalesAnalyticsTests {
+
+    private InMemoryMongo mongo;
+    private SalesAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        BookService bookService = mock(BookService.class);
+        when(bookService.getBooksByIds(any())).thenReturn(Map.of());
+        analytics = new SalesAnalytics(mongo.template(), bookService, new SimpleMeterRegistry(), ZoneId.of("UTC"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void anOrderAnnouncedAgainIsCountedOnce() {
+        Checkout order = stored(order("book-1", 2, 100.0));
+
+        analytics.onOrderPlaced(new OrderPlacedEvent(order));
+        analytics.onOrdersStored(new OrdersStoredEvent(List.of(order), Set.of(order.getId())));
+
+        assertThat(analytics.getTotals()).isEqualTo(new SalesFigures(null, null, 1, 2, new BigDecimal("200.00")));
+    }
+
+    @Test
+    void aBatchIsCountedTogetherAndDeletingSubtractsOnlyWhatWasAdded() {
+        Checkout first = stored(order("book-1", 1, 50.0));
+        Checkout second = stored(order("book-2", 3, 10.0));
+
+        analytics.onOrdersStored(new OrdersStoredEvent(List.of(first, second), Set.of()));
+        assertThat(analytics.getTotals()).isEqualTo(new SalesFigures(null, null, 2, 4, new BigDecimal("80.00")));
+        assertThat(analytics.getTop(SalesAnalytics.BOOK, 10)).extracting(SalesFigures::key)
+                .containsExactly("book-1", "book-2");
+
+        analytics.onOrderDeleted(new OrderDeletedEvent(first));
+        analytics.onOrderDeleted(new OrderDeletedEvent(first));
+        Checkout neverCounted = order("book-2", 5, 10.0);
+        neverCounted.setId(new ObjectId().toHexString());
+        analytics.onOrderDeleted(new OrderDeletedEvent(neverCounted));
+
+        assertThat(analytics.getTotals()).isEqualTo(new SalesFigures(null, null, 1, 3, new BigDecimal("30.00")));
+        assertThat(analytics.getTop(SalesAnalytics.BOOK, 10)).extracting(SalesFigures::key).containsExactly("book-2");
+    }
+
+    @Test
+    void anOrderWhoseRollupUpdateFailedIsCountedWhenAnnouncedAgain() {
+        MongoTemplate template = spy(mongo.template());
+        BookService bookService = mock(BookService.class);
+        SalesAnalytics failing = new SalesAnalytics(template, bookService, new SimpleMeterRegistry(), ZoneId.of("UTC"));
+        doThrow(new DataAccessResourceFailureException("connection reset"))
+                .when(template).bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+        Checkout order = stored(order("book-1", 2, 100.0));
+
+        failing.onOrderPlaced(new OrderPlacedEvent(order));
+        assertThat(analytics.getTotals().orders()).isZero();
+        assertThat(mongo.template().getCollection(SalesAnalytics.COUNTED_ORDERS).countDocuments()).isZero();
+
+        analytics.onOrdersStored(new OrdersStoredEvent(List.of(order), Set.of(order.getId())));
+        assertThat(analytics.getTotals()).isEqualTo(new SalesFigures(null, null, 1, 2, new BigDecimal("200.00")));
+    }
+
+    @Test
+    void rebuildSkipsUnreadableOrdersAndLeavesTheRestDeletable() {
+        Checkout good = stored(order("book-1", 2, 25.0));
+        mongo.template().getCollection("checkouts").insertOne(new Document("_id", new ObjectId())
+                .append("cartItems", List.of(new Document("bookId", "book-9").append("quantity", 1)))
+                .append("totalPrice", "not a number"));
+
+        assertThat(analytics.rebuild()).isEqualTo(1);
+        assertThat(analytics.getTotals()).isEqualTo(new SalesFigures(null, null, 1, 2, new BigDecimal("50.00")));
+
+        analytics.onOrdersStored(new OrdersStoredEvent(List.of(good), Set.of()));
+        assertThat(analytics.getTotals().orders()).isEqualTo(1);
+        analytics.onOrderDeleted(new OrderDeletedEvent(good));
+        assertThat(analytics.getTotals().orders()).isZero();
+    }
+
+    private Checkout stored(Checkout order) {
+        return mongo.template().insert(order);
+    }
+
+    private static Checkout order(String bookId, int quantity, double unitPrice) {
+        Checkout checkout = new Checkout();
+        checkout.setCartItems(List.of(new OrderLine(bookId, "Title " + bookId, "Author", "Fiction", unitPrice, quantity)));
+        checkout.setTotalPrice(unitPrice * quantity);
+        checkout.setShippingMethod("standard");
+        checkout.setPaymentMethod("cash");
+        checkout.setCreatedAt(Instant.parse("2026-05-01T10:00:00Z"));
+        return checkout;
+    }
+}
@@ -4,6 +4,8 @@
 import React, { useState, useEffect } from "react";
 import axios from "axios";
 
+const PAGE_SIZE = 20;
+
 const AllBooksEditDeletePage = () => {
   const [books, setBooks] = useState([]);
   const [editingBookId, setEditingBookId] = useState(null); // Tracks the book being edited
@@ -15,22 +17,41 @@ const AllBooksEditDeletePage = () => {
   });
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
+  // cursors[i] is the "after" value that loads page i + 1 (null for the first page)
+  const [cursors, setCursors] = useState([null]);
+  const [nextCursor, setNextCursor] = useState(null);
 
-  useEffect(() => {
-    // Fetch all books
-    const fetchBooks = async () => {
-      try {
-        const response = await axios.get("http://localhost:8080/api/books");
-        setBooks(response.data); // Set the list of books
-      // eslint-disable-next-line no-unused-vars
-      } catch (error) {
-        setError("Failed to fetch books");
-      }
-    };
+  // Fetch one page of books in title order
+  const fetchBooks = async (after = cursors[cursors.length - 1]) => {
+    try {
+      const params = { limit: PAGE_SIZE };
+      if (after) params.after = after;
+      const response = await axios.get("http://localhost:8080/api/books", { params });
+      setBooks(response.data.items); // Set the list of books
+      setNextCursor(response.data.nextCursor);
+    // eslint-disable-next-line no-unused-vars
+    } catch (error) {
+      setError("Failed to fetch books");
+    }
+  };
 
-    fetchBooks();
+  useEffect(() => {
+    fetchBooks(null);
   }, []);
 
+  const goToNextPage = () => {
+    if (!nextCursor) return;
+    setCursors([...cursors, nextCursor]);
+    fetchBooks(nextCursor);
+  };
+
+  const goToPreviousPage = () => {
+    if (cursors.length < 2) return;
+    const previous = cursors.slice(0, -1);
+    setCursors(previous);
+    fetchBooks(previous[previous.length - 1]);
+  };
+
   const handleEditClick = (book) => {
     // When clicking the edit button, populate the edit form with the book details
     setEditingBookId(book.id);
@@ -39,6 +60,7 @@ const AllBooksEditDeletePage = () => {
       author: book.author,
       price: book.price,
       description: book.description,
+      version: book.version,
     });
   };
 
@@ -63,6 +85,10 @@ const AllBooksEditDeletePage = () => {
     formData.append("language", currentBookData.language);
     formData.append("category", currentBookData.category);
     formData.append("publisher", currentBookData.publisher);
+    // The version the book was loaded at; the server answers 409 if it has changed since
+    if (currentBookData.version != null) {
+      formData.append("version", currentBookData.version);
+    }
 
     // Only append image if it's selected
     if (currentBookData.image instanceof File) {
@@ -78,13 +104,14 @@ const AllBooksEditDeletePage = () => {
       setLoading(false);
       setEditingBookId(null); // Exit edit mode
       alert("Book updated successfully!");
-      // Fetch updated books list
-      const updatedBooks = await axios.get("http://localhost:8080/api/books");
-      setBooks(updatedBooks.data);
+      // Reload the page being shown
+      await fetchBooks();
     } catch (error) {
       setLoading(false);
       console.error("Error updating book", error); // Log the error for debugging
-      setError("Failed to update book details");
+      setError(error.response && error.response.status === 409
+        ? "This book was changed by someone else. Reload the page and edit it again."
+        : "Failed to update book details");
     }
   };
 
@@ -93,9 +120,8 @@ const AllBooksEditDeletePage = () => {
       try {
         await axios.delete(`http://localhost:8080/api/books/${id}`);
         alert("Book deleted successfully!");
-        // Fetch updated books list
-        const updatedBooks = await axios.get("http://localhost:8080/api/books");
-        setBooks(updatedBooks.data);
+        // Reload the page being shown
+        await fetchBooks();
       // eslint-disable-next-line no-unused-vars
       } catch (error) {
         alert("Failed to delete the book");
@@ -175,7 +201,7 @@ const AllBooksEditDeletePage = () => {
           <div key={book.id} className="flex justify-between items-center bg-white p-4 rounded-lg shadow-md mb-4">
             <div className="flex items-center">
               <img
-                src={`http://localhost:8080/api/books/uploads/${book.image}`}
+                src={`http://localhost:8080/api/books/uploads/${book.image}?size=thumb`}
                 alt={book.title}
                 className="w-16 h-16 object-cover rounded-lg mr-4"
               />
@@ -202,6 +228,29 @@ const AllBooksEditDeletePage = () => {
           </div>
         ))}
       </div>
+
+      {/* Pagination */}
+      <div className="flex items-center justify-between mt-6">
+        <div className="text-gray-700">
+          Page <span className="font-medium">{cursors.length}</span>, showing <span className="font-medium">{books.length}</span> results
+        </div>
+        <div className="space-x-4">
+          <button
+            onClick={goToPreviousPage}
+            disabled={cursors.length < 2}
+            className="bg-gray-200 text-gray-700 py-2 px-4 rounded-lg hover:bg-gray-300 transition duration-300 disabled:opacity-50"
+          >
+            Previous
+          </button>
+          <button
+            onClick={goToNextPage}
+            disabled={!nextCursor}
+            className="bg-gray-200 text-gray-700 py-2 px-4 rounded-lg hover:bg-gray-300 transition duration-300 disabled:opacity-50"
+          >
+            Next
+          </button>
+        </div>
+      </div>
     </div>
   );
 };
@@ -2,18 +2,25 @@
 import React, { useState, useEffect } from 'react';
 import axios from 'axios';
 
+const PAGE_SIZE = 20;
+
 const OrderView = () => {
     const [orders, setOrders] = useState([]);
     const [loading, setLoading] = useState(true);
     const [deleteConfirm, setDeleteConfirm] = useState(null);
+    // Cursors of the pages visited so far; the last one is the current page (null = first page)
+    const [cursors, setCursors] = useState([null]);
+    const [nextCursor, setNextCursor] = useState(null);
 
-    // Fetch all orders
-    const fetchOrders = async () => {
+    // Fetch one page of orders, newest first
+    const fetchOrders = async (after = cursors[cursors.length - 1]) => {
         try {
             setLoading(true);
-            const response = await axios.get('http://localhost:8080/api/checkout');
-            console.log('Fetched Orders:', response.data);
-            setOrders(response.data);
+            const params = { limit: PAGE_SIZE };
+            if (after) params.after = after;
+            const response = await axios.get('http://localhost:8080/api/checkout', { params });
+            setOrders(response.data.items);
+            setNextCursor(response.data.nextCursor);
         } catch (error) {
             console.error('Error fetching orders:', error);
         } finally {
@@ -21,6 +28,19 @@ const OrderView = () => {
         }
     };
 
+    const goToNextPage = () => {
+        if (!nextCursor) return;
+        setCursors([...cursors, nextCursor]);
+        fetchOrders(nextCursor);
+    };
+
+    const goToPreviousPage = () => {
+        if (cursors.length < 2) return;
+        const previous = cursors.slice(0, -1);
+        setCursors(previous);
+        fetchOrders(previous[previous.length - 1]);
+    };
+
     // Delete an order by ID
     const deleteOrder = async (id) => {
         try {
@@ -102,15 +122,23 @@ const OrderView = () => {
                                 </svg>
                             </div>
                         </div>
-                        <button 
-                            onClick={fetchOrders}
-                            className="bg-white text-amber-700 px-4 py-2 rounded-lg border border-amber-200 hover:bg-amber-100 flex items-center shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200"
-                        >
-                            <svg className="h-5 w-5 mr-2" fill="none" stroke="currentColor" viewBox="0 0 24 24" xmlns="http://www.w3.org/2000/svg">
-                                <path strokeLinecap="round" strokeLinejoin="round" strokeWidth="2" d="M4 4v5h.582m15.356 2A8.001 8.001 0 004.582 9m0 0H9m11 11v-5h-.581m0 0a8.003 8.003 0 01-15.357-2m15.357 2H15"></path>
-                            </svg>
-                            Refresh
-                        </button>
+                        <div className="flex space-x-2">
+                            <a
+                                href="http://localhost:8080/api/checkout/export?format=csv"
+                                className="bg-white text-amber-700 px-4 py-2 rounded-lg border border-amber-200 hover:bg-amber-100 flex items-center shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200"
+                            >
+                                Export CSV
+                            </a>
+                            <button 
+                                onClick={() => fetchOrders()}
+                                className="bg-white text-amber-700 px-4 py-2 rounded-lg border border-amber-200 hover:bg-amber-100 flex items-center shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200"
+                            >
+                                <svg className="h-5 w-5 mr-2" fill="none" stroke="currentColor" viewBox="0 0 24 24" xmlns="http://www.w3.org/2000/svg">
+                                    <path strokeLinecap="round" strokeLinejoin="round" strokeWidth="2" d="M4 4v5h.582m15.356 2A8.001 8.001 0 004.582 9m0 0H9m11 11v-5h-.581m0 0a8.003 8.003 0 01-15.357-2m15.357 2H15"></path>
+                                </svg>
+                                Refresh
+                            </button>
+                        </div>
                     </div>
                     
                     <div className="overflow-x-auto">
@@ -181,13 +209,21 @@ const OrderView = () => {
                     
                     <div className="px-6 py-4 bg-amber-50 border-t border-amber-200 flex items-center justify-between">
                         <div className="text-sm text-amber-700">
-                            Showing <span className="font-medium">{orders.length}</span> results
+                            Page <span className="font-medium">{cursors.length}</span>, showing <span className="font-medium">{orders.length}</span> results
                         </div>
                         <div className="flex space-x-2">
-                            <button className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200">
+                            <button
+                                onClick={goToPreviousPage}
+                                disabled={cursors.length < 2}
+                                className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200 disabled:opacity-50"
+                            >
                                 Previous
                             </button>
-                            <button className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200">
+                            <button
+                                onClick={goToNextPage}
+                                disabled={!nextCursor}
+                                className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 shadow-md hover:shadow-lg transform hover:-translate-y-0.5 transition-transform duration-200 disabled:opacity-50"
+                            >
                                 Next
                             </button>
                         </div>
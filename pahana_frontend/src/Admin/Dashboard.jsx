@@ -15,7 +15,9 @@ const AdminDashboard = () => {
   });
   const [recentOrders, setRecentOrders] = useState([]);
   const [recentUsers, setRecentUsers] = useState([]);
-  const [books, setBooks] = useState([]);
+  const [lowCategories, setLowCategories] = useState([]);
+  const [dailySales, setDailySales] = useState([]);
+  const [topBooks, setTopBooks] = useState([]);
 
   // Initialize useNavigate hook
   const navigate = useNavigate();
@@ -29,35 +31,31 @@ const AdminDashboard = () => {
     try {
       setLoading(true);
 
-      const [usersRes, booksRes, ordersRes] = await Promise.all([
-        fetch('http://localhost:8080/api/customers'),
-        fetch('http://localhost:8080/api/books'),
-        fetch('http://localhost:8080/api/checkout')
+      // Counts and latest entries come from one server-side summary; charts from the sales rollups
+      const [summaryRes, dailyRes, topBooksRes] = await Promise.all([
+        fetch('http://localhost:8080/api/admin/summary'),
+        fetch('http://localhost:8080/api/analytics/daily'),
+        fetch('http://localhost:8080/api/analytics/books?limit=5')
       ]);
 
-      if (!usersRes.ok || !booksRes.ok || !ordersRes.ok) {
+      if (!summaryRes.ok || !dailyRes.ok || !topBooksRes.ok) {
         throw new Error('Failed to fetch data');
       }
 
-      const usersData = await usersRes.json();
-      const booksData = await booksRes.json();
-      const ordersData = await ordersRes.json();
-
-      // const totalRevenue = ordersData.reduce((sum, order) => sum + (order.total || 0), 0);
-      const totalRevenue = ordersData.reduce((sum, order) => {
-      return sum + (order.total || order.totalPrice || 0); // Use total or totalPrice, fallback to 0
-    }, 0);
+      const summary = await summaryRes.json();
 
       setStats({
-        users: usersData.length,
-        books: booksData.length,
-        orders: ordersData.length,
-        revenue: totalRevenue
+        users: summary.customers,
+        books: summary.books,
+        orders: summary.orders,
+        revenue: summary.revenue
       });
 
-      setRecentOrders(ordersData.slice(-5).reverse());
-      setRecentUsers(usersData.slice(-5).reverse());
-      setBooks(booksData);
+      setRecentOrders(summary.recentOrders);
+      setRecentUsers(summary.recentCustomers);
+      setLowCategories(summary.lowCountCategories);
+      setDailySales(await dailyRes.json());
+      setTopBooks(await topBooksRes.json());
     } catch (error) {
       console.error('Error fetching data:', error);
       
@@ -283,6 +281,55 @@ const AdminDashboard = () => {
             </button>
           </div>
 
+          {/* Sales Section */}
+          <div className="grid grid-cols-1 lg:grid-cols-2 gap-6 mb-8">
+            {/* Daily Revenue, last 30 days */}
+            <div className="bg-white rounded-lg shadow p-6">
+              <h3 className="text-lg font-semibold text-amber-800 mb-4">Revenue, last 30 days</h3>
+              <div className="flex items-end h-40 space-x-1">
+                {dailySales.map((day) => {
+                  const max = Math.max(...dailySales.map((d) => d.revenue), 1);
+                  return (
+                    <div
+                      key={day.key}
+                      title={`${day.key}: Rs.${day.revenue} (${day.orders} orders)`}
+                      className="flex-1 bg-amber-500 rounded-t"
+                      style={{ height: `${(day.revenue / max) * 100}%` }}
+                    ></div>
+                  );
+                })}
+              </div>
+            </div>
+
+            {/* Top Books and Low-Count Categories */}
+            <div className="bg-white rounded-lg shadow p-6">
+              <h3 className="text-lg font-semibold text-amber-800 mb-4">Top Books</h3>
+              <table className="min-w-full divide-y divide-gray-200">
+                <thead className="bg-gray-50">
+                  <tr>
+                    <th className="px-4 py-3 text-left text-xs font-medium text-gray-500 uppercase tracking-wider">Title</th>
+                    <th className="px-4 py-3 text-left text-xs font-medium text-gray-500 uppercase tracking-wider">Units</th>
+                    <th className="px-4 py-3 text-left text-xs font-medium text-gray-500 uppercase tracking-wider">Revenue</th>
+                  </tr>
+                </thead>
+                <tbody className="bg-white divide-y divide-gray-200">
+                  {topBooks.map((book) => (
+                    <tr key={book.key}>
+                      <td className="px-4 py-4 whitespace-nowrap text-sm font-medium text-gray-900">{book.label || book.key}</td>
+                      <td className="px-4 py-4 whitespace-nowrap text-sm text-gray-500">{book.units}</td>
+                      <td className="px-4 py-4 whitespace-nowrap text-sm text-gray-500">Rs.{book.revenue}</td>
+                    </tr>
+                  ))}
+                </tbody>
+              </table>
+              {lowCategories.length > 0 && (
+                <p className="mt-4 text-sm text-gray-500">
+                  Fewest books: {lowCategories.map((c) => `${c.category} (${c.books})`).join(', ')}
+                </p>
+              )}
+            </div>
+          </div>
+
           {/* Recent Activity Section */}
           <div className="grid grid-cols-1 lg:grid-cols-2 gap-6">
           
@@ -304,7 +351,7 @@ const AdminDashboard = () => {
                     </tr>
                   </thead>
                   <tbody className="bg-white divide-y divide-gray-200">
-                    {recentOrders.slice(0, 5).map((order) => (
+                    {recentOrders.map((order) => (
                       <tr key={order.id}>
                         <td className="px-4 py-4 whitespace-nowrap text-sm font-medium text-gray-900">{order.id}</td>
                         <td className="px-4 py-4 whitespace-nowrap text-sm text-gray-500">{order.name}</td>
@@ -46,9 +46,10 @@ const EditUser = () => {
       setTimeout(() => {
         navigate('/admin/users');
       }, 1500);
-    // eslint-disable-next-line no-unused-vars
     } catch (err) {
-      setError('Error updating user. Please try again.');
+      setError(err.response && err.response.status === 409
+        ? 'This user was changed elsewhere or the email is taken. Reload and try again.'
+        : 'Error updating user. Please try again.');
     } finally {
       setIsSubmitting(false);
     }
@@ -2,9 +2,10 @@
 import React, { useState, useEffect } from 'react';
 import axios from 'axios';
 
+const PAGE_SIZE = 20;
+
 const BookManagementPage = () => {
   const [books, setBooks] = useState([]);
-  const [filteredBooks, setFilteredBooks] = useState([]);
   const [editingBook, setEditingBook] = useState(null);
   const [searchTerm, setSearchTerm] = useState('');
   const [loading, setLoading] = useState(true);
@@ -22,6 +23,9 @@ const BookManagementPage = () => {
   const [imagePreview, setImagePreview] = useState(null);
   const [formErrors, setFormErrors] = useState({});
   const [successMessage, setSuccessMessage] = useState('');
+  // pages[i] loads page i + 1: a listing cursor (null for the first page), or a search page number
+  const [pages, setPages] = useState([null]);
+  const [nextPage, setNextPage] = useState(null);
 
   // Categories for dropdown
   const categories = [
@@ -36,13 +40,26 @@ const BookManagementPage = () => {
     "Japanese", "Korean", "Arabic", "Hindi", "Other"
   ];
 
-  // Fetch all books from the backend
-  const fetchBooks = async () => {
+  // Fetch one page of books: the catalog in title order, or search results (best match first)
+  // while there is a search term
+  const fetchBooks = async (page = pages[pages.length - 1]) => {
     try {
       setLoading(true);
-      const response = await axios.get('http://localhost:8080/api/books');
-      setBooks(response.data);
-      setFilteredBooks(response.data);
+      const term = searchTerm.trim();
+      if (term) {
+        const response = await axios.get('http://localhost:8080/api/books/search', {
+          params: { q: term, page: page || 0, size: PAGE_SIZE },
+        });
+        const number = page || 0;
+        setBooks(response.data.hits.map(hit => hit.book));
+        setNextPage((number + 1) * PAGE_SIZE < response.data.total ? number + 1 : null);
+      } else {
+        const params = { limit: PAGE_SIZE };
+        if (page) params.after = page;
+        const response = await axios.get('http://localhost:8080/api/books', { params });
+        setBooks(response.data.items);
+        setNextPage(response.data.nextCursor);
+      }
     } catch (error) {
       console.error('Error fetching books:', error);
     } finally {
@@ -50,19 +67,18 @@ const BookManagementPage = () => {
     }
   };
 
-  // Filter books based on search term
-  useEffect(() => {
-    if (searchTerm === '') {
-      setFilteredBooks(books);
-    } else {
-      const filtered = books.filter(book =>
-        book.title?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        book.author?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        book.category?.toLowerCase().includes(searchTerm.toLowerCase())
-      );
-      setFilteredBooks(filtered);
-    }
-  }, [searchTerm, books]);
+  const goToNextPage = () => {
+    if (nextPage === null) return;
+    setPages([...pages, nextPage]);
+    fetchBooks(nextPage);
+  };
+
+  const goToPreviousPage = () => {
+    if (pages.length < 2) return;
+    const previous = pages.slice(0, -1);
+    setPages(previous);
+    fetchBooks(previous[previous.length - 1]);
+  };
 
   // Handle Edit button click, populate form with book details
   const handleEditClick = (book) => {
@@ -76,9 +92,10 @@ const BookManagementPage = () => {
       language: book.language || '',
       category: book.category || '',
       publisher: book.publisher || '',
+      version: book.version,
       image: null
     });
-    setImagePreview(book.image ? `http://localhost:8080/api/books/uploads/${book.image}` : null);
+    setImagePreview(book.image ? `http://localhost:8080/api/books/uploads/${book.image}?size=detail` : null);
     setFormErrors({});
     setSuccessMessage('');
   };
@@ -142,6 +159,10 @@ const BookManagementPage = () => {
     updatedFormData.append('language', formData.language);
     updatedFormData.append('category', formData.category);
     updatedFormData.append('publisher', formData.publisher);
+    // The version the book was loaded at; the server answers 409 if it has changed since
+    if (formData.version != null) {
+      updatedFormData.append('version', formData.version);
+    }
     if (formData.image) {
       updatedFormData.append('image', formData.image);
     }
@@ -163,7 +184,9 @@ const BookManagementPage = () => {
       }, 3000);
     } catch (error) {
       console.error('Error updating book:', error);
-      setFormErrors({ submit: 'Error updating book. Please try again.' });
+      setFormErrors({ submit: error.response && error.response.status === 409
+        ? 'This book was changed by someone else. Reload the list and edit it again.'
+        : 'Error updating book. Please try again.' });
     }
   };
 
@@ -203,10 +226,14 @@ const BookManagementPage = () => {
     setSuccessMessage('');
   };
 
-  // Fetch books when component mounts
+  // Fetch the first page when the page mounts and whenever the search term changes (debounced)
   useEffect(() => {
-    fetchBooks();
-  }, []);
+    const timer = setTimeout(() => {
+      setPages([null]);
+      fetchBooks(null);
+    }, searchTerm ? 300 : 0);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
 
   return (
     <div className="min-h-screen bg-amber-50 p-4 sm:p-6 lg:p-8 relative overflow-hidden">
@@ -247,7 +274,7 @@ const BookManagementPage = () => {
             </div>
             <div className="bg-amber-100 rounded-lg px-4 py-2 border border-amber-200">
               <p className="text-sm text-amber-800">
-                {filteredBooks.length} {filteredBooks.length === 1 ? 'book' : 'books'} found
+                {books.length} {books.length === 1 ? 'book' : 'books'} on page {pages.length}
               </p>
             </div>
           </div>
@@ -462,7 +489,7 @@ const BookManagementPage = () => {
                 <p className="text-amber-700">Loading books...</p>
               </div>
             </div>
-          ) : filteredBooks.length === 0 ? (
+          ) : books.length === 0 ? (
             <div className="text-center py-12">
               <svg className="h-12 w-12 text-amber-400 mx-auto mb-4" fill="none" stroke="currentColor" viewBox="0 0 24 24" xmlns="http://www.w3.org/2000/svg">
                 <path strokeLinecap="round" strokeLinejoin="round" strokeWidth="2" d="M12 6.253v13m0-13C10.832 5.477 9.246 5 7.5 5S4.168 5.477 3 6.253v13C4.168 18.477 5.754 18 7.5 18s3.332.477 4.5 1.253m0-13C13.168 5.477 14.754 5 16.5 5c1.747 0 3.332.477 4.5 1.253v13C19.832 18.477 18.247 18 16.5 18c-1.746 0-3.332.477-4.5 1.253"></path>
@@ -485,13 +512,13 @@ const BookManagementPage = () => {
                   </tr>
                 </thead>
                 <tbody className="bg-white divide-y divide-amber-100">
-                  {filteredBooks.map((book) => (
+                  {books.map((book) => (
                     <tr key={book.id} className="hover:bg-amber-50 transition-colors">
                       <td className="py-4 px-6">
                         <div className="h-16 w-12 flex-shrink-0 overflow-hidden rounded-md border border-amber-200">
                           {book.image ? (
                             <img
-                              src={`http://localhost:8080/api/books/uploads/${book.image}`}
+                              src={`http://localhost:8080/api/books/uploads/${book.image}?size=thumb`}
                               alt={book.title}
                               className="h-full w-full object-cover"
                               onError={(e) => {
@@ -545,6 +572,29 @@ const BookManagementPage = () => {
               </table>
             </div>
           )}
+
+          {/* Pagination */}
+          <div className="bg-amber-50 px-6 py-4 flex items-center justify-between border-t border-amber-100">
+            <div className="text-sm text-amber-700">
+              Page <span className="font-medium">{pages.length}</span>, showing <span className="font-medium">{books.length}</span> results
+            </div>
+            <div className="flex space-x-2">
+              <button
+                onClick={goToPreviousPage}
+                disabled={pages.length < 2}
+                className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 disabled:opacity-50"
+              >
+                Previous
+              </button>
+              <button
+                onClick={goToNextPage}
+                disabled={nextPage === null}
+                className="px-4 py-2 text-sm font-medium text-amber-700 bg-amber-100 rounded-md hover:bg-amber-200 disabled:opacity-50"
+              >
+                Next
+              </button>
+            </div>
+          </div>
         </div>
 
         
@@ -11,6 +11,7 @@ const BookAdd = () => {
   const [language, setLanguage] = useState('');
   const [category, setCategory] = useState('');
   const [publisher, setPublisher] = useState('');
+  const [stock, setStock] = useState('');
   const [image, setImage] = useState(null);
   const [imagePreview, setImagePreview] = useState(null);
   const [isSubmitting, setIsSubmitting] = useState(false);
@@ -74,6 +75,10 @@ const BookAdd = () => {
     formData.append('language', language);
     formData.append('category', category);
     formData.append('publisher', publisher);
+    // Left empty, the book's stock is not tracked
+    if (stock !== '') {
+      formData.append('stock', stock);
+    }
 
     try {
       await axios.post('http://localhost:8080/api/books', formData, {
@@ -93,6 +98,7 @@ const BookAdd = () => {
       setLanguage('');
       setCategory('');
       setPublisher('');
+      setStock('');
       setImage(null);
       setImagePreview(null);
       
@@ -216,6 +222,22 @@ const BookAdd = () => {
                     placeholder="Enter publisher name"
                   />
                 </div>
+
+                <div>
+                  <label htmlFor="stock" className="block text-sm font-medium text-gray-700 mb-2 uppercase tracking-wide">
+                    Copies in Stock
+                  </label>
+                  <input
+                    type="number"
+                    id="stock"
+                    min="0"
+                    step="1"
+                    className="w-full p-3 border border-gray-300 rounded-lg focus:ring-2 focus:ring-amber-500 focus:border-amber-500 transition-colors"
+                    value={stock}
+                    onChange={(e) => setStock(e.target.value)}
+                    placeholder="Leave empty to not track stock"
+                  />
+                </div>
               </div>
 
               {/* Right Column */}
@@ -28,28 +28,17 @@ const LoginPage = () => {
         }
       });
 
-      console.log('API Response:', response);
-
       if (response.status === 200) {
-        try {
-          const allUsersResponse = await axios.get('http://localhost:8080/api/customers');
-          const loggedInUser = allUsersResponse.data.find(user => user.email === email);
-          
-          if (loggedInUser) {
-            localStorage.setItem('userId', loggedInUser.id);
-            localStorage.setItem('userEmail', loggedInUser.email);
-            localStorage.setItem('userName', loggedInUser.name);
-            setSuccessMessage('Login successful! Redirecting...');
-            setTimeout(() => {
-              navigate('/home');
-            }, 2000); // Redirect after 2 seconds to show the success message
-          } else {
-            setError('User data not found after login.');
-          }
-        } catch (fetchError) {
-          console.error('Error fetching user data:', fetchError);
-          setError('Login successful but failed to load user data.');
-        }
+        // The login response already identifies the customer; the token proves it on later requests
+        const { userId, userEmail, userName, token } = response.data;
+        localStorage.setItem('userId', userId);
+        localStorage.setItem('userEmail', userEmail);
+        localStorage.setItem('userName', userName);
+        localStorage.setItem('authToken', token);
+        setSuccessMessage('Login successful! Redirecting...');
+        setTimeout(() => {
+          navigate('/home');
+        }, 2000); // Redirect after 2 seconds to show the success message
       }
     } catch (err) {
       console.error('Error during login:', err);
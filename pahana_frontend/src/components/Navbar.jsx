@@ -33,6 +33,7 @@ export default function Navbar() {
     localStorage.removeItem("userId");
     localStorage.removeItem("userEmail");
     localStorage.removeItem("userName");
+    localStorage.removeItem("authToken");
     window.location.href = "/login";
   };
 
@@ -17,10 +17,22 @@ import {
   StarIcon as StarSolidIcon 
 } from "@heroicons/react/24/solid";
 
+const PAGE_SIZE = 24;
+
+// Server-side sort for each sort option; "default" is the catalog's title order
+const SORT_PARAMS = {
+  default: { sort: "title", order: "asc" },
+  title: { sort: "title", order: "asc" },
+  "price-low": { sort: "price", order: "asc" },
+  "price-high": { sort: "price", order: "desc" },
+};
+
 const AllBooksView = () => {
   const [books, setBooks] = useState([]);
-  const [filteredBooks, setFilteredBooks] = useState([]);
   const [loading, setLoading] = useState(true);
+  // Cursor (catalog listing) or page number (search) of the next page; null when there is none
+  const [next, setNext] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [cart, setCart] = useState([]);
   const [searchTerm, setSearchTerm] = useState("");
   const [selectedCategory, setSelectedCategory] = useState("All");
@@ -34,20 +46,6 @@ const AllBooksView = () => {
   const categories = ["All", "Fiction", "Non-Fiction", "Science", "Technology", "Business", "Arts", "Biography"];
 
   useEffect(() => {
-    const fetchBooks = async () => {
-      try {
-        const response = await axios.get("http://localhost:8080/api/books");
-        setBooks(response.data);
-        setFilteredBooks(response.data);
-        setLoading(false);
-      } catch (error) {
-        console.error("Error fetching books:", error);
-        setLoading(false);
-      }
-    };
-
-    fetchBooks();
-
     const storedCart = JSON.parse(localStorage.getItem("cart")) || [];
     setCart(storedCart);
 
@@ -55,35 +53,47 @@ const AllBooksView = () => {
     setWishlist(storedWishlist);
   }, []);
 
-  // Filter and sort books
-  useEffect(() => {
-    let result = [...books];
-    
-    // Apply search filter
-    if (searchTerm) {
-      result = result.filter(book => 
-        book.title.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        book.author.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        book.description.toLowerCase().includes(searchTerm.toLowerCase())
-      );
-    }
-    
-    // Apply category filter
-    if (selectedCategory !== "All") {
-      result = result.filter(book => book.category === selectedCategory);
-    }
-    
-    // Apply sorting
-    if (sortOption === "price-low") {
-      result.sort((a, b) => a.price - b.price);
-    } else if (sortOption === "price-high") {
-      result.sort((a, b) => b.price - a.price);
-    } else if (sortOption === "title") {
-      result.sort((a, b) => a.title.localeCompare(b.title));
+  // One page of books, filtered and sorted by the server; a search term goes to the full-text
+  // search instead (best match first). With more=true the next page is added to what is shown.
+  const fetchBooks = async (more = false) => {
+    try {
+      if (more) setLoadingMore(true);
+      let items;
+      let following;
+      const term = searchTerm.trim();
+      if (term) {
+        const page = more ? next : 0;
+        const response = await axios.get("http://localhost:8080/api/books/search", {
+          params: { q: term, page, size: PAGE_SIZE },
+        });
+        items = response.data.hits.map((hit) => hit.book);
+        if (selectedCategory !== "All") {
+          items = items.filter((book) => book.category === selectedCategory);
+        }
+        following = (page + 1) * PAGE_SIZE < response.data.total ? page + 1 : null;
+      } else {
+        const params = { limit: PAGE_SIZE, ...SORT_PARAMS[sortOption] };
+        if (selectedCategory !== "All") params.category = selectedCategory;
+        if (more) params.after = next;
+        const response = await axios.get("http://localhost:8080/api/books", { params });
+        items = response.data.items;
+        following = response.data.nextCursor;
+      }
+      setBooks((shown) => (more ? [...shown, ...items] : items));
+      setNext(following);
+    } catch (error) {
+      console.error("Error fetching books:", error);
+    } finally {
+      setLoading(false);
+      setLoadingMore(false);
     }
-    
-    setFilteredBooks(result);
-  }, [books, searchTerm, selectedCategory, sortOption]);
+  };
+
+  // Back to the first page whenever the filters change; typing is debounced
+  useEffect(() => {
+    const timer = setTimeout(() => fetchBooks(), searchTerm ? 300 : 0);
+    return () => clearTimeout(timer);
+  }, [searchTerm, selectedCategory, sortOption]);
 
   // Function to handle image loading errors
   const handleImageError = (bookId) => {
@@ -97,7 +107,7 @@ const AllBooksView = () => {
     }
     
     if (book.image) {
-      return `http://localhost:8080/api/books/uploads/${book.image}`;
+      return `http://localhost:8080/api/books/uploads/${book.image}?size=card`;
     }
     
     return "https://via.placeholder.com/300x400?text=No+Image";
@@ -246,19 +256,19 @@ const AllBooksView = () => {
 
           {/* Results count */}
           <div className="text-sm text-amber-700">
-            Showing {filteredBooks.length} of {books.length} books
+            Showing {books.length} books{next !== null ? " so far" : ""}
           </div>
         </div>
 
-        {/* Books Grid - All books displayed at once */}
-        {filteredBooks.length === 0 ? (
+        {/* Books Grid - one page at a time, "Load more" adds the next */}
+        {books.length === 0 ? (
           <div className="text-center py-12 bg-white rounded-lg shadow border border-amber-100">
             <h2 className="text-xl font-semibold text-amber-600 mb-2">No books found</h2>
             <p className="text-amber-700">Try adjusting your search or filters</p>
           </div>
         ) : (
           <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-3 xl:grid-cols-4 gap-6">
-            {filteredBooks.map((book) => (
+            {books.map((book) => (
               <div key={book.id} className="bg-white rounded-xl shadow-md overflow-hidden hover:shadow-xl transition-all duration-300 transform hover:-translate-y-1 border border-amber-100">
                 <div className="relative">
                   <div className="h-56 overflow-hidden bg-amber-50 flex items-center justify-center">
@@ -343,6 +353,18 @@ const AllBooksView = () => {
             ))}
           </div>
         )}
+
+        {next !== null && (
+          <div className="flex justify-center mt-8">
+            <button
+              onClick={() => fetchBooks(true)}
+              disabled={loadingMore}
+              className="bg-amber-600 hover:bg-amber-700 disabled:opacity-50 text-white px-6 py-2 rounded-lg transition-colors"
+            >
+              {loadingMore ? "Loading..." : "Load more"}
+            </button>
+          </div>
+        )}
       </div>
 
       {/* Quick View Modal */}
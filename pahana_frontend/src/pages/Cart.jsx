@@ -122,7 +122,7 @@ const CartPage = () => {
                     <div key={book.id} className="p-6 flex flex-col sm:flex-row items-start sm:items-center">
                       <div className="flex-shrink-0 mb-4 sm:mb-0 sm:mr-6">
                         <img
-                          src={`http://localhost:8080/api/books/uploads/${book.image}`}
+                          src={`http://localhost:8080/api/books/uploads/${book.image}?size=thumb`}
                           alt={book.title}
                           className="w-20 h-24 object-cover rounded-lg shadow-sm border border-amber-200"
                           onError={handleImageError}
@@ -32,11 +32,39 @@ const CheckoutPage = () => {
   const [formErrors, setFormErrors] = useState({});
   const navigate = useNavigate();
 
+  const [reservationId, setReservationId] = useState(null);
+  // Sent with every attempt to place this order, so a double click or a retried request
+  // cannot create a second order
+  const [idempotencyKey] = useState(() => crypto.randomUUID());
+
   useEffect(() => {
     const storedCart = JSON.parse(localStorage.getItem("cart")) || [];
     setCart(storedCart);
+    if (storedCart.length > 0) {
+      reserveStock(storedCart);
+    }
   }, []);
 
+  // Holds the cart's copies while a logged-in customer fills in the form, so they cannot sell out
+  // meanwhile. A new reservation replaces the one left by an earlier visit to this page. Guests
+  // check out without one; their copies are taken when the order is placed.
+  const reserveStock = async (items) => {
+    const token = localStorage.getItem("authToken");
+    if (!token) {
+      return;
+    }
+    try {
+      const response = await axios.post("http://localhost:8080/api/inventory/reservations", items, {
+        headers: { Authorization: `Bearer ${token}` },
+      });
+      setReservationId(response.data.id);
+    } catch (error) {
+      if (error.response?.status === 409) {
+        alert("Some books in your cart are out of stock. Please review your cart.");
+      }
+    }
+  };
+
   const handleInputChange = (e) => {
     const { name, value } = e.target;
     setShippingInfo({
@@ -213,6 +241,7 @@ const CheckoutPage = () => {
 
     const checkoutData = {
       cartItems: cart,
+      reservationId: reservationId,
       name: shippingInfo.name,
       address: shippingInfo.address,
       phone: shippingInfo.phone,
@@ -230,7 +259,13 @@ const CheckoutPage = () => {
     };
 
     try {
-      await axios.post("http://localhost:8080/api/checkout", checkoutData);
+      // A reservation can only be used by the customer who made it
+      const token = localStorage.getItem("authToken");
+      const headers = { "Idempotency-Key": idempotencyKey };
+      if (reservationId && token) {
+        headers.Authorization = `Bearer ${token}`;
+      }
+      await axios.post("http://localhost:8080/api/checkout", checkoutData, { headers });
       
       // Generate and download the invoice PDF
       generateInvoicePDF();
@@ -238,7 +273,7 @@ const CheckoutPage = () => {
       // Show success message
       alert("Order placed successfully! Your invoice is downloading.");
       
-      // Clear cart
+      // Clear cart; the order used up the reservation
       localStorage.removeItem("cart");
       setCart([]);
       setLoading(false);
@@ -247,7 +282,12 @@ const CheckoutPage = () => {
       navigate("/home");
     } catch (error) {
       console.error("Error placing order", error);
-      alert("Error placing the order. Please try again.");
+      if (error.response?.status === 409) {
+        // The server re-prices the cart; a price change, a removed book or a sold-out book ends up here
+        alert("Some prices, books or stock in your cart have changed. Please review your cart and try again.");
+      } else {
+        alert("Error placing the order. Please try again.");
+      }
       setLoading(false);
     }
   };
@@ -328,7 +368,7 @@ const CheckoutPage = () => {
                 {cart.map((book) => (
                   <div key={book.id} className="flex items-center py-3 border-b border-amber-100 last:border-0">
                     <img
-                      src={`http://localhost:8080/api/books/uploads/${book.image}`}
+                      src={`http://localhost:8080/api/books/uploads/${book.image}?size=thumb`}
                       alt={book.title}
                       className="w-16 h-20 object-cover rounded-lg shadow-sm mr-4 border border-amber-200"
                       onError={handleImageError}
@@ -51,14 +51,15 @@ const DownloadPDFPage = () => {
     return {
       orderId: orderData.orderId || `#ORD-${Math.floor(10000 + Math.random() * 90000)}`,
       orderDate: orderData.orderDate || new Date().toLocaleDateString(),
-      items: orderData.cartItems || orderData.items || [
+      // Orders from the API carry compact lines with unitPrice; cart items carry price
+      items: (orderData.cartItems || orderData.items || [
         { 
           title: "Unknown Product", 
           author: "Unknown Author", 
           price: 0.00, 
           quantity: 1 
         }
-      ],
+      ]).map((item) => ({ ...item, price: item.price ?? item.unitPrice })),
       shipping: orderData.shipping || {
         name: orderData.name || "Not provided",
         address: orderData.address || "Not provided",
@@ -22,17 +22,19 @@ const UserProfile = () => {
   useEffect(() => {
     const fetchUserData = async () => {
       try {
-        // Get user ID from localStorage (set during login)
-        const userId = localStorage.getItem('userId');
+        // Session token from localStorage (set during login)
+        const token = localStorage.getItem('authToken');
         
-        if (!userId) {
+        if (!token) {
           setMessage('Please login first');
           navigate('/login');
           return;
         }
 
-        // Fetch user data from backend
-        const response = await axios.get(`http://localhost:8080/api/customers/${userId}`);
+        // Fetch the logged-in customer from backend
+        const response = await axios.get('http://localhost:8080/api/customers/me', {
+          headers: { Authorization: `Bearer ${token}` }
+        });
         
         if (response.status === 200) {
           setUser(response.data);
@@ -46,6 +48,12 @@ const UserProfile = () => {
         }
       } catch (error) {
         console.error('Error fetching user data:', error);
+        if (error.response && error.response.status === 401) {
+          // Expired or invalid session
+          localStorage.removeItem('authToken');
+          navigate('/login');
+          return;
+        }
         setMessage('Failed to load user data');
       } finally {
         setIsLoading(false);
@@ -71,7 +79,9 @@ const UserProfile = () => {
     
     try {
       const userId = localStorage.getItem('userId');
-      const response = await axios.put(`http://localhost:8080/api/customers/${userId}`, updatedUser);
+      // Only the edited fields, so the password and anything else on the account stay as they are
+      const { name, email, contactNumber } = updatedUser;
+      const response = await axios.patch(`http://localhost:8080/api/customers/${userId}`, { name, email, contactNumber });
       
       if (response.status === 200) {
         setUser(response.data);
@@ -83,7 +93,9 @@ const UserProfile = () => {
       }
     } catch (error) {
       console.error('Error updating profile:', error);
-      setMessage('Failed to update profile');
+      setMessage(error.response && error.response.status === 409
+        ? 'This email is already used by another account'
+        : 'Failed to update profile');
     } finally {
       setIsLoading(false);
     }
@@ -95,6 +107,7 @@ const UserProfile = () => {
     localStorage.removeItem('userId');
     localStorage.removeItem('userEmail');
     localStorage.removeItem('userName');
+    localStorage.removeItem('authToken');
     
     // Redirect to login page
     navigate('/login');